@@ -0,0 +1,50 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+
+// Bounds Reduction Initial Pass Fragment Shader.
+// Each output texel covers a 2x2 block of the input texture, and stores the
+// min position and the (max position + 1) of the sampled solid pixels along one axis.
+// Each value is encoded into two 8-bit channels, as (min.hi, min.lo, max.hi, max.lo).
+
+#version 120
+
+uniform sampler2D u_texture;    // From SpriteBatch
+uniform vec2 u_inputSize;       // Required
+uniform vec2 u_edgeParity;      // Required, the parity of the last column and the last row
+uniform int u_axis;             // Required, 0=Y, 1=X
+
+const float c_none = 65535.0;
+const float c_alphaThreshold = 254.5 / 255.0;
+
+vec2 encode(float v) {
+    float hi = floor(v / 256.0);
+    return vec2(hi, v - hi * 256.0) / 255.0;
+}
+
+bool isSolid(vec2 p) {
+    return p.x < u_inputSize.x && p.y < u_inputSize.y &&
+            texture2D(u_texture, (p + 0.5) / u_inputSize).a >= c_alphaThreshold;
+}
+
+void main() {
+    vec2 base = floor(gl_FragCoord.xy) * 2.0;
+    float minV = c_none;
+    float maxV = 0.0;
+    if (u_axis == 0) {
+        // Top: even rows & even columns; Bottom: rows of the same parity as the last row & even columns
+        if (isSolid(base))
+            minV = base.y;
+        vec2 q = base + vec2(0.0, u_edgeParity.y);
+        if (isSolid(q))
+            maxV = q.y + 1.0;
+    } else {
+        // Left: even columns & even rows; Right: columns of the same parity as the last column & even rows
+        if (isSolid(base))
+            minV = base.x;
+        vec2 q = base + vec2(u_edgeParity.x, 0.0);
+        if (isSolid(q))
+            maxV = q.x + 1.0;
+    }
+    gl_FragColor = vec4(encode(minV), encode(maxV));
+}
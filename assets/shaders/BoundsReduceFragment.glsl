@@ -0,0 +1,39 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+
+// Bounds Reduction Pass Fragment Shader.
+// Each output texel covers a 2x2 block of the input texture, and stores the
+// min of the min values and the max of the max values in the block.
+// Each value is encoded into two 8-bit channels, as (min.hi, min.lo, max.hi, max.lo).
+
+#version 120
+
+uniform sampler2D u_texture;    // From SpriteBatch
+uniform vec2 u_inputSize;       // Required
+
+const float c_none = 65535.0;
+
+float decode(vec2 c) {
+    return floor(c.x * 255.0 + 0.5) * 256.0 + floor(c.y * 255.0 + 0.5);
+}
+
+vec2 encode(float v) {
+    float hi = floor(v / 256.0);
+    return vec2(hi, v - hi * 256.0) / 255.0;
+}
+
+void main() {
+    vec2 base = floor(gl_FragCoord.xy) * 2.0;
+    float minV = c_none;
+    float maxV = 0.0;
+    for (int i = 0; i < 4; i++) {
+        vec2 p = base + vec2(mod(float(i), 2.0), floor(float(i) / 2.0));
+        if (p.x < u_inputSize.x && p.y < u_inputSize.y) {
+            vec4 c = texture2D(u_texture, (p + 0.5) / u_inputSize);
+            minV = min(minV, decode(c.rg));
+            maxV = max(maxV, decode(c.ba));
+        }
+    }
+    gl_FragColor = vec4(encode(minV), encode(maxV));
+}
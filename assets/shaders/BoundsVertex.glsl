@@ -0,0 +1,14 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+
+// Common Vertex Shader for the Bounds Reduction passes.
+
+#version 120
+
+attribute vec4 a_position;
+uniform mat4 u_projTrans;   // From SpriteBatch
+
+void main() {
+    gl_Position = u_projTrans * a_position;
+}
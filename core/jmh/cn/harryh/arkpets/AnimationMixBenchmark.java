@@ -0,0 +1,107 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.animations.AnimClip;
+import cn.harryh.arkpets.animations.AnimClipGroup;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.Animation;
+import com.esotericsoftware.spine.AnimationStateData;
+import com.esotericsoftware.spine.SkeletonData;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static cn.harryh.arkpets.Const.durationNormal;
+
+
+/** Compares the animation mixing setup of {@link ArkChar}, which sets a default mix and overrides the pairs of
+ * the same animation, with the legacy one, which sets the mix of every ordered pair of different animations.
+ * <hr>
+ * The model contains the given count of empty animations, since only the mix table depends on them.
+ * The setup verifies that both mix tables return the same mix for every pair.
+ * The allocated bytes and the retained heap of one mix table are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationMixBenchmark {
+    @Param({"20", "60", "150"})
+    public int animationCount;
+
+    private static final String[] baseNames = {"Relax", "Move", "Sit", "Sleep", "Interact", "Special", "Attack", "Skill"};
+    private static final int retainedCount = 200;
+
+    private SkeletonData skeletonData;
+    private AnimClipGroup animList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        skeletonData = new SkeletonData();
+        for (int i = 0; i < animationCount; i++)
+            skeletonData.getAnimations().add(new Animation(baseNames[i % baseNames.length] + "_" + i, new Array<>(), 1));
+        animList = new AnimClipGroup(skeletonData.getAnimations().toArray(Animation.class));
+        AnimationStateData legacy = legacy();
+        AnimationStateData current = current();
+        Animation[] animations = skeletonData.getAnimations().toArray(Animation.class);
+        for (Animation i : animations)
+            for (Animation j : animations)
+                if (legacy.getMix(i, j) != current.getMix(i, j))
+                    throw new IllegalStateException("The mixes of " + i + " and " + j + " differ");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println("Per mix table of " + animationCount + " animations:");
+        for (String name : new String[]{"legacy", "current"}) {
+            boolean isLegacy = name.equals("legacy");
+            long allocated = allocatedBytes();
+            for (int i = 0; i < retainedCount; i++)
+                if (isLegacy) legacy(); else current();
+            allocated = allocatedBytes() - allocated;
+            AnimationStateData[] retained = new AnimationStateData[retainedCount];
+            long used = usedHeap();
+            for (int i = 0; i < retainedCount; i++)
+                retained[i] = isLegacy ? legacy() : current();
+            long retainedBytes = usedHeap() - used;
+            System.out.printf("  %-8s allocated %d bytes, retained %d bytes%n", name,
+                    allocated / retainedCount, retainedBytes / retained.length);
+        }
+    }
+
+    @Benchmark
+    public AnimationStateData legacy() {
+        AnimationStateData asd = new AnimationStateData(skeletonData);
+        for (AnimClip i : animList)
+            for (AnimClip j : animList)
+                if (!i.fullName.equals(j.fullName))
+                    asd.setMix(i.fullName, j.fullName, (float)durationNormal.toSeconds());
+        return asd;
+    }
+
+    @Benchmark
+    public AnimationStateData current() {
+        AnimationStateData asd = new AnimationStateData(skeletonData);
+        asd.setDefaultMix((float)durationNormal.toSeconds());
+        for (AnimClip i : animList)
+            asd.setMix(i.fullName, i.fullName, 0);
+        return asd;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,263 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.transitions.EasingFunction;
+import cn.harryh.arkpets.transitions.TransitionFloat;
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.graphics.*;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** Compares the render pass 2 of {@link ArkChar} with the legacy one, which uploads all the uniforms
+ * and draws the full-canvas background every frame, on a mocked GL20 without a display.
+ * <hr>
+ * The GL20 mock counts the GL calls, and the batch mock sums up the area of the submitted quads (clipped to the canvas),
+ * so the counts cover the uniform traffic and the fill area of pass 2, but not the work inside the real batch.
+ * The outline is toggled every 2 seconds (like a hovering mouse) at 60 fps, with a fully transparent canvas color.
+ * The per-frame counts are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArkCharRenderBenchmark {
+    @Param({"300"})
+    public int canvasSize;
+
+    private static final float deltaTime = 1 / 60f;
+    private static final int toggleInterval = 120;
+
+    private GL20 originalGl;
+    private Application originalApp;
+    private Graphics originalGraphics;
+    private final Counters counters = new Counters();
+    private Frame legacy;
+    private Frame current;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        originalGl = Gdx.gl;
+        originalApp = Gdx.app;
+        originalGraphics = Gdx.graphics;
+        Gdx.gl = Gdx.gl20 = newCountingGl(counters);
+        Gdx.app = newStub(Application.class);
+        Gdx.graphics = newStub(Graphics.class);
+        Batch batch = newCountingBatch(counters, canvasSize);
+        Texture passedTexture = new Texture(new StubTextureData(canvasSize, canvasSize));
+        legacy = new Frame(batch, passedTexture, new Texture(new StubTextureData(canvasMaxSize, canvasMaxSize)));
+        current = new Frame(batch, passedTexture, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println("Per frame of pass 2, averaged over " + toggleInterval * 2 + " frames:");
+        for (String name : new String[]{"legacy", "current"}) {
+            Frame frame = name.equals("legacy") ? legacy : current;
+            counters.reset();
+            for (int i = 0; i < toggleInterval * 2; i++)
+                if (frame == legacy) legacyPass2(); else currentPass2();
+            System.out.printf("  %-8s GL calls %.2f, uniform uploads %.2f, fill area %.0f px%n", name,
+                    counters.glCalls / (toggleInterval * 2f), counters.uniformCalls / (toggleInterval * 2f),
+                    counters.fillArea / (toggleInterval * 2f));
+        }
+        Gdx.gl = Gdx.gl20 = originalGl;
+        Gdx.app = originalApp;
+        Gdx.graphics = originalGraphics;
+    }
+
+    @Benchmark
+    public long legacyPass2() {
+        Frame f = legacy.advance();
+        f.shader.bind();
+        f.shader.setUniformf("u_outlineColor", f.outlineColor.r, f.outlineColor.g, f.outlineColor.b, f.outlineColor.a);
+        f.shader.setUniformf("u_outlineWidth", f.outlineWidth.now());
+        f.shader.setUniformi("u_textureSize", f.passedTexture.getWidth(), f.passedTexture.getHeight());
+        f.shader.setUniformf("u_alpha", f.alpha.now());
+        ArkChar.drawPass2(f.batch, f.bgTexture, f.passedTexture, canvasSize, canvasSize);
+        return counters.glCalls;
+    }
+
+    @Benchmark
+    public long currentPass2() {
+        Frame f = current.advance();
+        f.shader.bind();
+        f.uniforms.apply(f.outlineColor, f.outlineWidth, f.alpha, f.passedTexture);
+        ArkChar.drawPass2(f.batch, f.bgTexture, f.passedTexture, canvasSize, canvasSize);
+        return counters.glCalls;
+    }
+
+
+    /** The state of the frames rendered by one of the implementations.
+     */
+    private static class Frame {
+        private final Batch batch;
+        private final Texture passedTexture;
+        private final Texture bgTexture;
+        private final ShaderProgram shader = new ShaderProgram("vertex", "fragment");
+        private final ArkChar.Pass2Uniforms uniforms = new ArkChar.Pass2Uniforms(shader);
+        private final Color outlineColor = Color.YELLOW;
+        private final TransitionFloat outlineWidth = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, (float)durationFast.toSeconds());
+        private final TransitionFloat alpha = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
+        private int frame;
+
+        private Frame(Batch batch, Texture passedTexture, Texture bgTexture) {
+            this.batch = batch;
+            this.passedTexture = passedTexture;
+            this.bgTexture = bgTexture;
+            alpha.reset(1);
+            alpha.setToEnd();
+        }
+
+        private Frame advance() {
+            if (frame++ % toggleInterval == 0)
+                outlineWidth.reset(outlineWidth.end() > 0 ? 0 : 2);
+            outlineWidth.addProgress(deltaTime);
+            alpha.addProgress(deltaTime);
+            return this;
+        }
+    }
+
+
+    private static class Counters {
+        private long glCalls;
+        private long uniformCalls;
+        private long fillArea;
+
+        private void reset() {
+            glCalls = uniformCalls = fillArea = 0;
+        }
+    }
+
+    private static GL20 newCountingGl(Counters counters) {
+        int[] handles = {0};
+        return (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class[]{GL20.class}, (proxy, method, args) -> {
+            String name = method.getName();
+            counters.glCalls++;
+            if (name.startsWith("glUniform"))
+                counters.uniformCalls++;
+            switch (name) {
+                case "glCreateShader", "glCreateProgram", "glGenTexture" -> {
+                    return ++handles[0];
+                }
+                case "glGetShaderiv", "glGetProgramiv" -> {
+                    // Reports the compile and link status as succeeded, and no active attribute or uniform
+                    int pname = (int)args[1];
+                    ((IntBuffer)args[2]).put(0, pname == GL20.GL_COMPILE_STATUS || pname == GL20.GL_LINK_STATUS ? 1 : 0);
+                    return null;
+                }
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    private static Batch newCountingBatch(Counters counters, int canvasSize) {
+        return (Batch)Proxy.newProxyInstance(Batch.class.getClassLoader(), new Class[]{Batch.class}, (proxy, method, args) -> {
+            if (method.getName().equals("draw") && args[0] instanceof Texture texture) {
+                float width, height;
+                if (args.length == 3) {
+                    width = texture.getWidth();
+                    height = texture.getHeight();
+                } else {
+                    width = (float)args[5];
+                    height = (float)args[6];
+                }
+                counters.fillArea += (long)Math.min(width, canvasSize) * (long)Math.min(height, canvasSize);
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newStub(Class<T> type) {
+        InvocationHandler handler = (proxy, method, args) -> switch (method.getName()) {
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            case "toString" -> type.getSimpleName() + " stub";
+            default -> defaultValue(method.getReturnType());
+        };
+        return (T)Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        return null;
+    }
+
+
+    /** The texture data which has only a size, so that a texture can be created on the mocked GL.
+     */
+    private record StubTextureData(int width, int height) implements TextureData {
+        @Override
+        public TextureDataType getType() {
+            return TextureDataType.Custom;
+        }
+
+        @Override
+        public boolean isPrepared() {
+            return true;
+        }
+
+        @Override
+        public void prepare() {
+        }
+
+        @Override
+        public Pixmap consumePixmap() {
+            return null;
+        }
+
+        @Override
+        public boolean disposePixmap() {
+            return false;
+        }
+
+        @Override
+        public void consumeCustomData(int target) {
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public Pixmap.Format getFormat() {
+            return Pixmap.Format.RGBA8888;
+        }
+
+        @Override
+        public boolean useMipMaps() {
+            return false;
+        }
+
+        @Override
+        public boolean isManaged() {
+            return false;
+        }
+    }
+}
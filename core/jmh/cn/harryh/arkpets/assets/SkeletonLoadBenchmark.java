@@ -0,0 +1,446 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.esotericsoftware.spine.*;
+import com.esotericsoftware.spine.Animation.CurveTimeline;
+import com.esotericsoftware.spine.Animation.RotateTimeline;
+import com.esotericsoftware.spine.Animation.Timeline;
+import com.esotericsoftware.spine.Animation.TranslateTimeline;
+import com.esotericsoftware.spine.attachments.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/** Compares the skeleton parsing of {@link ModelLoader}, which sniffs the {@link SkeletonFormat} first,
+ * with the legacy one, which tries {@link SkeletonBinary} and falls back on {@link SkeletonJson} when it fails.
+ * <hr>
+ * The same synthetic skeleton (sized like a common Arknights model) is written in both formats,
+ * since the repository ships no model. It contains bones, slots, region attachments, and the bone timelines
+ * with bezier curves, but no mesh; the attachments are created by a stub loader instead of an atlas.
+ * The setup verifies that both formats are parsed into the same skeleton.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkeletonLoadBenchmark {
+    @Param({"150"})
+    public int boneCount;
+    @Param({"20"})
+    public int animationCount;
+
+    private static final int keysPerTimeline = 8;
+    private static final float skelScale = 0.3f;
+
+    private byte[] binaryBytes;
+    private byte[] jsonBytes;
+    private final AttachmentLoader loader = new StubAttachmentLoader();
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticSkeleton skeleton = new SyntheticSkeleton(boneCount, animationCount, new SplittableRandom(boneCount));
+        binaryBytes = skeleton.toBinary();
+        jsonBytes = skeleton.toJson().getBytes(StandardCharsets.UTF_8);
+        if (SkeletonFormat.sniff(binaryBytes) != SkeletonFormat.BINARY || SkeletonFormat.sniff(jsonBytes) != SkeletonFormat.JSON)
+            throw new IllegalStateException("The formats are sniffed wrongly");
+        assertSame(binarySniffed(), jsonSniffed());
+        assertSame(binarySniffed(), jsonLegacy());
+        assertSame(binarySniffed(), binaryLegacy());
+        System.out.println();
+        System.out.println("Skeleton size: binary " + binaryBytes.length + " bytes, JSON " + jsonBytes.length + " bytes");
+    }
+
+    @Benchmark
+    public SkeletonData binarySniffed() {
+        return parse(new MemoryFileHandle("model.skel", binaryBytes));
+    }
+
+    @Benchmark
+    public SkeletonData jsonSniffed() {
+        return parse(new MemoryFileHandle("model.skel", jsonBytes));
+    }
+
+    @Benchmark
+    public SkeletonData binaryLegacy() {
+        return parseLegacy(new MemoryFileHandle("model.skel", binaryBytes));
+    }
+
+    @Benchmark
+    public SkeletonData jsonLegacy() {
+        return parseLegacy(new MemoryFileHandle("model.skel", jsonBytes));
+    }
+
+    /** The current {@code ModelLoader.parseSkel} (without the asset cache).
+     */
+    private SkeletonData parse(MemoryFileHandle file) {
+        if (SkeletonFormat.sniff(file.bytes) == SkeletonFormat.JSON) {
+            SkeletonJson json = new SkeletonJson(loader);
+            json.setScale(skelScale);
+            return json.readSkeletonData(file);
+        } else {
+            SkeletonBinary binary = new SkeletonBinary(loader);
+            binary.setScale(skelScale);
+            return binary.readSkeletonData(file);
+        }
+    }
+
+    /** The legacy skeleton loading in {@code ArkChar} (without the logging).
+     */
+    private SkeletonData parseLegacy(MemoryFileHandle file) {
+        try {
+            SkeletonBinary binary = new SkeletonBinary(loader);
+            binary.setScale(skelScale);
+            return binary.readSkeletonData(file);
+        } catch (Exception e) {
+            SkeletonJson json = new SkeletonJson(loader);
+            json.setScale(skelScale);
+            return json.readSkeletonData(file);
+        }
+    }
+
+    private static void assertSame(SkeletonData expected, SkeletonData actual) {
+        StringBuilder a = new StringBuilder(), b = new StringBuilder();
+        describe(expected, a);
+        describe(actual, b);
+        if (!a.toString().equals(b.toString()))
+            throw new IllegalStateException("The parsed skeletons differ");
+    }
+
+    private static void describe(SkeletonData data, StringBuilder sb) {
+        for (BoneData bone : data.getBones())
+            sb.append(bone.getName()).append(bone.getParent() == null ? null : bone.getParent().getName())
+                    .append(bone.getX()).append(bone.getY()).append(bone.getRotation()).append(bone.getLength()).append('\n');
+        for (SlotData slot : data.getSlots())
+            sb.append(slot.getName()).append(slot.getBoneData().getName()).append(slot.getAttachmentName()).append('\n');
+        for (Skin.SkinEntry entry : data.getDefaultSkin().getAttachments()) {
+            RegionAttachment region = (RegionAttachment)entry.getAttachment();
+            sb.append(entry.getSlotIndex()).append(entry.getName()).append(region.getX()).append(region.getY())
+                    .append(region.getRotation()).append(region.getWidth()).append(region.getHeight()).append('\n');
+        }
+        for (Animation animation : data.getAnimations()) {
+            sb.append(animation.getName()).append(animation.getDuration()).append('\n');
+            for (Timeline timeline : animation.getTimelines()) {
+                sb.append(timeline.getClass().getSimpleName());
+                if (timeline instanceof RotateTimeline rotate)
+                    sb.append(rotate.getBoneIndex()).append(Arrays.toString(rotate.getFrames()));
+                if (timeline instanceof TranslateTimeline translate)
+                    sb.append(translate.getBoneIndex()).append(Arrays.toString(translate.getFrames()));
+                if (timeline instanceof CurveTimeline curve)
+                    for (int i = 0; i < curve.getFrameCount() - 1; i++)
+                        sb.append(curve.getCurvePercent(i, 0.5f));
+                sb.append('\n');
+            }
+        }
+    }
+
+
+    /** The synthetic skeleton, whose values are multiples of 1/8 so that both formats represent them exactly.
+     * Every bone has a slot with a region attachment, and every animation rotates and translates some bones.
+     */
+    private static class SyntheticSkeleton {
+        private final int[] parents;
+        private final float[][] bones;
+        private final float[][] regions;
+        private final int[][] animatedBones;
+        private final float[][][] rotateKeys;
+        private final float[][][] translateKeys;
+
+        private SyntheticSkeleton(int boneCount, int animationCount, SplittableRandom random) {
+            parents = new int[boneCount];
+            bones = new float[boneCount][];
+            regions = new float[boneCount][];
+            for (int i = 0; i < boneCount; i++) {
+                parents[i] = i == 0 ? -1 : random.nextInt(i);
+                bones[i] = new float[]{value(random, 100), value(random, 100), value(random, 180), Math.abs(value(random, 50))};
+                regions[i] = new float[]{value(random, 20), value(random, 20), value(random, 180), 8 + Math.abs(value(random, 64)), 8 + Math.abs(value(random, 64))};
+            }
+            animatedBones = new int[animationCount][];
+            rotateKeys = new float[animationCount][][];
+            translateKeys = new float[animationCount][][];
+            for (int a = 0; a < animationCount; a++) {
+                animatedBones[a] = random.ints(boneCount / 2, 0, boneCount).distinct().sorted().toArray();
+                rotateKeys[a] = new float[animatedBones[a].length][];
+                translateKeys[a] = new float[animatedBones[a].length][];
+                for (int b = 0; b < animatedBones[a].length; b++) {
+                    // [time, angle, cx1, cy1, cx2, cy2] and [time, x, y, cx1, cy1, cx2, cy2] per key
+                    rotateKeys[a][b] = new float[keysPerTimeline * 6];
+                    translateKeys[a][b] = new float[keysPerTimeline * 7];
+                    for (int k = 0; k < keysPerTimeline; k++) {
+                        float time = k / 4f;
+                        fillKey(rotateKeys[a][b], k * 6, time, new float[]{value(random, 30)}, random);
+                        fillKey(translateKeys[a][b], k * 7, time, new float[]{value(random, 10), value(random, 10)}, random);
+                    }
+                }
+            }
+        }
+
+        private static void fillKey(float[] keys, int offset, float time, float[] values, SplittableRandom random) {
+            keys[offset] = time;
+            System.arraycopy(values, 0, keys, offset + 1, values.length);
+            int curve = offset + 1 + values.length;
+            keys[curve] = random.nextInt(9) / 8f;
+            keys[curve + 1] = random.nextInt(9) / 8f;
+            keys[curve + 2] = random.nextInt(9) / 8f;
+            keys[curve + 3] = random.nextInt(9) / 8f;
+        }
+
+        private static float value(SplittableRandom random, int range) {
+            return random.nextInt(-range * 8, range * 8 + 1) / 8f;
+        }
+
+        private String toJson() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("{\"skeleton\":{\"hash\":\"synthetic\",\"spine\":\"3.8.99\",\"x\":-100,\"y\":-10,\"width\":200,\"height\":300},\n");
+            sb.append("\"bones\":[\n");
+            for (int i = 0; i < bones.length; i++) {
+                sb.append(i == 0 ? "" : ",\n").append("{\"name\":\"bone").append(i).append('"');
+                if (parents[i] >= 0)
+                    sb.append(",\"parent\":\"bone").append(parents[i]).append('"');
+                sb.append(",\"x\":").append(bones[i][0]).append(",\"y\":").append(bones[i][1])
+                        .append(",\"rotation\":").append(bones[i][2]).append(",\"length\":").append(bones[i][3]).append('}');
+            }
+            sb.append("],\n\"slots\":[\n");
+            for (int i = 0; i < bones.length; i++)
+                sb.append(i == 0 ? "" : ",\n").append("{\"name\":\"slot").append(i).append("\",\"bone\":\"bone").append(i)
+                        .append("\",\"attachment\":\"region").append(i).append("\"}");
+            sb.append("],\n\"skins\":[{\"name\":\"default\",\"attachments\":{\n");
+            for (int i = 0; i < bones.length; i++)
+                sb.append(i == 0 ? "" : ",\n").append("\"slot").append(i).append("\":{\"region").append(i).append("\":{")
+                        .append("\"x\":").append(regions[i][0]).append(",\"y\":").append(regions[i][1])
+                        .append(",\"rotation\":").append(regions[i][2]).append(",\"width\":").append(regions[i][3])
+                        .append(",\"height\":").append(regions[i][4]).append("}}");
+            sb.append("}}],\n\"animations\":{\n");
+            for (int a = 0; a < animatedBones.length; a++) {
+                sb.append(a == 0 ? "" : ",\n").append("\"anim").append(a).append("\":{\"bones\":{\n");
+                for (int b = 0; b < animatedBones[a].length; b++) {
+                    sb.append(b == 0 ? "" : ",\n").append("\"bone").append(animatedBones[a][b]).append("\":{\"rotate\":[");
+                    float[] r = rotateKeys[a][b];
+                    for (int k = 0; k < keysPerTimeline; k++) {
+                        sb.append(k == 0 ? "" : ",").append("{\"time\":").append(r[k * 6]).append(",\"angle\":").append(r[k * 6 + 1]);
+                        if (k < keysPerTimeline - 1)
+                            appendJsonCurve(sb, r, k * 6 + 2);
+                        sb.append('}');
+                    }
+                    sb.append("],\"translate\":[");
+                    float[] t = translateKeys[a][b];
+                    for (int k = 0; k < keysPerTimeline; k++) {
+                        sb.append(k == 0 ? "" : ",").append("{\"time\":").append(t[k * 7])
+                                .append(",\"x\":").append(t[k * 7 + 1]).append(",\"y\":").append(t[k * 7 + 2]);
+                        if (k < keysPerTimeline - 1)
+                            appendJsonCurve(sb, t, k * 7 + 3);
+                        sb.append('}');
+                    }
+                    sb.append("]}");
+                }
+                sb.append("}}");
+            }
+            sb.append("}}\n");
+            return sb.toString();
+        }
+
+        private static void appendJsonCurve(StringBuilder sb, float[] keys, int i) {
+            sb.append(",\"curve\":").append(keys[i]).append(",\"c2\":").append(keys[i + 1])
+                    .append(",\"c3\":").append(keys[i + 2]).append(",\"c4\":").append(keys[i + 3]);
+        }
+
+        /** Writes the skeleton in the binary format of Spine 3.8, as read by {@link SkeletonBinary}.
+         */
+        private byte[] toBinary() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeString(out, "synthetic");
+            writeString(out, "3.8.99");
+            out.writeFloat(-100);
+            out.writeFloat(-10);
+            out.writeFloat(200);
+            out.writeFloat(300);
+            out.writeBoolean(false); // Non-essential data
+            // Strings (referenced by the index plus one)
+            writeVarint(out, bones.length);
+            for (int i = 0; i < bones.length; i++)
+                writeString(out, "region" + i);
+            // Bones
+            writeVarint(out, bones.length);
+            for (int i = 0; i < bones.length; i++) {
+                writeString(out, "bone" + i);
+                if (i > 0)
+                    writeVarint(out, parents[i]);
+                out.writeFloat(bones[i][2]); // Rotation
+                out.writeFloat(bones[i][0]);
+                out.writeFloat(bones[i][1]);
+                out.writeFloat(1); // Scale
+                out.writeFloat(1);
+                out.writeFloat(0); // Shear
+                out.writeFloat(0);
+                out.writeFloat(bones[i][3]); // Length
+                writeVarint(out, 0); // Transform mode (normal)
+                out.writeBoolean(false); // Skin required
+            }
+            // Slots
+            writeVarint(out, bones.length);
+            for (int i = 0; i < bones.length; i++) {
+                writeString(out, "slot" + i);
+                writeVarint(out, i);
+                out.writeInt(0xFFFFFFFF); // Color
+                out.writeInt(-1); // No dark color
+                writeVarint(out, i + 1); // Attachment name reference
+                writeVarint(out, 0); // Blend mode (normal)
+            }
+            // IK, transform, and path constraints
+            writeVarint(out, 0);
+            writeVarint(out, 0);
+            writeVarint(out, 0);
+            // Default skin
+            writeVarint(out, bones.length);
+            for (int i = 0; i < bones.length; i++) {
+                writeVarint(out, i); // Slot index
+                writeVarint(out, 1);
+                writeVarint(out, i + 1); // Skin placeholder name
+                writeVarint(out, 0); // Attachment name (same as the placeholder)
+                out.writeByte(AttachmentType.region.ordinal());
+                writeVarint(out, 0); // Path (same as the name)
+                out.writeFloat(regions[i][2]); // Rotation
+                out.writeFloat(regions[i][0]);
+                out.writeFloat(regions[i][1]);
+                out.writeFloat(1); // Scale
+                out.writeFloat(1);
+                out.writeFloat(regions[i][3]);
+                out.writeFloat(regions[i][4]);
+                out.writeInt(0xFFFFFFFF); // Color
+            }
+            // Other skins, and events
+            writeVarint(out, 0);
+            writeVarint(out, 0);
+            // Animations
+            writeVarint(out, animatedBones.length);
+            for (int a = 0; a < animatedBones.length; a++) {
+                writeString(out, "anim" + a);
+                writeVarint(out, 0); // Slot timelines
+                writeVarint(out, animatedBones[a].length);
+                for (int b = 0; b < animatedBones[a].length; b++) {
+                    writeVarint(out, animatedBones[a][b]);
+                    writeVarint(out, 2);
+                    out.writeByte(SkeletonBinary.BONE_ROTATE);
+                    writeVarint(out, keysPerTimeline);
+                    writeKeys(out, rotateKeys[a][b], 1);
+                    out.writeByte(SkeletonBinary.BONE_TRANSLATE);
+                    writeVarint(out, keysPerTimeline);
+                    writeKeys(out, translateKeys[a][b], 2);
+                }
+                // IK, transform, path, deform, draw order, and event timelines
+                for (int i = 0; i < 6; i++)
+                    writeVarint(out, 0);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private static void writeKeys(DataOutputStream out, float[] keys, int valueCount) throws IOException {
+            int stride = valueCount + 5;
+            for (int k = 0; k < keysPerTimeline; k++) {
+                for (int i = 0; i <= valueCount; i++)
+                    out.writeFloat(keys[k * stride + i]);
+                if (k < keysPerTimeline - 1) {
+                    out.writeByte(SkeletonBinary.CURVE_BEZIER);
+                    for (int i = 0; i < 4; i++)
+                        out.writeFloat(keys[k * stride + valueCount + 1 + i]);
+                }
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length + 1);
+            out.write(bytes);
+        }
+
+        private static void writeVarint(DataOutputStream out, int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+
+    /** The attachment loader which creates the region attachments without looking up an atlas.
+     */
+    private static class StubAttachmentLoader implements AttachmentLoader {
+        @Override
+        public RegionAttachment newRegionAttachment(Skin skin, String name, String path) {
+            return new RegionAttachment(name);
+        }
+
+        @Override
+        public MeshAttachment newMeshAttachment(Skin skin, String name, String path) {
+            return new MeshAttachment(name);
+        }
+
+        @Override
+        public BoundingBoxAttachment newBoundingBoxAttachment(Skin skin, String name) {
+            return new BoundingBoxAttachment(name);
+        }
+
+        @Override
+        public ClippingAttachment newClippingAttachment(Skin skin, String name) {
+            return new ClippingAttachment(name);
+        }
+
+        @Override
+        public PathAttachment newPathAttachment(Skin skin, String name) {
+            return new PathAttachment(name);
+        }
+
+        @Override
+        public PointAttachment newPointAttachment(Skin skin, String name) {
+            return new PointAttachment(name);
+        }
+    }
+
+
+    /** The file handle of a skel file read into the memory, like the one used by {@link ModelLoader}.
+     */
+    private static class MemoryFileHandle extends FileHandle {
+        private final byte[] bytes;
+
+        private MemoryFileHandle(String name, byte[] bytes) {
+            super(name);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream read() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public byte[] readBytes() {
+            return bytes.clone();
+        }
+
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+    }
+}
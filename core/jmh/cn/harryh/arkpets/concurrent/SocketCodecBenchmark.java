@@ -0,0 +1,71 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/** Compares the encoding and the decoding of {@link SocketData} by the legacy {@link SocketCodec#JSON}
+ * and the compact {@link SocketCodec#BINARY}.
+ * <hr>
+ * The requests are the typical ones: an operation without message (e.g. the tray actions),
+ * a login with the name of the pet, and a memory status report.
+ * The setup verifies that both codecs decode the same request as encoded.
+ * The frame length of each codec is printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SocketCodecBenchmark {
+    @Param({"json", "binary"})
+    public String codecName;
+
+    @Param({"operation", "login", "status"})
+    public String request;
+
+    private SocketCodec codec;
+    private SocketData data;
+    private ByteBuffer frame;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ProtocolException {
+        codec = SocketCodec.of(codecName);
+        UUID uuid = new UUID(0x1234_5678_9ABC_DEF0L, 0x0FED_CBA9_8765_4321L);
+        data = switch (request) {
+            case "operation" -> SocketData.ofOperation(uuid, SocketData.Operation.KEEP_ACTION);
+            case "login" -> SocketData.ofLogin(uuid, "Amiya (build_char_002_amiya)");
+            case "status" -> SocketData.ofMemoryStatus(uuid, "heap 52.3MB / 256.0MB, 3 pets");
+            default -> throw new IllegalArgumentException(request);
+        };
+        frame = codec.encode(data);
+        SocketData decoded = codec.decode(frame.duplicate());
+        if (decoded == null || !data.uuid.equals(decoded.uuid) || data.operation != decoded.operation ||
+                (data.msg == null ? decoded.msg != null : !data.getMsgString().equals(decoded.getMsgString())))
+            throw new IllegalStateException("The decoded request differs");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println("Frame of " + request + " by " + codecName + ": " + frame.remaining() + " bytes");
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return codec.encode(data);
+    }
+
+    @Benchmark
+    public SocketData decode() throws ProtocolException {
+        return codec.decode(frame.duplicate());
+    }
+}
@@ -0,0 +1,83 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import cn.harryh.arkpets.platform.HWndCtrl.NumberedTitleManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/** Compares the per-refresh title numbering of {@code ArkPets.refreshWindowIndex} using the cached
+ * {@link NumberedTitleManager#getNumber(HWndCtrl)} with the legacy regex matching of every title.
+ * The windows are reused across the refreshes, as {@link WindowSnapshot} does for the unchanged windows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberedTitleBenchmark {
+    @Param({"200"})
+    public int windowCount;
+
+    @Param({"10"})
+    public int peerCount;
+
+    private static final String coreName = "ArkPets";
+    private static final String[] foreignTitles = {"", "Program Manager", "Settings", "ArkPets Launcher",
+            "README.md - Visual Studio Code", "Task Manager", "Mozilla Firefox", "Windows Input Experience"};
+
+    private HWndCtrl[] windows;
+    private final NumberedTitleManager manager = new NumberedTitleManager(coreName);
+    private final Pattern zeroNamePattern = Pattern.compile("^" + coreName + "$");
+    private final Pattern numberedNamePattern = Pattern.compile("^" + coreName + " \\(([0-9]+)\\)");
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(windowCount);
+        windows = new HWndCtrl[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            String title;
+            if (i % (windowCount / peerCount) == 0)
+                title = i == 0 ? coreName : coreName + " (" + (i / (windowCount / peerCount) + 1) + ")";
+            else
+                title = foreignTitles[random.nextInt(foreignTitles.length)] + (random.nextBoolean() ? "" : " " + i);
+            windows[i] = new NullHWndCtrl(title, new HWndCtrl.WindowRect());
+        }
+        if (legacy() != cached())
+            throw new IllegalStateException("The numbers differ");
+    }
+
+    @Benchmark
+    public long legacy() {
+        long checksum = 0;
+        for (HWndCtrl w : windows)
+            checksum = checksum * 31 + legacyGetNumber(w.windowText);
+        return checksum;
+    }
+
+    @Benchmark
+    public long cached() {
+        long checksum = 0;
+        for (HWndCtrl w : windows)
+            checksum = checksum * 31 + manager.getNumber(w);
+        return checksum;
+    }
+
+    private int legacyGetNumber(String windowText) {
+        if (windowText.isEmpty()) return -1;
+        if (zeroNamePattern.matcher(windowText).find()) return 0;
+        try {
+            Matcher matcher = numberedNamePattern.matcher(windowText);
+            return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+        } catch (NumberFormatException ignored) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/** Compares the barrier indexing of {@code ArkPets.refreshWindowIndex} using {@link VerticalLine}
+ * with the legacy per-pixel map, on a 4K desktop where all the windows share the vertical line of the pet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerticalLineBenchmark {
+    @Param({"10", "100", "500"})
+    public int windowCount;
+
+    private HWndCtrl[] windows;
+    private final VerticalLine line = new VerticalLine();
+
+    private static final int screenWidth = 3840;
+    private static final int screenHeight = 2160;
+    private static final int borderTop = 0;
+    private static final int borderBottom = -screenHeight;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(windowCount);
+        windows = new HWndCtrl[windowCount];
+        for (int i = 0; i < windowCount; i++) {
+            int top = random.nextInt(screenHeight - 100);
+            int bottom = Math.min(screenHeight, top + 100 + random.nextInt(1200));
+            int left = random.nextInt(screenWidth >> 1);
+            windows[i] = new NullHWndCtrl("Window " + i, new HWndCtrl.WindowRect(top, bottom, left, left + (screenWidth >> 1)));
+        }
+        if (legacy() != interval())
+            throw new IllegalStateException("The barrier sets differ");
+    }
+
+    @Benchmark
+    public long legacy() {
+        HashMap<Integer, HWndCtrl> map = new HashMap<>();
+        for (HWndCtrl w : windows) {
+            if (-w.posBottom < borderTop && -w.posTop > borderBottom) {
+                for (int h = -w.posTop; h > -w.posBottom; h--) {
+                    if (!map.containsKey(h))
+                        map.put(h, (h == -w.posTop) ? w : null);
+                }
+            }
+        }
+        long checksum = 0;
+        for (int h = borderTop; h > borderBottom; h--) {
+            if (map.containsKey(h)) {
+                HWndCtrl temp = map.get(h);
+                if (temp != null)
+                    checksum = checksum * 31 + barrier(-temp.posTop, temp);
+            }
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long interval() {
+        line.clear();
+        for (HWndCtrl w : windows) {
+            if (-w.posBottom < borderTop && -w.posTop > borderBottom)
+                line.offer(w);
+        }
+        long checksum = 0;
+        for (HWndCtrl temp : line.getExposed()) {
+            int h = -temp.posTop;
+            if (h > borderTop)
+                continue;
+            if (h <= borderBottom)
+                break;
+            checksum = checksum * 31 + barrier(h, temp);
+        }
+        return checksum;
+    }
+
+    private static long barrier(int h, HWndCtrl w) {
+        return ((long)h << 32) ^ ((long)w.posLeft << 16) ^ w.windowWidth;
+    }
+}
@@ -0,0 +1,206 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+
+/** Compares the transition calls of one rendered frame by the primitive transitions with the legacy ones,
+ * which boxed every component and allocated a new vector on every {@code now()}.
+ * <hr>
+ * A frame does what {@code ArkPets.render()} and {@code ArkChar.renderToBatch()} do to the transitions:
+ * resetting the ending values, adding the progress, reading the current values and checking the ends.
+ * When the pet is moving, the ending values change every frame; otherwise the transitions have settled.
+ * The setup verifies that both transitions reach the same values.
+ * The allocated bytes per frame are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionBenchmark {
+    @Param({"moving", "idle"})
+    public String motion;
+
+    private static final float deltaTime = 1 / 60f;
+    private static final float duration = 0.3f;
+    private static final int measuredFrames = 10_000;
+
+    private TransitionVector2 windowPosition;
+    private TransitionVector3 position;
+    private TransitionFloat offsetY;
+    private TransitionFloat alpha;
+    private LegacyVector2 legacyWindowPosition;
+    private LegacyVector3 legacyPosition;
+    private LegacyFloat legacyOffsetY;
+    private LegacyFloat legacyAlpha;
+    private float x;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        windowPosition = new TransitionVector2(EasingFunction.EASE_OUT_CUBIC, duration);
+        position = new TransitionVector3(EasingFunction.EASE_OUT_CUBIC, duration);
+        offsetY = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, duration);
+        alpha = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, duration);
+        legacyWindowPosition = new LegacyVector2();
+        legacyPosition = new LegacyVector3();
+        legacyOffsetY = new LegacyFloat();
+        legacyAlpha = new LegacyFloat();
+        x = 0;
+        for (int i = 0; i < 100; i++)
+            current();
+        x = 0;
+        for (int i = 0; i < 100; i++)
+            legacy();
+        if (Math.abs(windowPosition.now().x - legacyWindowPosition.now().x) > 1e-3f ||
+                Math.abs(position.now().z - legacyPosition.now().z) > 1e-3f ||
+                Math.abs(alpha.now() - legacyAlpha.now()) > 1e-3f)
+            throw new IllegalStateException("The transitions differ");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println();
+        System.out.println("Per frame when " + motion + ":");
+        for (String name : new String[]{"legacy", "current"}) {
+            boolean isLegacy = name.equals("legacy");
+            long allocated = allocatedBytes();
+            for (int i = 0; i < measuredFrames; i++)
+                if (isLegacy) legacy(); else current();
+            allocated = allocatedBytes() - allocated;
+            System.out.printf("  %-8s allocated %.1f bytes%n", name, (double)allocated / measuredFrames);
+        }
+    }
+
+    @Benchmark
+    public float current() {
+        float target = nextTarget();
+        windowPosition.reset(target, 120);
+        windowPosition.addProgress(deltaTime);
+        position.reset(target, 0, target > 0 ? 1 : -1);
+        position.addProgress(deltaTime);
+        offsetY.reset(target > 0 ? 4 : 0);
+        offsetY.addProgress(deltaTime);
+        alpha.reset(1);
+        alpha.addProgress(deltaTime);
+        float sum = position.now().x + position.now().y + offsetY.now() + position.now().z;
+        sum += windowPosition.now().x + windowPosition.now().y + alpha.now();
+        return windowPosition.isEnded() ? sum : -sum;
+    }
+
+    @Benchmark
+    public float legacy() {
+        float target = nextTarget();
+        legacyWindowPosition.reset(new Vector2(target, 120));
+        legacyWindowPosition.addProgress(deltaTime);
+        legacyPosition.reset(new Vector3(target, 0, target > 0 ? 1 : -1));
+        legacyPosition.addProgress(deltaTime);
+        legacyOffsetY.reset(target > 0 ? 4f : 0f);
+        legacyOffsetY.addProgress(deltaTime);
+        legacyAlpha.reset(1f);
+        legacyAlpha.addProgress(deltaTime);
+        float sum = legacyPosition.now().x + legacyPosition.now().y + legacyOffsetY.now() + legacyPosition.now().z;
+        sum += legacyWindowPosition.now().x + legacyWindowPosition.now().y + legacyAlpha.now();
+        return legacyWindowPosition.isEnded() ? sum : -sum;
+    }
+
+    private float nextTarget() {
+        if (motion.equals("moving"))
+            x = x > 1000 ? -1000 : x + 1.5f;
+        else
+            x = 200;
+        return x;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+
+    /** The legacy transition before ArkPets 3.3, which is generic over the boxed values.
+     */
+    private abstract static class Legacy<E> {
+        protected static final TernaryFunction function = (b, e, p) -> b + (1 - (float)Math.pow(1 - p, 3)) * (e - b);
+        protected E start;
+        protected E end;
+        protected float currentProgress;
+
+        abstract E atProgress(float progress);
+
+        final E now() {
+            return atProgress(currentProgress);
+        }
+
+        final boolean isEnded() {
+            return now().equals(end);
+        }
+
+        final void addProgress(float progress) {
+            currentProgress = Math.max(0, Math.min(duration, currentProgress + progress));
+        }
+
+        final void reset(E end) {
+            if (this.end.equals(end))
+                return;
+            this.start = now();
+            this.end = end;
+            currentProgress = 0;
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface TernaryFunction {
+        Float apply(Float a, Float b, Float c);
+    }
+
+
+    private static class LegacyFloat extends Legacy<Float> {
+        LegacyFloat() {
+            start = 0f;
+            end = 0f;
+        }
+
+        @Override
+        Float atProgress(float progress) {
+            return function.apply(start, end, currentProgress / duration);
+        }
+    }
+
+
+    private static class LegacyVector2 extends Legacy<Vector2> {
+        LegacyVector2() {
+            start = new Vector2();
+            end = new Vector2();
+        }
+
+        @Override
+        Vector2 atProgress(float progress) {
+            float ratio = currentProgress / duration;
+            return new Vector2(function.apply(start.x, end.x, ratio), function.apply(start.y, end.y, ratio));
+        }
+    }
+
+
+    private static class LegacyVector3 extends Legacy<Vector3> {
+        LegacyVector3() {
+            start = new Vector3();
+            end = new Vector3();
+        }
+
+        @Override
+        Vector3 atProgress(float progress) {
+            float ratio = currentProgress / duration;
+            return new Vector3(function.apply(start.x, end.x, ratio), function.apply(start.y, end.y, ratio),
+                    function.apply(start.z, end.z, ratio));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.FrameProfiler.Phase;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static cn.harryh.arkpets.Const.profilerSamples;
+
+
+/** Measures the overhead of {@link FrameProfiler} on a frame of the render loop, which records a span of every phase.
+ * <hr>
+ * The baseline only reads the timestamps which a frame reads, so the difference is the cost of the recording.
+ * The report is what the debug message costs, which is only computed on demand.
+ * The setup verifies that the spans of every phase are found in the report.
+ * The allocated bytes per frame are printed when the trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameProfilerBenchmark {
+    private static final Phase[] phases = Phase.values();
+    private static final int measuredFrames = 100_000;
+
+    private FrameProfiler profiler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        profiler = new FrameProfiler(profilerSamples);
+        for (int i = 0; i < profilerSamples; i++)
+            frame();
+        String msg = profiler.getDebugMsg();
+        if (!msg.startsWith("FrameProfiler " + profilerSamples + " frames") || msg.lines().count() != phases.length + 2)
+            throw new IllegalStateException("The spans weren't recorded");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long allocated = allocatedBytes();
+        for (int i = 0; i < measuredFrames; i++)
+            frame();
+        allocated = allocatedBytes() - allocated;
+        System.out.println();
+        System.out.printf("Per frame of %d phases: allocated %.1f bytes%n", phases.length, (double)allocated / measuredFrames);
+    }
+
+    @Benchmark
+    public long baseline() {
+        long sum = 0;
+        for (Phase ignored : phases)
+            sum += System.nanoTime() - System.nanoTime();
+        return sum;
+    }
+
+    @Benchmark
+    public FrameProfiler frame() {
+        for (Phase phase : phases)
+            profiler.end(phase, profiler.begin());
+        return profiler;
+    }
+
+    @Benchmark
+    public String report() {
+        return profiler.getDebugMsg();
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,278 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.Plane.RectArea;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/** Compares the physics step of {@link Plane} with the legacy implementation which rescans the borders
+ * several times per step and stores the barriers in an {@code ArrayList<Vector3>}.
+ * Each operation runs a thrown object through the given count of steps on a 4K desktop with the given count of barriers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaneBenchmark {
+    @Param({"500"})
+    public int barrierCount;
+
+    @Param({"10000"})
+    public int stepCount;
+
+    private static final int screenWidth = 3840;
+    private static final int screenHeight = 2160;
+    private static final int pointChargeCount = 10;
+    private static final int throwInterval = 600;
+    private static final float deltaTime = 1 / 60f;
+
+    private float[] barriers;
+    private float[] pointCharges;
+    private Plane plane;
+    private LegacyPlane legacyPlane;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        SplittableRandom random = new SplittableRandom(barrierCount);
+        barriers = new float[barrierCount * 3];
+        for (int i = 0; i < barriers.length; i += 3) {
+            barriers[i] = random.nextInt(screenWidth);
+            barriers[i + 1] = random.nextInt(screenHeight);
+            barriers[i + 2] = 100 + random.nextInt(1400);
+        }
+        pointCharges = new float[pointChargeCount * 3];
+        for (int i = 0; i < pointCharges.length; i += 3) {
+            pointCharges[i] = random.nextInt(screenWidth);
+            pointCharges[i + 1] = random.nextInt(screenHeight);
+            pointCharges[i + 2] = 1;
+        }
+        setUpInvocation();
+        long expected = legacy();
+        setUpInvocation();
+        if (expected != current())
+            throw new IllegalStateException("The trajectories differ");
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        plane = new Plane();
+        legacyPlane = new LegacyPlane();
+        plane.world.add(new RectArea(0, screenWidth, screenHeight, 0));
+        legacyPlane.world.add(new RectArea(0, screenWidth, screenHeight, 0));
+        for (int i = 0; i < barriers.length; i += 3) {
+            plane.setBarrier(barriers[i + 1], barriers[i], barriers[i + 2], false);
+            legacyPlane.setBarrier(barriers[i + 1], barriers[i], barriers[i + 2], false);
+        }
+        for (int i = 0; i < pointCharges.length; i += 3) {
+            plane.setPointCharge(pointCharges[i + 1], pointCharges[i], pointCharges[i + 2]);
+            legacyPlane.setPointCharge(pointCharges[i + 1], pointCharges[i], pointCharges[i + 2]);
+        }
+    }
+
+    @Benchmark
+    public long current() {
+        plane.setObjSize(200, 200);
+        plane.setGravity(1000);
+        plane.setResilience(0.5f);
+        plane.setFrict(100, 500);
+        plane.setSpeedLimit(2000, 2000);
+        plane.changePosition(0, screenWidth >> 1, screenHeight);
+        long checksum = 0;
+        for (int i = 0; i < stepCount; i++) {
+            if (i % throwInterval == 0)
+                plane.changePosition(deltaTime, plane.getX() + (i % 1200 == 0 ? 20 : -20), plane.getY() + 15);
+            plane.updatePosition(deltaTime);
+            checksum = checksum * 31 + Float.floatToIntBits(plane.getX()) * 17L + Float.floatToIntBits(plane.getY());
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public long legacy() {
+        legacyPlane.setObjSize(200, 200);
+        legacyPlane.setGravity(1000);
+        legacyPlane.setResilience(0.5f);
+        legacyPlane.setFrict(100, 500);
+        legacyPlane.setSpeedLimit(2000, 2000);
+        legacyPlane.changePosition(0, screenWidth >> 1, screenHeight);
+        long checksum = 0;
+        for (int i = 0; i < stepCount; i++) {
+            if (i % throwInterval == 0)
+                legacyPlane.changePosition(deltaTime, legacyPlane.getX() + (i % 1200 == 0 ? 20 : -20), legacyPlane.getY() + 15);
+            legacyPlane.updatePosition(deltaTime);
+            checksum = checksum * 31 + Float.floatToIntBits(legacyPlane.getX()) * 17L + Float.floatToIntBits(legacyPlane.getY());
+        }
+        return checksum;
+    }
+
+
+    /** The legacy physics step of {@link Plane}, reduced to the members used by the benchmark.
+     */
+    private static class LegacyPlane {
+        public final ArrayList<Vector3> barriers = new ArrayList<>();
+        public final ArrayList<Vector3> pointCharges = new ArrayList<>();
+        public final ArrayList<RectArea> world = new ArrayList<>();
+        private final Vector2 obj = new Vector2(0, 0);
+        private final Vector2 position = new Vector2(0, 0);
+        private final Vector2 speed = new Vector2(0, 0);
+        private final Vector2 speedLimit = new Vector2(0, 0);
+        private float gravity;
+        private float resilience;
+        private float airFrict;
+        private float staticFrict;
+
+        public void setGravity(float gravity) {
+            this.gravity = gravity;
+        }
+
+        public void setResilience(float resilience) {
+            this.resilience = resilience > 1 ? 1 : (resilience < 0 ? 0 : resilience);
+        }
+
+        public void setFrict(float airFrict, float staticFrict) {
+            this.airFrict    = Math.max(0, airFrict);
+            this.staticFrict = Math.max(0, staticFrict);
+        }
+
+        public void setObjSize(float objWidth, float objHeight) {
+            obj.set(objWidth, objHeight);
+        }
+
+        public void setSpeedLimit(float x, float y) {
+            speedLimit.set(Math.max(0, x), Math.max(0, y));
+        }
+
+        public void changePosition(float deltaTime, float x, float y) {
+            if (deltaTime > 0)
+                speed.set((x - position.x) / deltaTime, (y - position.y) / deltaTime);
+            position.set(x, y);
+            position.set(limitX(x), limitY(y));
+        }
+
+        public void updatePosition(float deltaTime) {
+            updateVelocity(deltaTime);
+            float deltaX = speed.x * deltaTime;
+            float deltaY = speed.y * deltaTime;
+            final float bottom = borderBottom();
+            if (position.y != bottom && limitY(deltaY + position.y) == bottom)
+                speed.y = 0;
+            position.set(limitX(deltaX + position.x), limitY(deltaY + position.y));
+        }
+
+        public void setBarrier(float posTop, float posLeft, float width, boolean overCover) {
+            if (overCover)
+                barriers.add(0, new Vector3(posLeft, posTop, width));
+            else
+                barriers.add(new Vector3(posLeft, posTop, width));
+        }
+
+        public void setPointCharge(float posTop, float posLeft, float quantityProduct) {
+            pointCharges.add(new Vector3(posLeft, posTop, quantityProduct));
+        }
+
+        public float getX() {
+            return position.x;
+        }
+
+        public float getY() {
+            return position.y;
+        }
+
+        private void updateVelocity(float deltaTime) {
+            final float top = borderTop();
+            final float bottom = borderBottom();
+            speed.y -= gravity * deltaTime;
+            if (position.y == bottom || (position.y + obj.y >= top && speed.y > 0))
+                speed.y = 0;
+            for (Vector3 pc : pointCharges) {
+                float dx = position.x + obj.x / 2f - pc.x;
+                float dy = position.y + obj.y / 2f - pc.y;
+                float hypot = (float)Math.hypot(dx, dy);
+                speed.x = applyElectrostaticEffect(speed.x, pc.z,  hypot, dx / hypot, deltaTime);
+                speed.y = applyElectrostaticEffect(speed.y, pc.z, hypot, dy / hypot , deltaTime);
+            }
+            if (position.y == bottom)
+                speed.x = applyFriction(speed.x, staticFrict, deltaTime);
+            speed.x = applyFriction(speed.x, airFrict, deltaTime);
+            speed.y = applyFriction(speed.y, airFrict, deltaTime);
+            if (speedLimit.x != 0 && Math.abs(speed.x) > speedLimit.x)
+                speed.x = Math.signum(speed.x) * speedLimit.x;
+            if (speedLimit.y != 0 && Math.abs(speed.y) > speedLimit.y)
+                speed.y = Math.signum(speed.y) * speedLimit.y;
+            if (resilience != 0 && (position.x == borderLeft() || position.x == borderRight()))
+                speed.x = (float)(Math.sqrt(speed.x * speed.x * resilience) * Math.signum(-speed.x));
+        }
+
+        private float applyFriction(float speed, float frict, float deltaTime) {
+            float delta = Math.signum(speed) * frict * deltaTime;
+            float estimated = speed - delta;
+            return delta * estimated < 0 ? 0 : estimated;
+        }
+
+        private float applyElectrostaticEffect(float speed, float quantityProduct, float distance, float cosine, float deltaTime){
+            final float k   = 2000 * (float)Math.hypot(obj.x, obj.y);
+            final float dm  = 20;
+            distance = Math.max(Math.abs(distance), dm);
+            float delta = k * quantityProduct / distance / distance * cosine * deltaTime;
+            return speed + delta;
+        }
+
+        private float limitX(float x) {
+            return Math.max(borderLeft(), Math.min(x, borderRight() - obj.x));
+        }
+
+        private float limitY(float y) {
+            return Math.max(borderBottom(), Math.min(y, borderTop() - obj.y));
+        }
+
+        public float borderTop() {
+            float t = -Float.MAX_VALUE;
+            for (RectArea a : world)
+                if (a.isXInOrthographic(position.x, obj.x))
+                    if (a.top() > t)
+                        t = a.top();
+            return t;
+        }
+
+        public float borderBottom() {
+            for (Vector3 i : barriers)
+                if (i.x <= position.x + obj.x && position.x <= i.x + i.z)
+                    if (position.y + obj.y > i.y && borderTop() - obj.y > i.y)
+                        return i.y;
+            float t = Float.MAX_VALUE;
+            for (RectArea a : world)
+                if (a.isXInOrthographic(position.x, obj.x))
+                    if (a.bottom() < t)
+                        t = a.bottom();
+            return t;
+        }
+
+        public float borderRight() {
+            float t = -Float.MAX_VALUE;
+            for (RectArea a : world)
+                if (a.isYInOrthographic(position.y, obj.y))
+                    if (a.right() > t)
+                        t = a.right();
+            return t;
+        }
+
+        public float borderLeft() {
+            float t = Float.MAX_VALUE;
+            for (RectArea a : world)
+                if (a.isYInOrthographic(position.y, obj.y))
+                    if (a.left() < t)
+                        t = a.left();
+            return t;
+        }
+    }
+}
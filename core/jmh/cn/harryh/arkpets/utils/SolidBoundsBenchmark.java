@@ -0,0 +1,147 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.Insert;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static cn.harryh.arkpets.utils.DynamicOrthographicCamara.alphaThreshold;
+import static cn.harryh.arkpets.utils.DynamicOrthographicCamara.stepLength;
+
+
+/** Compares the canvas fitting of {@link DynamicOrthographicCamara} which scans the snapshot through
+ * {@link DynamicOrthographicCamara#getSolidBounds(Pixmap)}, with the legacy four nested loops of {@link Pixmap#getPixel(int, int)}.
+ * The snapshot is a 1080x1080 one (the max canvas size), where the sparse one contains a small model,
+ * and the dense one contains a model covering most of the canvas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolidBoundsBenchmark {
+    @Param({"sparse", "dense"})
+    public String snapshot;
+
+    private static final int size = 1080;
+
+    private Pixmap pixmap;
+    private DynamicOrthographicCamara camera;
+
+    @Setup
+    public void setUp() {
+        GdxNativesLoader.load();
+        pixmap = new Pixmap(size, size, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        SplittableRandom random = new SplittableRandom(size);
+        if (snapshot.equals("sparse"))
+            drawModel(pixmap, 500, 700, 60, 90, random);
+        else
+            drawModel(pixmap, 540, 560, 480, 500, random);
+        camera = new DynamicOrthographicCamara(size, size, 20);
+        if (!legacy().equals(current()))
+            throw new IllegalStateException("The inserts differ");
+    }
+
+    @TearDown
+    public void tearDown() {
+        pixmap.dispose();
+    }
+
+    @Benchmark
+    public Insert current() {
+        return camera.getFittedInsert(pixmap, false, true);
+    }
+
+    @Benchmark
+    public Insert legacy() {
+        return legacyFittedInsert(camera, pixmap, false, true);
+    }
+
+    /** Draws an ellipse-shaped model with translucent edges and some translucent noise around it.
+     */
+    private static void drawModel(Pixmap pixmap, int cx, int cy, int rx, int ry, SplittableRandom random) {
+        for (int y = cy - ry * 2; y < cy + ry * 2; y++)
+            for (int x = cx - rx * 2; x < cx + rx * 2; x++) {
+                float d = ((x - cx) * (float)(x - cx)) / (rx * rx) + ((y - cy) * (float)(y - cy)) / (ry * ry);
+                int a = d <= 1 ? 255 : d <= 1.3f ? 128 : random.nextInt(100) == 0 ? random.nextInt(alphaThreshold) : 0;
+                pixmap.drawPixel(x, y, 0xFFFFFF00 | a);
+            }
+    }
+
+    /** The legacy {@code getFittedInsert}.
+     */
+    @SuppressWarnings("AssignmentToForLoopParameter")
+    private static Insert legacyFittedInsert(DynamicOrthographicCamara camera, Pixmap pixmap, boolean flippedX, boolean flippedY) {
+        final Insert insert = camera.getInsert().clone();
+        final int edgeWidth = pixmap.getWidth() - 1;
+        final int edgeHeight = pixmap.getHeight() - 1;
+        final int extendedX = camera.paddingLength;
+        final int extendedY = camera.paddingLength;
+        final int reservedX = camera.paddingLength;
+        final int reservedY = camera.paddingLength;
+
+        if (flippedX)
+            insert.swapHorizontal();
+        if (flippedY)
+            insert.swapVertical();
+
+        // TOP
+        for (int y = 0; y <= edgeHeight; y += stepLength)
+            for (int x = 0; x <= edgeWidth; x += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (y == 0)
+                        insert.top += extendedY;
+                    else
+                        insert.top -= y - reservedY;
+                    x = Integer.MAX_VALUE - stepLength;
+                    y = Integer.MAX_VALUE - stepLength;
+                }
+        // BOTTOM
+        for (int y = edgeHeight; y >= 0; y -= stepLength)
+            for (int x = 0; x <= edgeWidth; x += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (y == edgeHeight)
+                        insert.bottom += extendedY;
+                    else
+                        insert.bottom -= edgeHeight - y - reservedY;
+                    x = Integer.MAX_VALUE - stepLength;
+                    y = Integer.MIN_VALUE + stepLength;
+                }
+        // LEFT
+        for (int x = 0; x <= edgeWidth; x += stepLength)
+            for (int y = 0; y <= edgeHeight; y += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (x == 0)
+                        insert.left += extendedX;
+                    else
+                        insert.left -= x - reservedX;
+                    x = Integer.MAX_VALUE - stepLength;
+                    y = Integer.MAX_VALUE - stepLength;
+                }
+        // RIGHT
+        for (int x = edgeWidth; x >= 0; x -= stepLength)
+            for (int y = 0; y <= edgeHeight; y += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (x == edgeWidth)
+                        insert.right += extendedX;
+                    else
+                        insert.right -= edgeWidth - x - reservedX;
+                    x = Integer.MIN_VALUE + stepLength;
+                    y = Integer.MAX_VALUE - stepLength;
+                }
+
+        if (flippedX)
+            insert.swapHorizontal();
+        if (flippedY)
+            insert.swapVertical();
+        return insert;
+    }
+}
@@ -8,17 +8,24 @@ import cn.harryh.arkpets.animations.AnimClip.AnimStage;
 import cn.harryh.arkpets.animations.AnimClipGroup;
 import cn.harryh.arkpets.animations.AnimComposer;
 import cn.harryh.arkpets.animations.AnimData;
+import cn.harryh.arkpets.assets.AssetCache;
 import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
-import cn.harryh.arkpets.transitions.TernaryFunction;
+import cn.harryh.arkpets.assets.ModelCache;
+import cn.harryh.arkpets.assets.ModelLoader;
+import cn.harryh.arkpets.transitions.EasingFunction;
 import cn.harryh.arkpets.transitions.TransitionFloat;
 import cn.harryh.arkpets.transitions.TransitionVector3;
 import cn.harryh.arkpets.utils.DynamicOrthographicCamara;
 import cn.harryh.arkpets.utils.DynamicOrthographicCamara.Insert;
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.SolidBounds;
+import cn.harryh.arkpets.utils.GpuBoundsReducer;
+import cn.harryh.arkpets.utils.HitTestBuffer;
 import cn.harryh.arkpets.utils.Logger;
+import com.alibaba.fastjson.JSONObject;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.*;
 import com.badlogic.gdx.graphics.Pixmap.Format;
-import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.glutils.ShaderProgram;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.ScreenUtils;
@@ -29,7 +36,6 @@ import com.esotericsoftware.spine.utils.TwoColorPolygonBatch;
 import java.util.HashMap;
 
 import static cn.harryh.arkpets.Const.*;
-import static java.io.File.separator;
 
 
 public class ArkChar {
@@ -39,6 +45,7 @@ public class ArkChar {
     private final TwoColorPolygonBatch batch;
     private Texture bgTexture;
     private Color outlineColor;
+    private final Pass2Uniforms pass2Uniforms;
     private final TransitionFloat offsetY;
     private final TransitionFloat outlineWidth;
     private final TransitionFloat alpha;
@@ -47,17 +54,28 @@ public class ArkChar {
     private final ShaderProgram shader2;
     private final Skeleton skeleton;
     private final SkeletonRenderer renderer;
+    private final HitTestBuffer hitTestBuffer;
+    private GpuBoundsReducer boundsReducer;
 
     private final AnimComposer composer;
     private final AnimationState animationState;
     protected final AnimClipGroup animList;
     protected final HashMap<AnimStage, Insert> stageInsertMap;
 
-    /** Initializes an ArkPets character.
+    /** Initializes an ArkPets character, loading the model synchronously.
      * @param config The ArkPets Config instance which contains the asset's information and other essential settings.
      * @param scale The scale of the skeleton.
      */
     public ArkChar(ArkConfig config, float scale) {
+        this(config, scale, loadModel(config, scale));
+    }
+
+    /** Initializes an ArkPets character with a loaded model.
+     * @param config The ArkPets Config instance which contains the asset's information and other essential settings.
+     * @param scale The scale of the skeleton, which should be the same as the one given to the loader.
+     * @param model The model loaded by the loader from {@link #newModelLoader(ArkConfig, float)}.
+     */
+    public ArkChar(ArkConfig config, float scale, ModelLoader.Model model) {
         // 1.Graphics setup
         camera = new DynamicOrthographicCamara(canvasMaxSize, canvasMaxSize, Math.round(canvasReserveLength * scale));
         camera.setMaxInsert(0);
@@ -71,45 +89,26 @@ public class ArkChar {
         ShaderProgram.pedantic = false;
         shader1 = getShader(pass1VShader, pass1FShader);
         shader2 = getShader(pass2VShader, pass2FShader);
+        pass2Uniforms = new Pass2Uniforms(shader2);
         Logger.debug("Shader", "Shader program compiled");
+        hitTestBuffer = new HitTestBuffer();
         // 2.Geometry setup
-        position = new TransitionVector3(TernaryFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
-        offsetY = new TransitionFloat(TernaryFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
-        outlineWidth = new TransitionFloat(TernaryFunction.EASE_OUT_CUBIC, (float)durationFast.toSeconds());
-        alpha = new TransitionFloat(TernaryFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
+        position = new TransitionVector3(EasingFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
+        offsetY = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
+        outlineWidth = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, (float)durationFast.toSeconds());
+        alpha = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
         // 3.Skeleton setup
-        SkeletonData skeletonData;
-        try {
-            String assetLocation = config.character_asset;
-            AssetAccessor assetAccessor = new AssetAccessor(config.character_files);
-            String path2atlas = assetLocation + separator + assetAccessor.getFirstFileOf(".atlas");
-            String path2skel = assetLocation + separator + assetAccessor.getFirstFileOf(".skel");
-            // Load atlas
-            TextureAtlas atlas = new TextureAtlas(Gdx.files.internal(path2atlas));
-            // Load skel (use SkeletonJson instead of SkeletonBinary if the file type is JSON)
-            try {
-                SkeletonBinary binary = new SkeletonBinary(atlas);
-                binary.setScale(scale * skelBaseScale);
-                skeletonData = binary.readSkeletonData(Gdx.files.internal(path2skel));
-            } catch (Exception e) {
-                Logger.warn("Character", "Failed to load skeleton, trying load as json");
-                SkeletonJson json = new SkeletonJson(atlas);
-                json.setScale(scale * skelBaseScale);
-                skeletonData = json.readSkeletonData(Gdx.files.internal(path2skel));
-            }
-        } catch (SerializationException | GdxRuntimeException e) {
-            Logger.error("Character", "The model asset may be inaccessible, details see below.", e);
-            throw new RuntimeException("Launch ArkPets failed, the model asset may be inaccessible.");
-        }
+        SkeletonData skeletonData = model.skeletonData();
         skeleton = new Skeleton(skeletonData);
         skeleton.updateWorldTransform();
         animList = new AnimClipGroup(skeletonData.getAnimations().toArray(Animation.class));
         // 4.Animation mixing
         AnimationStateData asd = new AnimationStateData(skeletonData);
+        // All the pairs of different animations share the default mix duration,
+        // so only the pairs of the same animation (which shouldn't be mixed) need to be overridden
+        asd.setDefaultMix((float)durationNormal.toSeconds());
         for (AnimClip i : animList)
-            for (AnimClip j : animList)
-                if (!i.fullName.equals(j.fullName))
-                    asd.setMix(i.fullName, j.fullName, (float)durationNormal.toSeconds());
+            asd.setMix(i.fullName, i.fullName, 0);
         // 5.Animation state setup
         animationState = new AnimationState(asd);
         animationState.apply(skeleton);
@@ -126,8 +125,26 @@ public class ArkChar {
         setCanvas(ArkConfig.getGdxColorFrom(config.canvas_color));
         outlineColor = ArkConfig.getGdxColorFrom(config.render_outline_color);
         stageInsertMap = new HashMap<>();
+        AssetCache assetCache = model.assetCache();
+        String cacheKey = "canvas:" + scale + ":" + config.canvas_fitting_samples;
+        JSONObject cachedInserts = assetCache == null ? null : assetCache.get(cacheKey);
+        JSONObject fittedInserts = new JSONObject();
+        boolean isCacheMissed = false;
         for (AnimStage stage : animList.clusterByStage().keySet()) {
+            String stageKey = String.valueOf(stage.id());
+            int[] cached = cachedInserts == null ? null : cachedInserts.getObject(stageKey, int[].class);
+            if (cached != null && cached.length == 4) {
+                // Use the cached canvas size
+                stageInsertMap.put(stage, new Insert(cached[0], cached[1], cached[2], cached[3]));
+                Logger.info("Character", stage + " using cached insert {" + stageInsertMap.get(stage) + "}");
+                fittedInserts.put(stageKey, cached);
+                continue;
+            }
             // Figure out the suitable canvas size
+            if (!isCacheMissed) {
+                isCacheMissed = true;
+                boundsReducer = newBoundsReducer();
+            }
             adjustCanvas(animList.findAnimations(stage), config.canvas_fitting_samples);
             if (!camera.isInsertMaxed()) {
                 // Succeeded
@@ -137,21 +154,70 @@ public class ArkChar {
                 stageInsertMap.put(stage, new Insert((canvasReserveLength << 1) - (canvasMaxSize >> 1)));
                 Logger.warn("Character", stage + " using naive camera since the auto fitting has failed");
             }
+            Insert insert = stageInsertMap.get(stage);
+            fittedInserts.put(stageKey, new int[]{insert.top, insert.bottom, insert.left, insert.right});
+        }
+        if (boundsReducer != null) {
+            boundsReducer.dispose();
+            boundsReducer = null;
+        }
+        if (assetCache != null && isCacheMissed) {
+            assetCache.put(cacheKey, fittedInserts);
+            assetCache.save();
         }
         camera.setInsertMaxed();
     }
 
+    /** Creates a loader which loads the model asset specified by the config.
+     * @param config The ArkPets Config instance which contains the asset's information.
+     * @param scale The scale of the skeleton.
+     * @return The Model Loader instance, which hasn't been started.
+     */
+    public static ModelLoader newModelLoader(ArkConfig config, float scale) {
+        return new ModelLoader(config.character_asset, new AssetAccessor(config.character_files), scale * skelBaseScale);
+    }
+
+    /** Acquires a shared loader of the model asset specified by the config from the {@link ModelCache}.
+     * The characters of the same model in the same process will share the loaded model.
+     * @param config The ArkPets Config instance which contains the asset's information.
+     * @param scale The scale of the skeleton.
+     * @return The Model Loader instance, which has been started, and should be released to the cache later.
+     */
+    public static ModelLoader acquireModelLoader(ArkConfig config, float scale) {
+        return ModelCache.getInstance().acquire(config.character_asset, new AssetAccessor(config.character_files), scale * skelBaseScale);
+    }
+
+    /** Releases the graphics resources owned by this character.
+     * Note that the model won't be released, since it may be shared with other characters.
+     */
+    public void dispose() {
+        batch.dispose();
+        shader1.dispose();
+        shader2.dispose();
+        hitTestBuffer.dispose();
+        camera.dispose();
+        if (bgTexture != null)
+            bgTexture.dispose();
+        bgTexture = null;
+    }
+
     /** Sets the canvas with the specified background color.
      * @param bgColor The background color which can include alpha value.
      */
     public void setCanvas(Color bgColor) {
         // Set position (centered)
         position.reset(camera.getWidth() >> 1, 0, 1);
-        // Set background texture
-        Pixmap pixmap = new Pixmap(canvasMaxSize, canvasMaxSize, Format.RGBA8888);
-        pixmap.setColor(bgColor);
-        pixmap.fill();
-        bgTexture = new Texture(pixmap);
+        // Set background texture (a fully transparent background needn't to be drawn)
+        if (bgTexture != null)
+            bgTexture.dispose();
+        bgTexture = null;
+        if (bgColor.a > 0) {
+            Pixmap pixmap = new Pixmap(canvasMaxSize, canvasMaxSize, Format.RGBA8888);
+            pixmap.setColor(bgColor);
+            pixmap.fill();
+            bgTexture = new Texture(pixmap);
+            pixmap.dispose();
+        }
     }
 
     /** Requests to set the current animation of the character.
@@ -183,17 +249,28 @@ public class ArkChar {
         return composer.getPlaying();
     }
 
-    /** Gets the specified pixel's color value.
+    /** Returns true if the character is settled, that is, a looped animation without root motion is playing,
+     * and all the transitions of the character have ended.
+     */
+    public boolean isSettled() {
+        AnimData playing = composer.getPlaying();
+        if (playing == null || playing.isEmpty() || !playing.isLoop() || playing.mobility() != 0)
+            return false;
+        AnimationState.TrackEntry entry = animationState.getCurrent(0);
+        if (entry == null || entry.getMixingFrom() != null)
+            return false;
+        return position.isSettled() && offsetY.isSettled() && outlineWidth.isSettled() && alpha.isSettled();
+    }
+
+    /** Gets the specified pixel's alpha value in the last rendered frame.
+     * It is a plain lookup of the hit-test buffer, which requires no GL synchronization.
      * Note that the image may be flipped along the y-axis.
      * @param x The X-axis coordinate.
      * @param y The Y-axis coordinate.
-     * @return The RGBA8888 value of the specified pixel.
+     * @return The alpha value ranging in [0,255] of the specified pixel.
      */
-    public int getPixel(int x, int y) {
-        Pixmap pixmap = Pixmap.createFromFrameBuffer(x, y, 1, 1);
-        int pixel = pixmap.getPixel(0, 0);
-        pixmap.dispose();
-        return pixel;
+    public int getAlpha(int x, int y) {
+        return hitTestBuffer.getAlpha(x, y);
     }
 
     /** Adjusts the canvas' geometry to fit the given stage.
@@ -233,24 +310,18 @@ public class ArkChar {
         batch.end();
         batch.setShader(null);
         camera.getFBO().end();
-        // Render Pass 2: Render the outline
+        // Render Pass 2: Render the outline and seam the gaps
         Texture passedTexture = camera.getFBO().getColorBufferTexture();
         shader2.bind();
-        shader2.setUniformf("u_outlineColor", outlineColor.r, outlineColor.g, outlineColor.b, outlineColor.a);
-        shader2.setUniformf("u_outlineWidth", outlineWidth.now());
-        shader2.setUniformi("u_textureSize", passedTexture.getWidth(), passedTexture.getHeight());
-        shader2.setUniformf("u_alpha", alpha.now());
+        pass2Uniforms.apply(outlineColor, outlineWidth, alpha, passedTexture);
         batch.setShader(shader2);
         ScreenUtils.clear(0, 0, 0, 0, true);
         batch.begin();
-        batch.draw(bgTexture, 0, 0);
-        batch.draw(passedTexture,
-                0, 0, 0, 0, camera.getWidth(), camera.getHeight(),
-                1, 1, 0,
-                0, 0, passedTexture.getWidth(), passedTexture.getHeight(),
-                false, true);
+        drawPass2(batch, bgTexture, passedTexture, camera.getWidth(), camera.getHeight());
         batch.end();
         batch.setShader(null);
+        // Update the hit-test buffer
+        hitTestBuffer.capture(camera.getWidth(), camera.getHeight());
     }
 
     private ShaderProgram getShader(String path2vertex, String path2fragment) {
@@ -264,6 +335,15 @@ public class ArkChar {
         return shader;
     }
 
+    private static ModelLoader.Model loadModel(ArkConfig config, float scale) {
+        try {
+            return newModelLoader(config, scale).loadNow();
+        } catch (SerializationException | GdxRuntimeException e) {
+            Logger.error("Character", "The model asset may be inaccessible, details see below.", e);
+            throw new RuntimeException("Launch ArkPets failed, the model asset may be inaccessible.");
+        }
+    }
+
     private void adjustCanvas(AnimClipGroup animClips, int fittingSamples) {
         float timePerSample = fittingSamples / (float)fpsDefault;
         // Prepare a Frame Buffer Object
@@ -289,13 +369,40 @@ public class ArkChar {
                 }
             }
         }
-        // Take down the snapshot from the rendered FBO
-        Pixmap snapshot = Pixmap.createFromFrameBuffer(0, 0, camera.getWidth(), camera.getHeight());
-        // PixmapIO.writePNG(new FileHandle("temp/temp.png"), snapshot);
         camera.getFBO().end();
-        // Crop the canvas in order to fit the snapshot
-        camera.cropTo(snapshot, false, true);
-        snapshot.dispose();
+        // Find the bounds of the solid pixels on the GPU side
+        SolidBounds bounds = null;
+        if (boundsReducer != null) {
+            try {
+                bounds = boundsReducer.reduce(camera.getFBO().getColorBufferTexture(), camera.getWidth(), camera.getHeight());
+            } catch (RuntimeException e) {
+                Logger.warn("Character", "GPU canvas fitting failed, fallback to CPU canvas fitting: " + e.getMessage());
+                boundsReducer.dispose();
+                boundsReducer = null;
+            }
+        }
+        if (bounds == null) {
+            // Take down the snapshot from the rendered FBO and scan it on the CPU side
+            camera.getFBO().begin();
+            Pixmap snapshot = Pixmap.createFromFrameBuffer(0, 0, camera.getWidth(), camera.getHeight());
+            // PixmapIO.writePNG(new FileHandle("temp/temp.png"), snapshot);
+            camera.getFBO().end();
+            bounds = DynamicOrthographicCamara.getSolidBounds(snapshot);
+            snapshot.dispose();
+        }
+        // Crop the canvas in order to fit the bounds
+        camera.cropTo(bounds, false, true);
+    }
+
+    private GpuBoundsReducer newBoundsReducer() {
+        try {
+            GpuBoundsReducer reducer = new GpuBoundsReducer();
+            Logger.debug("Character", "Using GPU canvas fitting");
+            return reducer;
+        } catch (RuntimeException e) {
+            Logger.warn("Character", "GPU canvas fitting is unavailable, fallback to CPU canvas fitting: " + e.getMessage());
+            return null;
+        }
     }
 
     private void renderAsSnapshot() {
@@ -310,4 +417,62 @@ public class ArkChar {
         renderer.draw(batch, skeleton);
         batch.end();
     }
+
+
+    /** Draws the quads of the render pass 2, that is, the background (if any)
+     * and the texture rendered in pass 1 which is flipped along the y-axis.
+     * @param batch The batch which has begun.
+     * @param bgTexture The background texture, {@code null} if the background needn't to be drawn.
+     * @param passedTexture The texture rendered in pass 1.
+     * @param width The width of the canvas.
+     * @param height The height of the canvas.
+     */
+    static void drawPass2(Batch batch, Texture bgTexture, Texture passedTexture, int width, int height) {
+        if (bgTexture != null)
+            batch.draw(bgTexture, 0, 0);
+        batch.draw(passedTexture,
+                0, 0, 0, 0, width, height,
+                1, 1, 0,
+                0, 0, passedTexture.getWidth(), passedTexture.getHeight(),
+                false, true);
+    }
+
+
+    /** The uploader of the pass-2 shader uniforms, which skips the uniforms whose values are unchanged.
+     * Once the outline width and the alpha transitions are settled, no uniform will be uploaded.
+     */
+    static class Pass2Uniforms {
+        private final ShaderProgram shader;
+        private Color uploadedOutlineColor;
+        private float uploadedOutlineWidth = Float.NaN;
+        private float uploadedAlpha = Float.NaN;
+        private int uploadedTextureWidth = -1;
+        private int uploadedTextureHeight = -1;
+
+        Pass2Uniforms(ShaderProgram shader) {
+            this.shader = shader;
+        }
+
+        void apply(Color outlineColor, TransitionFloat outlineWidth, TransitionFloat alpha, Texture passedTexture) {
+            if (uploadedOutlineColor != outlineColor) {
+                uploadedOutlineColor = outlineColor;
+                shader.setUniformf("u_outlineColor", outlineColor.r, outlineColor.g, outlineColor.b, outlineColor.a);
+            }
+            float curOutlineWidth = outlineWidth.now();
+            if (curOutlineWidth != uploadedOutlineWidth) {
+                uploadedOutlineWidth = curOutlineWidth;
+                shader.setUniformf("u_outlineWidth", curOutlineWidth);
+            }
+            float curAlpha = alpha.now();
+            if (curAlpha != uploadedAlpha) {
+                uploadedAlpha = curAlpha;
+                shader.setUniformf("u_alpha", curAlpha);
+            }
+            if (passedTexture.getWidth() != uploadedTextureWidth || passedTexture.getHeight() != uploadedTextureHeight) {
+                uploadedTextureWidth = passedTexture.getWidth();
+                uploadedTextureHeight = passedTexture.getHeight();
+                shader.setUniformi("u_textureSize", uploadedTextureWidth, uploadedTextureHeight);
+            }
+        }
+    }
 }
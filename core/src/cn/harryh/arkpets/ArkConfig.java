@@ -16,6 +16,7 @@ import com.badlogic.gdx.graphics.Color;
 import java.io.*;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 import static cn.harryh.arkpets.Const.*;
@@ -37,6 +38,8 @@ public class ArkConfig implements Serializable {
     public boolean      behavior_allow_walk;
     /** @since ArkPets 1.6 */ @JSONField(defaultValue = "true")
     public boolean      behavior_do_peer_repulsion;
+    /** @since ArkPets 3.3 */ @JSONField(defaultValue = "0")
+    public long         behavior_random_seed;
     /** @since ArkPets 3.3 */ @JSONField(defaultValue = "#00000000")
     public String       canvas_color;
     /** @since ArkPets 3.1 */ @JSONField(defaultValue = "16")
@@ -49,6 +52,8 @@ public class ArkConfig implements Serializable {
     public String       character_label;
     /** @since ArkPets 1.0 */ @JSONField(defaultValue = "30")
     public int          display_fps;
+    /** @since ArkPets 3.3 */ @JSONField(defaultValue = "0")
+    public int          display_fps_idle;
     /** @since ArkPets 1.0 */ @JSONField(defaultValue = "0")
     public int          display_margin_bottom;
     /** @since ArkPets 2.1 */ @JSONField(defaultValue = "true")
@@ -65,6 +70,12 @@ public class ArkConfig implements Serializable {
     public float        initial_position_x;
     /** @since ArkPets 3.2 */ @JSONField(defaultValue = "0.2")
     public float        initial_position_y;
+    /** @since ArkPets 3.3 */ @JSONField(defaultValue = "")
+    public String       launcher_jvm_args;
+    /** @since ArkPets 3.3 */ @JSONField(defaultValue = "0")
+    public int          launcher_jvm_profile;
+    /** @since ArkPets 3.3 */ @JSONField(defaultValue = "false")
+    public boolean      launcher_pet_host;
     /** @since ArkPets 3.0 */ @JSONField(defaultValue = "true")
     public boolean      launcher_solid_exit;
     /** @since ArkPets 2.0 */ @JSONField(defaultValue = "INFO")
@@ -83,6 +94,8 @@ public class ArkConfig implements Serializable {
     public float        physic_speed_limit_x;
     /** @since ArkPets 2.2 */ @JSONField(defaultValue = "1000.0")
     public float        physic_speed_limit_y;
+    /** @since ArkPets 3.3 */ @JSONField(defaultValue = "0")
+    public int          physic_step_rate;
     /** @since ArkPets 3.2 */ @JSONField(defaultValue = "true")
     public boolean      window_style_toolwindow;
     /** @since ArkPets 3.2 */ @JSONField(defaultValue = "true")
@@ -103,6 +116,18 @@ public class ArkConfig implements Serializable {
         }
     }
 
+    /** Gets the JVM args to launch the ArkPets core with,
+     * which consist of the args of the JVM profile and the custom args.
+     * @return A list of JVM args.
+     */
+    @JSONField(serialize = false)
+    public List<String> getJvmArgs() {
+        ArrayList<String> args = new ArrayList<>(getJvmProfileFrom(launcher_jvm_profile).args);
+        if (launcher_jvm_args != null && !launcher_jvm_args.isBlank())
+            args.addAll(List.of(launcher_jvm_args.trim().split("\\s+")));
+        return args;
+    }
+
     /** Returns true if the external config file was newly-generated.
      */
     @JSONField(serialize = false)
@@ -172,6 +197,14 @@ public class ArkConfig implements Serializable {
         return RenderOutline.values()[ordinal];
     }
 
+    /** @see JvmProfile
+     */
+    public static JvmProfile getJvmProfileFrom(int ordinal) {
+        if (ordinal < 0 || ordinal >= JvmProfile.values().length)
+            ordinal = 0;
+        return JvmProfile.values()[ordinal];
+    }
+
 
     /** Config options for render outline.
      */
@@ -185,6 +218,34 @@ public class ArkConfig implements Serializable {
     }
 
 
+    /** Config options for the JVM of the ArkPets core.
+     */
+    public enum JvmProfile {
+        /** The JVM's default heap sizing and GC. */
+        DEFAULT(),
+        /** A capped G1 heap, which returns the unused memory periodically and deduplicates the strings. */
+        BALANCED("-Xmx256m",
+                "-XX:+UseG1GC",
+                "-XX:G1PeriodicGCInterval=30000",
+                "-XX:+UseStringDeduplication"),
+        /** A small heap with the Serial GC and the C1 compiler only, for running many pets at once. */
+        LOW_MEMORY("-Xms16m",
+                "-Xmx128m",
+                "-Xss512k",
+                "-XX:+UseSerialGC",
+                "-XX:MinHeapFreeRatio=10",
+                "-XX:MaxHeapFreeRatio=30",
+                "-XX:TieredStopAtLevel=1",
+                "-XX:ReservedCodeCacheSize=32m");
+
+        public final List<String> args;
+
+        JvmProfile(String... args) {
+            this.args = List.of(args);
+        }
+    }
+
+
     /** Only available in Windows OS.
      */
     public static class StartupConfig {
@@ -5,21 +5,30 @@ package cn.harryh.arkpets;
 
 import cn.harryh.arkpets.animations.AnimData;
 import cn.harryh.arkpets.animations.GeneralBehavior;
+import cn.harryh.arkpets.assets.ModelCache;
+import cn.harryh.arkpets.assets.ModelLoader;
 import cn.harryh.arkpets.concurrent.SocketClient;
-import cn.harryh.arkpets.transitions.TernaryFunction;
+import cn.harryh.arkpets.transitions.EasingFunction;
 import cn.harryh.arkpets.transitions.TransitionVector2;
 import cn.harryh.arkpets.tray.MemberTrayImpl;
 import cn.harryh.arkpets.platform.HWndCtrl;
+import cn.harryh.arkpets.platform.VerticalLine;
+import cn.harryh.arkpets.platform.WindowSnapshot;
 import cn.harryh.arkpets.platform.WindowSystem;
+import cn.harryh.arkpets.utils.FrameProfiler;
+import cn.harryh.arkpets.utils.FrameProfiler.Phase;
+import cn.harryh.arkpets.utils.FrameScheduler;
 import cn.harryh.arkpets.utils.Logger;
 import cn.harryh.arkpets.utils.Plane;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Graphics;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Window;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.ScreenUtils;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 
@@ -34,13 +43,38 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	public MemberTrayImpl tray;
 	public GeneralBehavior behavior;
 	public TransitionVector2 windowPosition; // Window Position Easing
+	public FrameScheduler frameScheduler;
+	public final FrameProfiler frameProfiler = new FrameProfiler(profilerSamples);
+	private ModelLoader loader;
+	private final ModelLoader.Listener loaderListener = new ModelLoader.Listener() {
+		@Override
+		public void onProgress(ModelLoader.Stage stage, float progress) {
+			Logger.debug("App", "Loading model " + stage + " " + Math.round(progress * 100) + "%");
+		}
+
+		@Override
+		public void onReady(ModelLoader.Model model) {
+			// The loader may be shared with the other windows, and notified in their GL contexts,
+			// so the setup is done in the render loop of this window instead
+		}
+
+		@Override
+		public void onFailed(Throwable cause) {
+			// Likewise, the failure is handled in the render loop of this window
+		}
+	};
+	private Lwjgl3Window window;
 
 	private HWndCtrl hWndMine;
 	private HWndCtrl hWndTopmost;
 	private LoopCtrl getHWndLoopCtrl;
 	private List<? extends HWndCtrl> hWndList;
+	private WindowSnapshot<?> hWndSnapshot;
+	private final VerticalLine line = new VerticalLine();
+	private final WindowIndexKey windowIndexKey = new WindowIndexKey();
 
 	private final String APP_TITLE;
+	private final long randomSeed;
 	private final MouseStatus mouseStatus = new MouseStatus();
 	private int offsetY = 0;
 	private boolean isFocused = false;
@@ -48,7 +82,17 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	private boolean isAlwaysTransparent = false;
 
 	public ArkPets(String title) {
+		this(title, 0);
+	}
+
+	/** @param title The title of the window.
+	 * @param randomSeed The seed of the behavior of the pet, the same seed leads to the same behavior trace,
+	 *                   {@code 0} indicates using the seed in the config ({@code 0} also indicates an unseeded one).
+	 * @since ArkPets 3.3
+	 */
+	public ArkPets(String title, long randomSeed) {
 		APP_TITLE = title;
+		this.randomSeed = randomSeed;
 	}
 
 	@Override
@@ -58,47 +102,66 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		Logger.info("App", "Create with title \"" + APP_TITLE + "\"");
 		config = Objects.requireNonNull(ArkConfig.getConfig(), "ArkConfig returns a null instance, please check the config file.");
 		Gdx.input.setInputProcessor(this);
+		if (Gdx.graphics instanceof Lwjgl3Graphics)
+			window = ((Lwjgl3Graphics)Gdx.graphics).getWindow();
 		Gdx.graphics.setForegroundFPS(config.display_fps);
+		frameScheduler = new FrameScheduler(config.display_fps, config.display_fps_idle, (float)durationIdle.toSeconds());
 		Logger.debug("App", "OpenGL version is " + Gdx.gl.glGetString(GL20.GL_VERSION));
 		Logger.debug("App", "OpenGL vendor is " + Gdx.gl.glGetString(GL20.GL_VENDOR));
 
-		// 2.Character setup
+		// 2.Model loading (the setup will be continued when the model is ready)
 		Logger.info("App", "Using model asset \"" + config.character_asset + "\"");
-		cha = new ArkChar(config, config.display_scale);
-		behavior = new GeneralBehavior(config, cha.animList);
+		loader = ArkChar.acquireModelLoader(config, config.display_scale);
+		loader.addListener(loaderListener);
+	}
+
+	private void setup(ModelLoader.Model model) {
+		// 1.Character setup
+		long start = System.nanoTime();
+		cha = new ArkChar(config, config.display_scale, model);
+		long seed = randomSeed != 0 ? randomSeed : config.behavior_random_seed;
+		if (seed != 0) {
+			behavior = new GeneralBehavior(config, cha.animList, seed);
+			Logger.info("Animation", "Behavior is seeded with " + seed);
+		} else {
+			behavior = new GeneralBehavior(config, cha.animList);
+		}
 		cha.adjustCanvas(behavior.defaultAnim().animClip().stage);
 		cha.setAnimation(behavior.defaultAnim());
 		cha.setAlpha(config.opacity_normal);
 		Logger.info("Animation", "Available animation stages " + behavior.getStages());
+		Logger.debug("App", "Character setup took " + (System.nanoTime() - start) / 1_000_000 + "ms");
 
-		// 3.Plane setup
+		// 2.Plane setup
 		plane = new Plane();
 		plane.setGravity(config.physic_gravity_acc);
 		plane.setResilience(0);
 		plane.setFrict(config.physic_air_friction_acc, config.physic_static_friction_acc);
 		plane.setObjSize(cha.camera.getWidth(), cha.camera.getHeight());
 		plane.setSpeedLimit(config.physic_speed_limit_x, config.physic_speed_limit_y);
+		plane.setFixedStepRate(config.physic_step_rate);
 		ArkConfig.Monitor primaryMonitor = refreshMonitorInfo();
 		plane.changePosition(0,
 				primaryMonitor.size[0] * config.initial_position_x - cha.camera.getWidth() / 2f,
 				-(primaryMonitor.size[1] * config.initial_position_y + cha.camera.getHeight())
 		);
 
-		// 4.Window position setup
+		// 3.Window position setup
 		getHWndLoopCtrl = new LoopCtrl(1f / config.display_fps * 4);
-		windowPosition = new TransitionVector2(TernaryFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
+		windowPosition = new TransitionVector2(EasingFunction.EASE_OUT_CUBIC, (float)durationNormal.toSeconds());
 		windowPosition.reset(plane.getX(), - (cha.camera.getHeight() + plane.getY()) + offsetY);
 		windowPosition.setToEnd();
 		setWindowPos();
 
-		// 5.Window style setup
+		// 4.Window style setup
 		hWndMine = WindowSystem.findWindow(null, APP_TITLE);
+		hWndSnapshot = WindowSystem.newWindowSnapshot();
 		hWndMine.setLayered(true);
 		if(config.window_style_topmost)
 			hWndMine.setTopmost(true);
 		promiseToolwindowStyle(1000);
 
-		// 6.Tray icon setup
+		// 5.Tray icon setup
 		tray = new MemberTrayImpl(this, new SocketClient());
 
 		// Setup complete
@@ -107,22 +170,40 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 
 	@Override
 	public void render() {
+		if (cha == null) {
+			// 0.Wait for the model loading.
+			ScreenUtils.clear(0, 0, 0, 0, true);
+			loader.update();
+			if (loader.getStage() == ModelLoader.Stage.READY)
+				setup(loader.getModel());
+			else if (loader.getStage() == ModelLoader.Stage.FAILED)
+				throw new RuntimeException("Launch ArkPets failed, the model asset may be inaccessible.", loader.getFailure());
+			return;
+		}
+
+		long frameBegin = frameProfiler.begin();
+
 		// 1.Render the next frame.
+		long phaseBegin = frameProfiler.begin();
 		cha.renderToBatch();
+		frameProfiler.end(Phase.RENDER, phaseBegin);
 
 		// 2.Select a new animation.
+		phaseBegin = frameProfiler.begin();
 		AnimData newAnim = behavior.autoCtrl(Gdx.graphics.getDeltaTime()); // AI anim.
+		frameProfiler.end(Phase.BEHAVIOR, phaseBegin);
 		if (!mouseStatus.dragging) { // If no dragging:
-			plane.updatePosition(Gdx.graphics.getDeltaTime());
+			phaseBegin = frameProfiler.begin();
+			plane.update(Gdx.graphics.getDeltaTime());
 			if (cha.getPlaying().mobility() != 0) {
 				if (willReachBorder(cha.getPlaying().mobility())) {
 					// Turn around if auto-walk cause the collision from screen border.
-					newAnim = cha.getPlaying();
-					newAnim = new AnimData(newAnim.animClip(), null, newAnim.isLoop(), newAnim.isStrict(), newAnim.offsetY(), -newAnim.mobility());
+					newAnim = cha.getPlaying().turnAround();
 					tray.keepAnim = tray.keepAnim == null ? null : newAnim;
 				}
 				walkWindow(0.85f * cha.getPlaying().mobility());
 			}
+			frameProfiler.end(Phase.PLANE, phaseBegin);
 		} else { // If dragging:
 			newAnim = behavior.dragging();
 		}
@@ -133,13 +214,17 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		} else if (tray.keepAnim != null) { // If keep-anim is enabled.
 			newAnim = tray.keepAnim;
 		}
+		phaseBegin = frameProfiler.begin();
 		changeAnimation(newAnim); // Apply the new anim.
+		frameProfiler.end(Phase.ANIMATION, phaseBegin);
 
 		// 3.Window properties.
-		windowPosition.reset(plane.getX(), - (cha.camera.getHeight() + plane.getY()) + offsetY);
+		phaseBegin = frameProfiler.begin();
+		windowPosition.reset(plane.getInterpolatedX(), - (cha.camera.getHeight() + plane.getInterpolatedY()) + offsetY);
 		windowPosition.addProgress(Gdx.graphics.getDeltaTime());
 		setWindowPos();
 		promiseToolwindowStyle(1);
+		frameProfiler.end(Phase.WINDOW, phaseBegin);
 
 		// 4.Outline.
 		ArkConfig.RenderOutline renderOutline = ArkConfig.getRenderOutlineFrom(config.render_outline);
@@ -148,6 +233,12 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 				isFocused && renderOutline == ArkConfig.RenderOutline.FOCUSED ||
 				mouseStatus.dragging && renderOutline == ArkConfig.RenderOutline.DRAGGING
 				? config.render_outline_width : 0f);
+
+		// 5.Frame rate.
+		applyFrameRate(frameScheduler.update(Gdx.graphics.getDeltaTime(),
+				!mouseStatus.dragging && !mouseStatus.mouseDown && !plane.getDropping() &&
+				cha.isSettled() && windowPosition.isEnded()));
+		frameProfiler.end(Phase.FRAME, frameBegin);
 	}
 
 	@Override
@@ -158,6 +249,14 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	@Override
 	public void dispose() {
 		Logger.info("App", "Dispose");
+		if (cha != null)
+			cha.dispose();
+		if (loader != null) {
+			loader.removeListener(loaderListener);
+			ModelCache.getInstance().release(loader);
+		}
+		loader = null;
+		coreTitleManager.releaseTitle(APP_TITLE);
 	}
 
 	/* INTERFACES */
@@ -175,20 +274,43 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 		}
 	}
 
+	/** Closes the window of this app.
+	 * If the app is hosted with other apps in multi-window mode, the other ones won't be affected.
+	 * Note that this method can be called from any thread.
+	 */
+	public void exit() {
+		if (window != null)
+			window.closeWindow();
+		else
+			Gdx.app.exit();
+	}
+
 	public void setTransparentMode(boolean enable) {
 		isAlwaysTransparent = enable;
 		cha.setAlpha(enable ? config.opacity_dim : config.opacity_normal);
 	}
 
 	private void changeAnimation(AnimData animData) {
-		if (cha.setAnimation(animData))
+		if (cha.setAnimation(animData)) {
 			offsetY = (int)(animData.offsetY() * config.display_scale);
+			applyFrameRate(frameScheduler.wake());
+		}
+	}
+
+	private void applyFrameRate(boolean changed) {
+		if (changed) {
+			Gdx.graphics.setForegroundFPS(frameScheduler.getFps());
+			Logger.debug("App", "Frame rate scheduled to " + frameScheduler.getFps());
+		}
 	}
 
 	/* INPUT PROCESS */
 	@Override
 	public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+		if (cha == null)
+			return false;
 		Logger.debug("Input", "Click+ Btn " + button +" @ " + screenX + ", " + screenY);
+		applyFrameRate(frameScheduler.wake());
 		if (pointer <= 0) {
 			mouseStatus.mouseDown = true;
 			mouseStatus.updatePosition(screenX, screenY, button);
@@ -218,7 +340,10 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 
 	@Override
 	public boolean touchDragged(int screenX, int screenY, int pointer) {
+		if (cha == null)
+			return false;
 		//Logger.debug("Input", "Dragged to " + screenX + ", " + screenY);
+		applyFrameRate(frameScheduler.wake());
 		if (pointer <= 0) {
 			if (mouseStatus.button != Input.Buttons.RIGHT && isMouseAtSolidPixel()) {
 				mouseStatus.dragging = true;
@@ -237,7 +362,10 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 
 	@Override
 	public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+		if (cha == null)
+			return false;
 		Logger.debug("Input", "Click- Btn " + button +" @ " + screenX + ", " + screenY);
+		applyFrameRate(frameScheduler.wake());
 		if (pointer <= 0) {
 			mouseStatus.mouseDown = false;
 			mouseStatus.updatePosition(screenX, screenY, button);
@@ -284,13 +412,20 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 
 	@Override
 	public boolean keyTyped(char character) {
+		if (cha == null)
+			return false;
 		Logger.debug("Plane Debug Msg", plane.getDebugMsg());
 		Logger.debug("Status Msg", "FPS" + Gdx.graphics.getFramesPerSecond() + ", Heap" + (int) Math.ceil((Gdx.app.getJavaHeap() >> 10) / 1024f) + "MB");
+		Logger.debug("Frame Msg", frameScheduler.getDebugMsg());
+		Logger.debug("Profile Msg", frameProfiler.getDebugMsg());
 		return false;
 	}
 
 	@Override
 	public boolean mouseMoved(int screenX, int screenY) {
+		if (cha == null)
+			return false;
+		applyFrameRate(frameScheduler.wake());
 		mouseStatus.updatePosition(screenX, screenY);
 		if (!isMouseAtSolidPixel()) {
 			// Transfer mouse event
@@ -307,19 +442,23 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	}
 
 	private boolean isMouseAtSolidPixel() {
-		int pixel = cha.getPixel(mouseStatus.x, cha.camera.getHeight() - mouseStatus.y - 1);
-		return (pixel & 0x000000FF) > 0;
+		long phaseBegin = frameProfiler.begin();
+		boolean result = cha.getAlpha(mouseStatus.x, cha.camera.getHeight() - mouseStatus.y - 1) > 0;
+		frameProfiler.end(Phase.HIT_TEST, phaseBegin);
+		return result;
 	}
 
 	/* WINDOW OPERATIONS */
 	private void setWindowPos() {
 		if (hWndMine == null) return;
 		if (getHWndLoopCtrl.isExecutable(Gdx.graphics.getDeltaTime())) {
+			long phaseBegin = frameProfiler.begin();
 			refreshMonitorInfo();
 			HWndCtrl new_hwnd_topmost = refreshWindowIndex();
 			hWndTopmost = new_hwnd_topmost != hWndTopmost ? new_hwnd_topmost : hWndTopmost;
 			hWndMine.setTransparent(isAlwaysTransparent);
 			isFocused = hWndMine.isForeground();
+			frameProfiler.end(Phase.WINDOW_INDEX, phaseBegin);
 		}
 		hWndMine.setWindowPosition(hWndTopmost,
 				(int)windowPosition.now().x, (int)windowPosition.now().y,
@@ -344,17 +483,21 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	}
 
 	private HWndCtrl refreshWindowIndex() {
-		hWndList = WindowSystem.getWindowList(true);
-		HWndCtrl minWindow = null;
-		HashMap<Integer, HWndCtrl> line = new HashMap<>();
+		hWndSnapshot.refresh(true);
+		hWndList = hWndSnapshot.getWindows();
 		int myPos = (int)(windowPosition.now().x + cha.camera.getWidth() / 2f);
+		if (!windowIndexKey.update(hWndSnapshot.getGeneration(), myPos,
+				plane == null ? 0 : plane.getY(), plane == null ? 0 : plane.borderTop()))
+			return hWndTopmost; // Nothing moved, the barriers and point charges are still valid.
+		HWndCtrl minWindow = null;
+		line.clear();
 		int minNum = 2048;
 		int myNum = coreTitleManager.getNumber(APP_TITLE);
 		final float quantityProduct = 1;
 		if (plane != null) {
 			// Reset plane additions.
-			plane.barriers.clear();
-			plane.pointCharges.clear();
+			plane.clearBarriers();
+			plane.clearPointCharges();
 		}
 		for (HWndCtrl hWndCtrl : hWndList) {
 			int wndNum = coreTitleManager.getNumber(hWndCtrl);
@@ -363,12 +506,8 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 				if (hWndCtrl.posLeft <= myPos && myPos <= hWndCtrl.posRight) {
 					// This window and the app are share the same vertical line.
 					if (-hWndCtrl.posBottom < plane.borderTop() && -hWndCtrl.posTop > plane.borderBottom()) {
-						// This window is "under" the app.
-						for (int h = -hWndCtrl.posTop; h > -hWndCtrl.posBottom; h--) {
-							// Mark the window's y-position in the vertical line.
-							if (!line.containsKey(h))
-								line.put(h, (h == -hWndCtrl.posTop) ? hWndCtrl : null); // Record this window.
-						}
+						// This window is "under" the app, mark it in the vertical line.
+						line.offer(hWndCtrl);
 					}
 				}
 			} else {
@@ -378,7 +517,7 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 				}
 				// Find the last peer window to handle the z-index.
 				if (wndNum > myNum && wndNum < minNum) {
-					minNum = coreTitleManager.getNumber(hWndCtrl);
+					minNum = wndNum;
 					minWindow = hWndCtrl;
 				}
 			}
@@ -389,13 +528,15 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 			minWindow = WindowSystem.getTopmostWindow();
 		}
 		if (plane != null) {
-			// Set barriers according to the vertical line.
-			for (int h = (int)plane.borderTop(); h > plane.borderBottom(); h--) {
-				if (line.containsKey(h)) {
-					HWndCtrl temp = line.get(h);
-					if (temp != null)
-						plane.setBarrier(-temp.posTop, temp.posLeft, temp.windowWidth, false);
-				}
+			// Set barriers according to the exposed top edges in the vertical line (from top to bottom).
+			final int top = (int)plane.borderTop();
+			for (HWndCtrl temp : line.getExposed()) {
+				int h = -temp.posTop;
+				if (h > top)
+					continue;
+				if (h <= plane.borderBottom())
+					break;
+				plane.setBarrier(h, temp.posLeft, temp.windowWidth, false);
 			}
 		}
 		return config.window_style_topmost ? minWindow : null; // Return the last peer window.
@@ -447,7 +588,7 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	private int randomRound(float val) {
 		int integer = (int)val;
 		float decimal = val - integer;
-		int offset = Math.abs(decimal) >= Math.random() ? (val >= 0 ? 1 : -1) : 0;
+		int offset = Math.abs(decimal) >= behavior.getRandom().nextDouble() ? (val >= 0 ? 1 : -1) : 0;
 		return integer + offset;
 	}
 
@@ -514,11 +655,39 @@ public class ArkPets extends ApplicationAdapter implements InputProcessor {
 	}
 
 
+	private static class WindowIndexKey {
+		private long generation = -1;
+		private int posX;
+		private float posY;
+		private float top;
+
+		public WindowIndexKey() {
+		}
+
+		/** Updates the key which the window index depends on.
+		 * @param generation The generation of the window snapshot.
+		 * @param posX The x-position of the app's vertical center line.
+		 * @param posY The y-position of the app in the plane.
+		 * @param top The top border of the plane, which changes with the object size (e.g. when the stage is changed).
+		 * @return true if the key has changed, which means the window index should be rebuilt.
+		 */
+		public boolean update(long generation, int posX, float posY, float top) {
+			if (this.generation == generation && this.posX == posX && this.posY == posY && this.top == top)
+				return false;
+			this.generation = generation;
+			this.posX = posX;
+			this.posY = posY;
+			this.top = top;
+			return true;
+		}
+	}
+
+
 	private record RelativeWindowPosition(HWndCtrl hWndCtrl, int relX, int relY) {
 		public void sendMouseEvent(HWndCtrl.MouseEvent msg) {
 			if(msg == HWndCtrl.MouseEvent.EMPTY) return;
 			//Logger.debug("Input", "Transfer mouse event " + msg + " to `" + hWndCtrl.windowText + "` @ " + relX + ", " + relY);
-			hWndCtrl.updated().sendMouseEvent(msg, relX, relY);
+			hWndCtrl.sendMouseEvent(msg, relX, relY);
 		}
 	}
 }
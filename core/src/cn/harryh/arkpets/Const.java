@@ -42,6 +42,7 @@ public final class Const {
     public static final int canvasMaxSize       = 1080;
     public static final float skelBaseScale     = 0.3f;
     public static final float outlineWidthMax   = 2f;
+    public static final int profilerSamples     = 256;
 
     // Behavior presets
     public static final int behaviorBaseWeight      = 320;
@@ -52,6 +53,7 @@ public final class Const {
     // Duration presets
     public static final Duration durationFast   = new Duration(150);
     public static final Duration durationNormal = new Duration(300);
+    public static final Duration durationIdle   = new Duration(3000);
 
     // Encoding presets
     public static final String charsetDefault   = "UTF-8";
@@ -65,6 +67,9 @@ public final class Const {
     public static final String pass1FShader     = "shaders/TCPBFragment.glsl";
     public static final String pass2VShader     = "shaders/TCPBVertex.glsl";
     public static final String pass2FShader     = "shaders/OutlineFragment.glsl";
+    public static final String boundsVShader    = "shaders/BoundsVertex.glsl";
+    public static final String boundsIFShader   = "shaders/BoundsInitFragment.glsl";
+    public static final String boundsRFShader   = "shaders/BoundsReduceFragment.glsl";
     public static final String startupTarget    = "ArkPets.exe";
     public static final String startUpScript    = "ArkPetsStartupService.vbs";
 
@@ -77,6 +82,7 @@ public final class Const {
     public static final String serverHost           = "localhost";
     public static final int[] serverPorts           = {8686, 8866, 8989, 8899, 8800};
     public static final int reconnectDelayMillis    = 5 * 1000;
+    public static final int stopTimeoutMillis       = 1000;
 
     // Misc constants
     public static final Pattern ipPortRegex     = Pattern.compile(
@@ -101,6 +107,8 @@ public final class Const {
         public static final String tempModelsUnzipDirPath       = tempDirPath + "models_unzipped/";
         public static final String tempModelsZipCachePath       = tempDirPath + fileModelsZipName + ".zip";
         public static final String tempQueryVersionCachePath    = tempDirPath + "ApiQueryVersionCache";
+        public static final String tempAssetCacheDirPath        = tempDirPath + "asset_cache/";
+        public static final String cdsArchiveDirPath            = "cds/";
     }
 
 
@@ -124,6 +132,21 @@ public final class Const {
     }
 
 
+    /** Launching presets definition class.
+     */
+    public static class LaunchConfig {
+        public static final int petsMax             = 16;
+        public static final int cdsTrainingFrames   = 120;
+
+        public static final String petsArg      = "--pets";
+        public static final String hostArg      = "--host";
+        public static final String hostTitle    = appName + " Host";
+        public static final String probeArg     = "--probe";
+        public static final String seedArg      = "--seed";
+        public static final String cdsTrainingArg   = "--cds-training";
+    }
+
+
     /** Fonts provider class.
      */
     public static class FontsConfig {
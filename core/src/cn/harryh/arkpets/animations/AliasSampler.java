@@ -0,0 +1,70 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import java.util.SplittableRandom;
+
+
+/** The weighted sampler using Vose's alias method, which draws an index in O(1) time after an O(n) setup.
+ * @since ArkPets 3.3
+ */
+final class AliasSampler {
+    private final double[] probability;
+    private final int[] alias;
+
+    /** Initializes a sampler of the given weights.
+     * @param weights The weights, the negative ones are regarded as zero.
+     *                If the sum of the weights is zero, the sampler always draws the index 0.
+     */
+    AliasSampler(int[] weights) {
+        int n = weights.length;
+        probability = new double[n];
+        alias = new int[n];
+        long total = 0;
+        for (int w : weights)
+            total += Math.max(0, w);
+        if (total <= 0)
+            return;
+
+        // Scale the weights so that their average is 1, then pair each small one with a large one
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallSize = 0, largeSize = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (double)Math.max(0, weights[i]) * n / total;
+            if (scaled[i] < 1)
+                small[smallSize++] = i;
+            else
+                large[largeSize++] = i;
+        }
+        while (smallSize > 0 && largeSize > 0) {
+            int s = small[--smallSize];
+            int l = large[--largeSize];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = scaled[l] + scaled[s] - 1;
+            if (scaled[l] < 1)
+                small[smallSize++] = l;
+            else
+                large[largeSize++] = l;
+        }
+        // The remaining ones are (numerically) full
+        while (largeSize > 0)
+            probability[large[--largeSize]] = 1;
+        while (smallSize > 0)
+            probability[small[--smallSize]] = 1;
+    }
+
+    /** Draws an index randomly.
+     * @param random The random number generator.
+     * @return The index, or {@code -1} if there is no weight.
+     */
+    int sample(SplittableRandom random) {
+        if (probability.length == 0)
+            return -1;
+        int i = random.nextInt(probability.length);
+        return random.nextDouble() < probability[i] ? i : alias[i];
+    }
+}
@@ -10,20 +10,32 @@ import java.util.*;
 
 
 /** The class implements the Collection of {@link AnimClip}.
+ * <hr>
+ * Since ArkPets 3.3, the group is immutable and its mutating methods throw {@link UnsupportedOperationException}.
+ * The group indexes its clips by type, modifier and stage when it is firstly queried,
+ * and memoizes the animation data drawn from it, so that the lookups are constant-time.
+ * Note that the lazy initialization isn't thread-safe, the same as the {@link AnimDataRegistry}.
  * @since ArkPets 2.3
  */
 public class AnimClipGroup implements Collection<AnimClip> {
-    protected final ArrayList<AnimClip> animClipList;
+    protected final List<AnimClip> animClipList;
+    protected final AnimDataRegistry registry;
+    private Index clipIndex;
 
     public AnimClipGroup(Animation[] animList) {
-        this.animClipList = new ArrayList<>();
+        ArrayList<AnimClip> animClipList = new ArrayList<>();
         for (Animation a : animList)
-            this.animClipList.add(new AnimClip(a));
+            animClipList.add(new AnimClip(a));
+        this.animClipList = List.copyOf(animClipList);
+        this.registry = new AnimDataRegistry();
         sortStages();
+        // Build the index at load time, since the stage IDs have been settled
+        clipIndex = new Index(this);
     }
 
-    protected AnimClipGroup(Collection<AnimClip> animClipList) {
-        this.animClipList = new ArrayList<>(animClipList);
+    protected AnimClipGroup(Collection<AnimClip> animClipList, AnimDataRegistry registry) {
+        this.animClipList = List.copyOf(animClipList);
+        this.registry = registry;
     }
 
     /** Finds the animations that match the given type.
@@ -31,13 +43,7 @@ public class AnimClipGroup implements Collection<AnimClip> {
      * @return A group of matched animation.
      */
     public AnimClipGroup findAnimations(AnimType type) {
-        ArrayList<AnimClip> found = new ArrayList<>();
-        for (AnimClip a : animClipList) {
-            if (a.type == type) {
-                found.add(a);
-            }
-        }
-        return new AnimClipGroup(found);
+        return index().byType.getOrDefault(type, index().none);
     }
 
     /** Finds the animations that match the given modifier.
@@ -45,13 +51,7 @@ public class AnimClipGroup implements Collection<AnimClip> {
      * @return A group of matched animation.
      */
     public AnimClipGroup findAnimations(AnimModifier modifier) {
-        ArrayList<AnimClip> found = new ArrayList<>();
-        for (AnimClip a : animClipList) {
-            if (a.modifier == modifier) {
-                found.add(a);
-            }
-        }
-        return new AnimClipGroup(found);
+        return index().byModifier.getOrDefault(modifier, index().none);
     }
 
     /** Finds the animations that match the given stage.
@@ -59,27 +59,14 @@ public class AnimClipGroup implements Collection<AnimClip> {
      * @return A group of matched animation.
      */
     public AnimClipGroup findAnimations(AnimStage stage) {
-        ArrayList<AnimClip> found = new ArrayList<>();
-        for (AnimClip a : animClipList) {
-            if (a.stage.id() == stage.id()) {
-                found.add(a);
-            }
-        }
-        return new AnimClipGroup(found);
+        return index().byStage.getOrDefault(stage, index().none);
     }
 
     /** Finds all the animations by their stages.
-     * @return A map of {@code AnimStage} -> {@code AnimClipGroup}.
+     * @return An unmodifiable map of {@code AnimStage} -> {@code AnimClipGroup}, ordered by the stage IDs.
      */
-    public HashMap<AnimStage, AnimClipGroup> clusterByStage() {
-        HashMap<AnimStage, AnimClipGroup> result = new HashMap<>();
-        for (AnimClip a : animClipList) {
-            if (result.containsKey(a.stage))
-                result.get(a.stage).add(a);
-            else
-                result.put(a.stage, new AnimClipGroup(List.of(a)));
-        }
-        return result;
+    public Map<AnimStage, AnimClipGroup> clusterByStage() {
+        return index().byStage;
     }
 
     /** Gets the animation clip at the given index.
@@ -100,21 +87,23 @@ public class AnimClipGroup implements Collection<AnimClip> {
      * @return The animation data whose animation clip will be none if not found.
      */
     public AnimData getStreamedAnimData(AnimType type) {
-        AnimClipGroup found = this.findAnimations(type);
-        AnimClip begin = found.findAnimations(AnimModifier.BEGIN).get(0);
-        AnimClip end = found.findAnimations(AnimModifier.END).get(0);
-        AnimClip loop = found.findAnimations(AnimModifier.LOOP).get(0);
-        AnimClip none = found.findAnimations(AnimModifier.NONE).get(0);
-        AnimClip center = loop != null ? loop : none;
-        if (center != null) {
-            AnimData result = new AnimData(center);
-            if (begin != null)
-                result = new AnimData(begin).join(result);
-            if (end != null)
-                result = result.join(new AnimData(end));
-            return result;
+        AnimData result = index().streamedAnimData.get(type);
+        if (result == null) {
+            result = registry.empty();
+            AnimClipGroup found = this.findAnimations(type);
+            AnimClip begin = found.findAnimations(AnimModifier.BEGIN).get(0);
+            AnimClip end = found.findAnimations(AnimModifier.END).get(0);
+            AnimClip center = found.getCenter();
+            if (center != null) {
+                result = registry.of(center);
+                if (begin != null)
+                    result = registry.of(begin).join(result);
+                if (end != null)
+                    result = result.join(registry.of(end));
+            }
+            index().streamedAnimData.put(type, result);
         }
-        return new AnimData(null);
+        return result;
     }
 
     /** Draws a loop animation data from this animation clip group.
@@ -123,14 +112,14 @@ public class AnimClipGroup implements Collection<AnimClip> {
      * @param type The specified animation type.
      * @return The animation data whose animation clip will be none if not found.
      */
-    public AnimData getLoopAnimData( AnimType type) {
-        AnimClipGroup found = this.findAnimations(type);
-        AnimClip loop = found.findAnimations(AnimModifier.LOOP).get(0);
-        AnimClip none = found.findAnimations(AnimModifier.NONE).get(0);
-        AnimClip center = loop != null ? loop : none;
-        if (center != null)
-            return new AnimData(center, null, true, false, 0, 0);
-        return new AnimData(null);
+    public AnimData getLoopAnimData(AnimType type) {
+        AnimData result = index().loopAnimData.get(type);
+        if (result == null) {
+            AnimClip center = this.findAnimations(type).getCenter();
+            result = center != null ? registry.intern(center, null, true, false, 0, 0) : registry.empty();
+            index().loopAnimData.put(type, result);
+        }
+        return result;
     }
 
     /** Draws a strict animation data from this animation clip group.
@@ -140,13 +129,32 @@ public class AnimClipGroup implements Collection<AnimClip> {
      * @return The animation data whose animation clip will be none if not found.
      */
     public AnimData getStrictAnimData(AnimType type) {
-        AnimClipGroup found = this.findAnimations(type);
-        AnimClip loop = found.findAnimations(AnimModifier.LOOP).get(0);
-        AnimClip none = found.findAnimations(AnimModifier.NONE).get(0);
-        AnimClip center = loop != null ? loop : none;
-        if (center != null)
-            return new AnimData(center, null, false, true);
-        return new AnimData(null);
+        AnimData result = index().strictAnimData.get(type);
+        if (result == null) {
+            AnimClip center = this.findAnimations(type).getCenter();
+            result = center != null ? registry.intern(center, null, false, true, 0, 0) : registry.empty();
+            index().strictAnimData.put(type, result);
+        }
+        return result;
+    }
+
+    /** Gets the registry which interns the animation data drawn from this group.
+     * @return The registry.
+     * @since ArkPets 3.3
+     */
+    public AnimDataRegistry getRegistry() {
+        return registry;
+    }
+
+    private AnimClip getCenter() {
+        AnimClip loop = findAnimations(AnimModifier.LOOP).get(0);
+        return loop != null ? loop : findAnimations(AnimModifier.NONE).get(0);
+    }
+
+    private Index index() {
+        if (clipIndex == null)
+            clipIndex = new Index(this);
+        return clipIndex;
     }
 
     protected void sortStages() {
@@ -225,4 +233,34 @@ public class AnimClipGroup implements Collection<AnimClip> {
     public <T> T[] toArray(T[] a) {
         return animClipList.toArray(a);
     }
+
+
+    /** The immutable index of a group, together with the memoized animation data drawn from the group.
+     */
+    private static final class Index {
+        private final AnimClipGroup none;
+        private final EnumMap<AnimType, AnimClipGroup> byType = new EnumMap<>(AnimType.class);
+        private final EnumMap<AnimModifier, AnimClipGroup> byModifier = new EnumMap<>(AnimModifier.class);
+        private final Map<AnimStage, AnimClipGroup> byStage;
+        private final EnumMap<AnimType, AnimData> streamedAnimData = new EnumMap<>(AnimType.class);
+        private final EnumMap<AnimType, AnimData> loopAnimData = new EnumMap<>(AnimType.class);
+        private final EnumMap<AnimType, AnimData> strictAnimData = new EnumMap<>(AnimType.class);
+
+        private Index(AnimClipGroup group) {
+            none = new AnimClipGroup(List.of(), group.registry);
+            EnumMap<AnimType, ArrayList<AnimClip>> types = new EnumMap<>(AnimType.class);
+            EnumMap<AnimModifier, ArrayList<AnimClip>> modifiers = new EnumMap<>(AnimModifier.class);
+            TreeMap<Integer, ArrayList<AnimClip>> stages = new TreeMap<>();
+            for (AnimClip a : group.animClipList) {
+                types.computeIfAbsent(a.type, k -> new ArrayList<>()).add(a);
+                modifiers.computeIfAbsent(a.modifier, k -> new ArrayList<>()).add(a);
+                stages.computeIfAbsent(a.stage.id(), k -> new ArrayList<>()).add(a);
+            }
+            types.forEach((k, v) -> byType.put(k, new AnimClipGroup(v, group.registry)));
+            modifiers.forEach((k, v) -> byModifier.put(k, new AnimClipGroup(v, group.registry)));
+            LinkedHashMap<AnimStage, AnimClipGroup> byStage = new LinkedHashMap<>();
+            stages.forEach((k, v) -> byStage.put(v.get(0).stage, new AnimClipGroup(v, group.registry)));
+            this.byStage = Collections.unmodifiableMap(byStage);
+        }
+    }
 }
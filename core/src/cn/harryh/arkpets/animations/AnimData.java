@@ -3,33 +3,53 @@
  */
 package cn.harryh.arkpets.animations;
 
+import java.util.ArrayList;
 import java.util.Objects;
 
 
-/** Animation data record.
- * @param animClip The animation clip of THIS animation data.
- * @param animNext The NEXT animation data, which would be applied after this animation ended.
- * @param isLoop {@code true} indicates that this animation could be played in loop.
- * @param isStrict {@code true} indicates that this animation couldn't be interrupted.
- * @param offsetY The root offset in the Y-axis coordinate.
- * @param mobility The root motion. 0=None, 1=GoRight, -1=GoLeft.
+/** Animation data, which is immutable.
+ * <hr>
+ * The animation data drawn from an {@link AnimClipGroup} is interned by the group's {@link AnimDataRegistry},
+ * so are all of its variations created by {@link #derive}, {@link #join} and {@link #turnAround()}.
+ * Two interned animation data of the same registry are equal only if they are identical,
+ * and each interned animation data memoizes its variations, so that getting a variation again allocates nothing.
  */
-public record AnimData(
-        AnimClip animClip,
-        AnimData animNext,
-        boolean isLoop,
-        boolean isStrict,
-        int offsetY,
-        int mobility
-) {
-    /** Animation data record (simplified constructor).
+public final class AnimData {
+    private final AnimClip animClip;
+    private final AnimData animNext;
+    private final boolean isLoop;
+    private final boolean isStrict;
+    private final int offsetY;
+    private final int mobility;
+    private final int hash;
+    private final AnimDataRegistry registry;
+    private ArrayList<AnimData> variants;
+
+    /** The empty animation data, which isn't interned by any registry.
+     * @since ArkPets 3.3
+     */
+    public static final AnimData EMPTY = new AnimData(null);
+
+    /** Animation data.
+     * @param animClip The animation clip of THIS animation data.
+     * @param animNext The NEXT animation data, which would be applied after this animation ended.
+     * @param isLoop {@code true} indicates that this animation could be played in loop.
+     * @param isStrict {@code true} indicates that this animation couldn't be interrupted.
+     * @param offsetY The root offset in the Y-axis coordinate.
+     * @param mobility The root motion. 0=None, 1=GoRight, -1=GoLeft.
+     */
+    public AnimData(AnimClip animClip, AnimData animNext, boolean isLoop, boolean isStrict, int offsetY, int mobility) {
+        this(null, animClip, animNext, isLoop, isStrict, offsetY, mobility);
+    }
+
+    /** Animation data (simplified constructor).
      * @param animClip The animation clip of THIS animation data.
      */
     public AnimData(AnimClip animClip) {
         this(animClip, null, false, false,0, 0);
     }
 
-    /** Animation data record (simplified constructor).
+    /** Animation data (simplified constructor).
      * @param animClip The animation clip of THIS animation data.
      * @param animNext The NEXT animation data, which would be applied after this animation ended.
      * @param isLoop {@code true} indicates that this animation could be played in loop.
@@ -39,33 +59,80 @@ public record AnimData(
         this(animClip, animNext, isLoop, isStrict, 0, 0);
     }
 
+    AnimData(AnimDataRegistry registry, AnimClip animClip, AnimData animNext, boolean isLoop, boolean isStrict, int offsetY, int mobility) {
+        this.registry = registry;
+        this.animClip = animClip;
+        this.animNext = animNext;
+        this.isLoop = isLoop;
+        this.isStrict = isStrict;
+        this.offsetY = offsetY;
+        this.mobility = mobility;
+        // The hash code of the next animation data has been computed, so this is O(1)
+        this.hash = Objects.hash(animClip, animNext, isLoop, isStrict, offsetY, mobility);
+    }
+
+    public AnimClip animClip() {
+        return animClip;
+    }
+
+    public AnimData animNext() {
+        return animNext;
+    }
+
+    public boolean isLoop() {
+        return isLoop;
+    }
+
+    public boolean isStrict() {
+        return isStrict;
+    }
+
+    public int offsetY() {
+        return offsetY;
+    }
+
+    public int mobility() {
+        return mobility;
+    }
+
     /** Derives a variation of this animation data.
      * @param isLoop New value for {@code isLoop}.
      * @param isStrict New value for {@code isStrict}.
-     * @return New animation data.
+     * @return The animation data of the variation.
      */
     public AnimData derive(boolean isLoop, boolean isStrict) {
-        return new AnimData(this.animClip, this.animNext, isLoop, isStrict, this.offsetY, this.mobility);
+        return variant(this.animClip, this.animNext, isLoop, isStrict, this.offsetY, this.mobility);
     }
 
     /** Derives a variation of this animation data.
      * @param offsetY New value for {@code offsetY}.
      * @param mobility New value for {@code mobility}.
-     * @return New animation data.
+     * @return The animation data of the variation.
      */
     public AnimData derive(int offsetY, int mobility) {
-        return new AnimData(this.animClip, this.animNext, this.isLoop, this.isStrict, offsetY, mobility);
+        return variant(this.animClip, this.animNext, this.isLoop, this.isStrict, offsetY, mobility);
+    }
+
+    /** Derives a variation of this animation data, whose root motion is in the opposite direction,
+     * and which has no next animation data.
+     * @return The animation data of the variation.
+     * @since ArkPets 3.3
+     */
+    public AnimData turnAround() {
+        return variant(this.animClip, null, this.isLoop, this.isStrict, this.offsetY, -this.mobility);
     }
 
     /** Joins another animation data, which would be applied after this animation ended, to this animation data.
      * @param animNext The given animation data.
-     * @return New animation data.
+     * @return The animation data of the joined one.
      */
     public AnimData join(AnimData animNext) {
+        if (registry != null)
+            animNext = registry.intern(animNext);
         if (this.animNext == null)
-            return new AnimData(this.animClip, animNext, this.isLoop, this.isStrict, this.offsetY, this.mobility);
+            return variant(this.animClip, animNext, this.isLoop, this.isStrict, this.offsetY, this.mobility);
         else
-            return new AnimData(this.animClip, this.animNext.join(animNext), this.isLoop, this.isStrict, this.offsetY, this.mobility);
+            return variant(this.animClip, this.animNext.join(animNext), this.isLoop, this.isStrict, this.offsetY, this.mobility);
     }
 
     public boolean isEmpty() {
@@ -76,6 +143,32 @@ public record AnimData(
         return isEmpty() ? null : animClip.fullName;
     }
 
+    AnimDataRegistry registry() {
+        return registry;
+    }
+
+    boolean matches(AnimClip animClip, AnimData animNext, boolean isLoop, boolean isStrict, int offsetY, int mobility) {
+        return this.animClip == animClip && this.animNext == animNext && this.isLoop == isLoop && this.isStrict == isStrict &&
+                this.offsetY == offsetY && this.mobility == mobility;
+    }
+
+    private AnimData variant(AnimClip animClip, AnimData animNext, boolean isLoop, boolean isStrict, int offsetY, int mobility) {
+        if (matches(animClip, animNext, isLoop, isStrict, offsetY, mobility))
+            return this;
+        if (registry == null)
+            return new AnimData(animClip, animNext, isLoop, isStrict, offsetY, mobility);
+        // Look up the memoized variations, which are few
+        if (variants != null)
+            for (int i = 0; i < variants.size(); i++)
+                if (variants.get(i).matches(animClip, animNext, isLoop, isStrict, offsetY, mobility))
+                    return variants.get(i);
+        AnimData variant = registry.intern(animClip, animNext, isLoop, isStrict, offsetY, mobility);
+        if (variants == null)
+            variants = new ArrayList<>(2);
+        variants.add(variant);
+        return variant;
+    }
+
     @Override
     public String toString() {
         return "AnimData {" + animClip + "}" +
@@ -88,11 +181,14 @@ public record AnimData(
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AnimData animData = (AnimData) o;
+        if (hash != animData.hash) return false;
+        // The interned ones of the same registry are unique
+        if (registry != null && registry == animData.registry) return false;
         return isLoop == animData.isLoop && isStrict == animData.isStrict && offsetY == animData.offsetY && mobility == animData.mobility && Objects.equals(animClip, animData.animClip) && Objects.equals(animNext, animData.animNext);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(animClip, animNext, isLoop, isStrict, offsetY, mobility);
+        return hash;
     }
 }
@@ -0,0 +1,74 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import java.util.HashMap;
+
+
+/** The registry which interns the animation data of a model, so that each distinct animation data has only one instance.
+ * Note that the registry isn't thread-safe, it should only be used by the thread which renders the model.
+ * @see AnimData
+ * @since ArkPets 3.3
+ */
+public class AnimDataRegistry {
+    private final HashMap<Key, AnimData> pool = new HashMap<>();
+    private final AnimData empty = intern(null, null, false, false, 0, 0);
+
+    /** Gets the interned animation data with the given properties.
+     * @param animClip The animation clip of THIS animation data.
+     * @param animNext The NEXT animation data, which would be applied after this animation ended.
+     * @param isLoop {@code true} indicates that this animation could be played in loop.
+     * @param isStrict {@code true} indicates that this animation couldn't be interrupted.
+     * @param offsetY The root offset in the Y-axis coordinate.
+     * @param mobility The root motion. 0=None, 1=GoRight, -1=GoLeft.
+     * @return The interned animation data.
+     */
+    public AnimData intern(AnimClip animClip, AnimData animNext, boolean isLoop, boolean isStrict, int offsetY, int mobility) {
+        Key key = new Key(animClip, intern(animNext), isLoop, isStrict, offsetY, mobility);
+        AnimData found = pool.get(key);
+        if (found == null) {
+            found = new AnimData(this, animClip, key.animNext, isLoop, isStrict, offsetY, mobility);
+            pool.put(key, found);
+        }
+        return found;
+    }
+
+    /** Gets the interned animation data which is equal to the given one.
+     * @param animData The animation data, nullable.
+     * @return The interned animation data, or {@code null} if the given one is {@code null}.
+     */
+    public AnimData intern(AnimData animData) {
+        if (animData == null || animData.registry() == this)
+            return animData;
+        return intern(animData.animClip(), animData.animNext(), animData.isLoop(), animData.isStrict(), animData.offsetY(), animData.mobility());
+    }
+
+    /** Gets the interned animation data of the given clip, which is neither looped nor strict.
+     * @param animClip The animation clip, nullable.
+     * @return The interned animation data.
+     */
+    public AnimData of(AnimClip animClip) {
+        return animClip == null ? empty : intern(animClip, null, false, false, 0, 0);
+    }
+
+    /** Gets the interned empty animation data.
+     * @return The interned animation data.
+     */
+    public AnimData empty() {
+        return empty;
+    }
+
+    /** Gets the number of the interned animation data.
+     * @return The number.
+     */
+    public int size() {
+        return pool.size();
+    }
+
+
+    /** The key of the pool. The next animation data is always an interned one, so it is compared by identity.
+     */
+    private record Key(AnimClip animClip, AnimData animNext, boolean isLoop, boolean isStrict, int offsetY, int mobility) {
+    }
+}
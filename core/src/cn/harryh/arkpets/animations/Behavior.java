@@ -5,6 +5,8 @@ package cn.harryh.arkpets.animations;
 
 import cn.harryh.arkpets.ArkConfig;
 
+import java.util.SplittableRandom;
+
 
 abstract public class Behavior {
     protected AnimDataWeight[] action_list;
@@ -14,15 +16,39 @@ abstract public class Behavior {
     protected float timeRec;
     protected float duraRec;
     protected int idxRec;
+    protected final SplittableRandom random;
+    private AnimDataWeight[] sampledList;
+    private AliasSampler sampler;
 
     /** Character Behavior Controller Instance.
      * @param config ArkConfig object.
      * @param animList The animation name list.
      */
     public Behavior(ArkConfig config, AnimClipGroup animList) {
+        this(config, animList, new SplittableRandom());
+    }
+
+    /** Character Behavior Controller Instance.
+     * @param config ArkConfig object.
+     * @param animList The animation name list.
+     * @param seed The seed of the random number generator, the same seed leads to the same behavior trace.
+     * @since ArkPets 3.3
+     */
+    public Behavior(ArkConfig config, AnimClipGroup animList, long seed) {
+        this(config, animList, new SplittableRandom(seed));
+    }
+
+    /** Character Behavior Controller Instance.
+     * @param config ArkConfig object.
+     * @param animList The animation name list.
+     * @param random The random number generator.
+     * @since ArkPets 3.3
+     */
+    protected Behavior(ArkConfig config, AnimClipGroup animList, SplittableRandom random) {
         action_list = null;
         anim_list = animList;
         this.config = config;
+        this.random = random;
         deltaMin = 0.5f;
         autoCtrlReset();
     }
@@ -58,55 +84,58 @@ abstract public class Behavior {
      * @return The index of the action.
      */
     protected final int getRandomAction() {
-        // Calculate the sum of all action's weight
-        int weight_sum = 0;
-        for (AnimDataWeight i: action_list) {
-            weight_sum += i.weight();
+        // The action list is replaced rather than modified, so the sampler is rebuilt only when it is replaced
+        if (sampler == null || sampledList != action_list) {
+            int[] weights = new int[action_list.length];
+            for (int i = 0; i < weights.length; i++)
+                weights[i] = action_list[i].weight();
+            sampler = new AliasSampler(weights);
+            sampledList = action_list;
         }
-        // Random select a weight
-        int weight_select = (int)Math.ceil(Math.random() * weight_sum);
-        // Figure out which action the weight referred
-        weight_sum = 0;
-        for (int j = 0; j < action_list.length; j++) {
-            weight_sum += action_list[j].weight();
-            if (weight_select <= weight_sum)
-                return j;
-        }
-        return -1;
+        return sampler.sample(random);
+    }
+
+    /** Gets the random number generator of this behavior,
+     * which should be the source of all the randomness of the character.
+     * @return The random number generator.
+     * @since ArkPets 3.3
+     */
+    public SplittableRandom getRandom() {
+        return random;
     }
 
     /** Gets the default animation.
      * @return AnimData object.
      */
     public AnimData defaultAnim() {
-        return new AnimData(null);
+        return AnimData.EMPTY;
     }
 
     /** Gets the animation when mouse-down.
      * @return AnimData object.
      */
     public AnimData clickStart() {
-        return new AnimData(null);
+        return AnimData.EMPTY;
     }
 
     /** Gets the animation when mouse-up.
      * @return AnimData object.
      */
     public AnimData clickEnd() {
-        return new AnimData(null);
+        return AnimData.EMPTY;
     }
 
     /** Gets the animation when the user starts dragging.
      * @return AnimData object.
      */
     public AnimData dragging() {
-        return new AnimData(null);
+        return AnimData.EMPTY;
     }
 
     /** Gets the animation when character dropped.
      * @return AnimData object.
      */
     public AnimData dropped() {
-        return new AnimData(null);
+        return AnimData.EMPTY;
     }
 }
@@ -13,13 +13,24 @@ import static cn.harryh.arkpets.Const.*;
 public class GeneralBehavior extends Behavior {
     protected AnimStage stageCur;
     protected AnimClipGroup stageAnimList;
+    protected AnimData stageDefaultAnim;
+    protected AnimData stageClickEndAnim;
     protected Iterator<AnimStage> stageItr;
     protected final ArrayList<AnimStage> stageList;
-    protected final HashMap<AnimStage, AnimClipGroup> stageAnimMap;
+    protected final Map<AnimStage, AnimClipGroup> stageAnimMap;
     protected final HashMap<AnimStage, AnimDataWeight[]> stageAnimWeightMap;
 
     public GeneralBehavior(ArkConfig config, AnimClipGroup animList) {
-        super(config, animList);
+        this(config, animList, new SplittableRandom());
+    }
+
+    /** @since ArkPets 3.3 */
+    public GeneralBehavior(ArkConfig config, AnimClipGroup animList, long seed) {
+        this(config, animList, new SplittableRandom(seed));
+    }
+
+    private GeneralBehavior(ArkConfig config, AnimClipGroup animList, SplittableRandom random) {
+        super(config, animList, random);
 
         stageAnimMap = anim_list.clusterByStage();
         stageAnimWeightMap = new HashMap<>();
@@ -45,6 +56,11 @@ public class GeneralBehavior extends Behavior {
         stageCur = stageItr.next();
         stageAnimList = stageAnimMap.get(stageCur);
         action_list = stageAnimWeightMap.get(stageCur);
+        // The animation data are interned, so they can be drawn once per stage
+        stageDefaultAnim = stageAnimList.getLoopAnimData(AnimType.IDLE);
+        AnimData a1 = stageAnimList.getStreamedAnimData(AnimType.ATTACK);
+        AnimData a2 = stageAnimList.getStreamedAnimData(AnimType.INTERACT);
+        stageClickEndAnim = (a2.isEmpty() ? a1 : a2).derive(false, true).join(stageDefaultAnim);
         autoCtrlReset();
     }
 
@@ -70,14 +86,12 @@ public class GeneralBehavior extends Behavior {
 
     @Override
     public AnimData defaultAnim() {
-        return stageAnimList.getLoopAnimData(AnimType.IDLE);
+        return stageDefaultAnim;
     }
 
     @Override
     public AnimData clickEnd() {
-        AnimData a1 = stageAnimList.getStreamedAnimData(AnimType.ATTACK);
-        AnimData a2 = stageAnimList.getStreamedAnimData(AnimType.INTERACT);
-        return (a2.isEmpty() ? a1 : a2).derive(false, true).join(defaultAnim());
+        return stageClickEndAnim;
     }
 
     @Override
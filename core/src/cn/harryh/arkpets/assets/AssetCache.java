@@ -0,0 +1,175 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
+import cn.harryh.arkpets.utils.IOUtils.FileUtil;
+import cn.harryh.arkpets.utils.Logger;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The Asset Cache persists the derived data of a local Spine asset,
+ * in order to skip the expensive computation on the later launches.
+ * <hr>
+ * Each cache file is named after the location of the asset and the content hash of all the asset files,
+ * so any modification of the asset will lead to a different cache file, and the previous one will be pruned on saving.
+ * A cache file will be discarded if its format version or app version mismatches.
+ * @since ArkPets 3.3
+ */
+public class AssetCache {
+    private final File file;
+    private final String locationHash;
+    private final String contentHash;
+    private final JSONObject entries;
+    private boolean modified = false;
+
+    public static final int formatVersion = 1;
+
+    private AssetCache(File file, String locationHash, String contentHash, JSONObject entries) {
+        this.file = file;
+        this.locationHash = locationHash;
+        this.contentHash = contentHash;
+        this.entries = entries;
+    }
+
+    /** Opens the cache of the given asset.
+     * @param assetLocation The directory where the asset files located in.
+     * @param accessor The Asset Accessor of the asset.
+     * @return The Asset Cache instance, {@code null} if the asset files are inaccessible.
+     */
+    public static AssetCache open(String assetLocation, AssetAccessor accessor) {
+        return open(new File(PathConfig.tempAssetCacheDirPath), assetLocation, accessor);
+    }
+
+    /** Opens the cache of the given asset in the given directory.
+     * @param cacheDir The directory where the cache files located in.
+     * @param assetLocation The directory where the asset files located in.
+     * @param accessor The Asset Accessor of the asset.
+     * @return The Asset Cache instance, {@code null} if the asset files are inaccessible.
+     */
+    static AssetCache open(File cacheDir, String assetLocation, AssetAccessor accessor) {
+        String locationHash;
+        String contentHash;
+        try {
+            locationHash = FileUtil.getMD5(new File(assetLocation).getAbsolutePath().getBytes(charsetDefault));
+            contentHash = getContentHash(assetLocation, accessor);
+        } catch (IOException e) {
+            Logger.warn("Asset", "Asset cache is unavailable since the asset files are inaccessible");
+            return null;
+        }
+        File file = new File(cacheDir, locationHash + "_" + contentHash + ".json");
+        JSONObject entries = null;
+        if (file.isFile()) {
+            try {
+                JSONObject root = JSON.parseObject(FileUtil.readString(file, charsetDefault));
+                if (root != null &&
+                        root.getIntValue("formatVersion") == formatVersion &&
+                        appVersion.toString().equals(root.getString("appVersion")) &&
+                        contentHash.equals(root.getString("contentHash")))
+                    entries = root.getJSONObject("entries");
+            } catch (Exception e) {
+                Logger.warn("Asset", "Failed to read the asset cache: " + e.getMessage());
+            }
+            if (entries == null) {
+                Logger.info("Asset", "Discarded the outdated or corrupted asset cache " + file.getName());
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+        return new AssetCache(file, locationHash, contentHash, entries == null ? new JSONObject() : entries);
+    }
+
+    /** Gets the cache file, which may not exist until {@link #save()} is called.
+     * @return The cache file.
+     */
+    File getFile() {
+        return file;
+    }
+
+    /** Gets the cached entry of the given key.
+     * @param key The key of the entry.
+     * @return The entry, {@code null} if not cached.
+     */
+    public JSONObject get(String key) {
+        return entries.getJSONObject(key);
+    }
+
+    /** Puts an entry to the cache. Note that {@link #save()} should be called to persist it.
+     * @param key The key of the entry.
+     * @param value The entry.
+     */
+    public void put(String key, JSONObject value) {
+        entries.put(key, value);
+        modified = true;
+    }
+
+    /** Saves the cache to the cache file if it was modified.
+     * The file is replaced atomically, so the concurrent readers won't see a partial file.
+     * The cache files of the previous contents of the same asset are deleted then.
+     */
+    public void save() {
+        if (!modified)
+            return;
+        JSONObject root = new JSONObject();
+        root.put("formatVersion", formatVersion);
+        root.put("appVersion", appVersion.toString());
+        root.put("contentHash", contentHash);
+        root.put("entries", entries);
+        try {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Cannot create directory: " + dir.getAbsolutePath());
+            File temp = File.createTempFile(contentHash, ".tmp", dir);
+            try {
+                FileUtil.writeString(temp, charsetDefault, root.toJSONString(), false);
+                try {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+            modified = false;
+            Logger.debug("Asset", "Asset cache saved to " + file.getName());
+            pruneStale(dir);
+        } catch (IOException e) {
+            Logger.warn("Asset", "Failed to save the asset cache: " + e.getMessage());
+        }
+    }
+
+    private void pruneStale(File dir) {
+        String prefix = locationHash + "_";
+        File[] stale = dir.listFiles((d, name) -> name.startsWith(prefix) && name.endsWith(".json") && !name.equals(file.getName()));
+        if (stale == null)
+            return;
+        for (File f : stale)
+            if (f.delete())
+                Logger.debug("Asset", "Pruned the stale asset cache " + f.getName());
+    }
+
+    private static String getContentHash(String assetLocation, AssetAccessor accessor)
+            throws IOException {
+        String[] fileNames = accessor.getAllFiles();
+        if (fileNames.length == 0)
+            throw new IOException("No asset file.");
+        Arrays.sort(fileNames);
+        StringBuilder builder = new StringBuilder();
+        for (String fileName : fileNames) {
+            File file = new File(assetLocation, fileName);
+            builder.append(fileName).append(':').append(FileUtil.getMD5(file)).append(';');
+        }
+        return FileUtil.getMD5(builder.toString().getBytes(charsetDefault));
+    }
+}
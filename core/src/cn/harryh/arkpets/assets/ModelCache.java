@@ -0,0 +1,96 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
+import cn.harryh.arkpets.utils.Logger;
+
+import java.util.HashMap;
+
+
+/** The Model Cache shares the loaded models among the characters in the same process.
+ * <hr>
+ * The models are reference-counted. A model is loaded once when it is acquired for the first time,
+ * and the characters acquiring it later will share the same {@code SkeletonData} and {@code TextureAtlas}.
+ * The model is disposed once all the characters have released it.
+ * Since the textures are bound to the GL context, the cache should only be accessed on the GL thread.
+ * @since ArkPets 3.3
+ */
+public final class ModelCache {
+    private final HashMap<String, Entry> entries = new HashMap<>();
+
+    private static volatile ModelCache instance = null;
+
+    public static ModelCache getInstance() {
+        if (instance == null)
+            synchronized (ModelCache.class) {
+                if (instance == null)
+                    instance = new ModelCache();
+            }
+        return instance;
+    }
+
+    private ModelCache() {
+    }
+
+    /** Acquires the loader of the given model, and increases its reference count.
+     * If the model hasn't been acquired yet, a new loader will be created and started,
+     * otherwise the existing loader (which may be loaded already) will be returned.
+     * @param assetLocation The directory where the asset files located in.
+     * @param accessor The Asset Accessor of the asset.
+     * @param skelScale The scale to apply to the skeleton.
+     * @return The Model Loader instance, which should be released by {@link #release(ModelLoader)} later.
+     */
+    public synchronized ModelLoader acquire(String assetLocation, AssetAccessor accessor, float skelScale) {
+        String key = assetLocation + "@" + skelScale;
+        Entry entry = entries.get(key);
+        if (entry == null || entry.loader.getStage() == ModelLoader.Stage.FAILED) {
+            ModelLoader loader = new ModelLoader(assetLocation, accessor, skelScale);
+            loader.start();
+            entry = new Entry(loader);
+            entries.put(key, entry);
+        } else {
+            Logger.debug("Model", "Sharing the model " + key + " with " + entry.references + " other(s)");
+        }
+        entry.references++;
+        return entry.loader;
+    }
+
+    /** Releases a loader acquired before, and decreases its reference count.
+     * The loader and its model will be disposed once the reference count reaches zero.
+     * @param loader The Model Loader instance.
+     */
+    public synchronized void release(ModelLoader loader) {
+        for (var it = entries.entrySet().iterator(); it.hasNext(); ) {
+            var pair = it.next();
+            Entry entry = pair.getValue();
+            if (entry.loader == loader) {
+                if (--entry.references <= 0) {
+                    it.remove();
+                    if (loader.getModel() != null)
+                        loader.getModel().dispose();
+                    loader.dispose();
+                    Logger.debug("Model", "Disposed the model " + pair.getKey());
+                }
+                return;
+            }
+        }
+    }
+
+    /** Gets the number of the models in the cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+
+    private static class Entry {
+        private final ModelLoader loader;
+        private int references = 0;
+
+        private Entry(ModelLoader loader) {
+            this.loader = loader;
+        }
+    }
+}
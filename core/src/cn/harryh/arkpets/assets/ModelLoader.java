@@ -0,0 +1,448 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
+import cn.harryh.arkpets.concurrent.ProcessPool;
+import cn.harryh.arkpets.utils.Logger;
+import com.alibaba.fastjson.JSONObject;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas.TextureAtlasData;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.esotericsoftware.spine.SkeletonBinary;
+import com.esotericsoftware.spine.SkeletonData;
+import com.esotericsoftware.spine.SkeletonJson;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.io.File.separator;
+
+
+/** The Model Loader loads a Spine model asset in stages.
+ * <hr>
+ * The file reading, the PNG decoding and the skeleton parsing run on the worker threads,
+ * while only the texture uploading runs on the GL thread, in {@link #update()}.
+ * So that the app can keep rendering (and responding) while the model is being loaded.
+ * The listeners are always notified on the GL thread, and the time spent in each phase is logged.
+ * @since ArkPets 3.3
+ */
+public class ModelLoader {
+    private final String assetLocation;
+    private final AssetAccessor accessor;
+    private final FileHandle atlasFile;
+    private final FileHandle skelFile;
+    private final float skelScale;
+    private final Executor executor;
+    private final AtomicInteger finishedSteps = new AtomicInteger();
+    private volatile int totalSteps = 5;
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    private Stage stage = Stage.IDLE;
+    private long startTime;
+    private CompletableFuture<TextureAtlasData> atlasDataFuture;
+    private CompletableFuture<Pixmap[]> pixmapsFuture;
+    private CompletableFuture<BufferedFileHandle> skelFuture;
+    private CompletableFuture<AssetCache> cacheFuture;
+    private CompletableFuture<SkeletonData> skeletonFuture;
+    private TextureAtlas atlas;
+    private Model model;
+    private Throwable failure;
+
+    protected static final String skelFormatKey = "skel:format";
+
+    /** Initializes a Model Loader.
+     * @param assetLocation The directory where the asset files located in.
+     * @param accessor The Asset Accessor of the asset.
+     * @param skelScale The scale to apply to the skeleton.
+     */
+    public ModelLoader(String assetLocation, AssetAccessor accessor, float skelScale) {
+        this(assetLocation, accessor, skelScale, ProcessPool.getInstance());
+    }
+
+    /** Initializes a Model Loader which runs the worker tasks on the given executor.
+     * @param assetLocation The directory where the asset files located in.
+     * @param accessor The Asset Accessor of the asset.
+     * @param skelScale The scale to apply to the skeleton.
+     * @param executor The executor of the worker tasks.
+     */
+    ModelLoader(String assetLocation, AssetAccessor accessor, float skelScale, Executor executor) {
+        this.executor = executor;
+        this.assetLocation = assetLocation;
+        this.accessor = accessor;
+        atlasFile = Gdx.files.internal(assetLocation + separator + accessor.getFirstFileOf(".atlas"));
+        skelFile = Gdx.files.internal(assetLocation + separator + accessor.getFirstFileOf(".skel"));
+        this.skelScale = skelScale;
+    }
+
+    /** Adds a listener to be notified of the loading progress.
+     * A listener added after the loading finished will be notified in the next {@link #update()}.
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /** Removes a listener.
+     * @param listener The listener.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Starts loading the model asynchronously.
+     * {@link #update()} should be called on the GL thread once per frame since then.
+     */
+    public void start() {
+        if (stage != Stage.IDLE)
+            throw new IllegalStateException("The loader has already started.");
+        stage = Stage.LOADING;
+        startTime = System.nanoTime();
+        try {
+            atlasDataFuture = CompletableFuture.supplyAsync(this::readAtlasData, executor);
+            pixmapsFuture = atlasDataFuture.thenCompose(this::decodePagesAsync);
+            skelFuture = CompletableFuture.supplyAsync(this::readSkel, executor);
+            cacheFuture = CompletableFuture.supplyAsync(this::openCache, executor);
+        } catch (RejectedExecutionException e) {
+            // The listeners added later will be notified of the failure in the next update
+            fail(e);
+        }
+    }
+
+    /** Updates the loading on the GL thread.
+     * @return true if the loading has finished, whether it succeeded or not.
+     */
+    public boolean update() {
+        try {
+            switch (stage) {
+                case IDLE -> throw new IllegalStateException("The loader hasn't started yet.");
+                case LOADING -> {
+                    if (pixmapsFuture.isDone()) {
+                        atlas = uploadPages(atlasDataFuture.join(), pixmapsFuture.join());
+                        stage = Stage.PARSING;
+                        final TextureAtlas finalAtlas = atlas;
+                        skeletonFuture = skelFuture.thenCombineAsync(cacheFuture,
+                                (file, cache) -> parseSkel(file, cache, finalAtlas), executor);
+                    }
+                    notifyProgress();
+                }
+                case PARSING -> {
+                    if (skeletonFuture.isDone()) {
+                        model = new Model(atlas, skeletonFuture.join(), cacheFuture.join());
+                        stage = Stage.READY;
+                        Logger.info("Model", "Model loaded in " + getElapsedMillis(startTime) + "ms");
+                        notifyProgress();
+                        notifyReady();
+                    } else {
+                        notifyProgress();
+                    }
+                }
+                case READY -> notifyReady();
+                case FAILED -> notifyFailed(null);
+            }
+        } catch (CompletionException | GdxRuntimeException e) {
+            fail(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+        }
+        return stage == Stage.READY || stage == Stage.FAILED;
+    }
+
+    /** Loads the model synchronously on the current thread, which must be the GL thread.
+     * @return The loaded model.
+     * @throws GdxRuntimeException If the model asset is inaccessible or corrupted.
+     */
+    public Model loadNow() {
+        if (stage != Stage.IDLE)
+            throw new IllegalStateException("The loader has already started.");
+        startTime = System.nanoTime();
+        TextureAtlasData data = readAtlasData();
+        Pixmap[] pixmaps = new Pixmap[data.getPages().size];
+        for (int i = 0; i < pixmaps.length; i++)
+            pixmaps[i] = decodePage(data.getPages().get(i));
+        atlas = uploadPages(data, pixmaps);
+        AssetCache cache = openCache();
+        model = new Model(atlas, parseSkel(readSkel(), cache, atlas), cache);
+        stage = Stage.READY;
+        Logger.info("Model", "Model loaded in " + getElapsedMillis(startTime) + "ms");
+        return model;
+    }
+
+    /** Gets the current stage of the loading.
+     */
+    public Stage getStage() {
+        return stage;
+    }
+
+    /** Gets the estimated progress of the loading.
+     * @return The progress in range [0, 1].
+     */
+    public float getProgress() {
+        return Math.min(1f, finishedSteps.get() / (float)totalSteps);
+    }
+
+    /** Gets the loaded model.
+     * @return The model, {@code null} if it is not ready yet.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /** Gets the cause of the failure.
+     * @return The cause, {@code null} if the loading hasn't failed.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /** Releases the intermediate resources if the loading is not finished.
+     * Note that the resources of a loaded model won't be released, see {@link Model#dispose()}.
+     */
+    public void dispose() {
+        if (stage == Stage.LOADING && pixmapsFuture != null)
+            pixmapsFuture.thenAccept(ModelLoader::disposePixmaps);
+        if (stage == Stage.PARSING && atlas != null)
+            atlas.dispose();
+        if (stage != Stage.READY)
+            stage = Stage.FAILED;
+    }
+
+    private TextureAtlasData readAtlasData() {
+        long start = System.nanoTime();
+        TextureAtlasData data = new TextureAtlasData(atlasFile, atlasFile.parent(), false);
+        totalSteps = 4 + data.getPages().size;
+        finishedSteps.incrementAndGet();
+        Logger.debug("Model", "Phase atlas reading took " + getElapsedMillis(start) + "ms");
+        return data;
+    }
+
+    private CompletableFuture<Pixmap[]> decodePagesAsync(TextureAtlasData data) {
+        final long start = System.nanoTime();
+        final int size = data.getPages().size;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        CompletableFuture<Pixmap>[] futures = new CompletableFuture[size];
+        for (int i = 0; i < size; i++) {
+            final TextureAtlasData.Page page = data.getPages().get(i);
+            try {
+                futures[i] = CompletableFuture.supplyAsync(() -> decodePage(page), executor);
+            } catch (RejectedExecutionException e) {
+                futures[i] = CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.allOf(futures).handle((v, e) -> {
+            Pixmap[] pixmaps = new Pixmap[size];
+            for (int i = 0; i < size; i++)
+                pixmaps[i] = futures[i].isCompletedExceptionally() ? null : futures[i].join();
+            if (e != null) {
+                // Release the pages that have been decoded
+                disposePixmaps(pixmaps);
+                throw e instanceof CompletionException ? (CompletionException)e : new CompletionException(e);
+            }
+            Logger.debug("Model", "Phase page decoding (" + size + " pages) took " + getElapsedMillis(start) + "ms");
+            return pixmaps;
+        });
+    }
+
+    private Pixmap decodePage(TextureAtlasData.Page page) {
+        Pixmap pixmap = new Pixmap(page.textureFile);
+        finishedSteps.incrementAndGet();
+        return pixmap;
+    }
+
+    private TextureAtlas uploadPages(TextureAtlasData data, Pixmap[] pixmaps) {
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < pixmaps.length; i++) {
+                TextureAtlasData.Page page = data.getPages().get(i);
+                page.texture = new Texture(pixmaps[i], page.format, page.useMipMaps);
+            }
+        } finally {
+            disposePixmaps(pixmaps);
+        }
+        TextureAtlas atlas = new TextureAtlas(data);
+        finishedSteps.incrementAndGet();
+        Logger.debug("Model", "Phase texture uploading took " + getElapsedMillis(start) + "ms");
+        return atlas;
+    }
+
+    private BufferedFileHandle readSkel() {
+        long start = System.nanoTime();
+        BufferedFileHandle file = new BufferedFileHandle(skelFile, skelFile.readBytes());
+        finishedSteps.incrementAndGet();
+        Logger.debug("Model", "Phase skeleton reading took " + getElapsedMillis(start) + "ms");
+        return file;
+    }
+
+    private AssetCache openCache() {
+        long start = System.nanoTime();
+        AssetCache cache = AssetCache.open(assetLocation, accessor);
+        Logger.debug("Model", "Phase asset cache opening took " + getElapsedMillis(start) + "ms");
+        return cache;
+    }
+
+    private SkeletonData parseSkel(BufferedFileHandle file, AssetCache cache, TextureAtlas atlas) {
+        long start = System.nanoTime();
+        SkeletonFormat format = getSkelFormat(file, cache);
+        SkeletonData skeletonData;
+        // Load skel (use SkeletonJson instead of SkeletonBinary if the file type is JSON)
+        if (format == SkeletonFormat.JSON) {
+            SkeletonJson json = new SkeletonJson(atlas);
+            json.setScale(skelScale);
+            skeletonData = json.readSkeletonData(file);
+        } else {
+            SkeletonBinary binary = new SkeletonBinary(atlas);
+            binary.setScale(skelScale);
+            skeletonData = binary.readSkeletonData(file);
+        }
+        finishedSteps.incrementAndGet();
+        Logger.debug("Model", "Phase skeleton parsing (" + format + ") took " + getElapsedMillis(start) + "ms");
+        return skeletonData;
+    }
+
+    private static SkeletonFormat getSkelFormat(BufferedFileHandle file, AssetCache cache) {
+        JSONObject cached = cache == null ? null : cache.get(skelFormatKey);
+        if (cached != null) {
+            try {
+                return SkeletonFormat.valueOf(cached.getString("format"));
+            } catch (IllegalArgumentException | NullPointerException ignored) {
+            }
+        }
+        SkeletonFormat format = SkeletonFormat.sniff(file.bytes);
+        if (cache != null) {
+            JSONObject entry = new JSONObject();
+            entry.put("format", format.name());
+            cache.put(skelFormatKey, entry);
+            cache.save();
+        }
+        return format;
+    }
+
+    private void notifyProgress() {
+        for (Listener listener : listeners.toArray(new Listener[0]))
+            listener.onProgress(stage, getProgress());
+    }
+
+    private void notifyReady() {
+        // Each listener is notified only once, so the notified ones are removed
+        while (!listeners.isEmpty())
+            listeners.remove(0).onReady(model);
+    }
+
+    private void notifyFailed(Throwable cause) {
+        if (cause != null)
+            failure = cause;
+        while (!listeners.isEmpty())
+            listeners.remove(0).onFailed(failure);
+    }
+
+    private void fail(Throwable cause) {
+        dispose();
+        stage = Stage.FAILED;
+        Logger.error("Model", "Failed to load the model, details see below.", cause);
+        notifyFailed(cause);
+    }
+
+    private static void disposePixmaps(Pixmap[] pixmaps) {
+        for (Pixmap pixmap : pixmaps)
+            if (pixmap != null && !pixmap.isDisposed())
+                pixmap.dispose();
+    }
+
+    private static long getElapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+
+    /** The stages of the model loading.
+     */
+    public enum Stage {
+        /** Not started. */
+        IDLE,
+        /** Reading the files and decoding the pages. */
+        LOADING,
+        /** Parsing the skeleton. */
+        PARSING,
+        /** Loaded successfully. */
+        READY,
+        /** Failed or disposed. */
+        FAILED
+    }
+
+
+    /** The listener of the model loading, which is notified on the GL thread.
+     */
+    public interface Listener {
+        /** Called on every update during the loading.
+         * @param stage The current stage.
+         * @param progress The estimated progress in range [0, 1].
+         */
+        default void onProgress(Stage stage, float progress) {
+        }
+
+        /** Called once the model is loaded.
+         * @param model The loaded model.
+         */
+        void onReady(Model model);
+
+        /** Called once the loading failed.
+         * @param cause The cause of the failure.
+         */
+        void onFailed(Throwable cause);
+    }
+
+
+    /** The loaded model.
+     * @param atlas The texture atlas.
+     * @param skeletonData The skeleton data.
+     * @param assetCache The cache of the asset, {@code null} if unavailable.
+     */
+    public record Model(TextureAtlas atlas, SkeletonData skeletonData, AssetCache assetCache) {
+        /** Releases the textures of the model.
+         * Note that the model shouldn't be used by any character since then.
+         */
+        public void dispose() {
+            atlas.dispose();
+        }
+    }
+
+
+    /** The file handle whose content has been read into memory,
+     * so that it can be parsed more than once without touching the disk again.
+     */
+    private static class BufferedFileHandle extends FileHandle {
+        private final byte[] bytes;
+
+        private BufferedFileHandle(FileHandle origin, byte[] bytes) {
+            super(origin.file(), origin.type());
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream read() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public byte[] readBytes() {
+            return bytes.clone();
+        }
+
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+    }
+}
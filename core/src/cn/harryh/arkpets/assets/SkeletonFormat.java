@@ -0,0 +1,33 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+
+/** The format of a Spine skeleton file.
+ * @since ArkPets 3.3
+ */
+public enum SkeletonFormat {
+    /** The binary format, which is read by {@code SkeletonBinary}. */
+    BINARY,
+    /** The JSON format, which is read by {@code SkeletonJson}. */
+    JSON;
+
+    /** Detects the format of a skeleton file according to its first bytes.
+     * <hr>
+     * A JSON skeleton starts with a {@code '{'}, after an optional UTF-8 BOM and whitespaces.
+     * A binary skeleton starts with the varint length of its hash string, which is far less than {@code '{'} (123).
+     * @param bytes The content (or the head) of the file.
+     * @return The detected format.
+     */
+    public static SkeletonFormat sniff(byte[] bytes) {
+        int i = 0;
+        // Skip the UTF-8 BOM
+        if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF)
+            i = 3;
+        // Skip the whitespaces
+        while (i < bytes.length && (bytes[i] == ' ' || bytes[i] == '\t' || bytes[i] == '\r' || bytes[i] == '\n'))
+            i++;
+        return i < bytes.length && bytes[i] == '{' ? JSON : BINARY;
+    }
+}
@@ -0,0 +1,90 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+
+/** The compact codec, each frame of which is length-prefixed binary.
+ * <hr>
+ * The layout of a frame (big-endian) is:
+ * <ol>
+ *     <li>{@code int} The length of the rest of the frame, which is limited by {@link SocketCodec#maxFrameLength}
+ *     (less than 2^24) so the first byte is always zero;</li>
+ *     <li>{@code byte} The ordinal of the operation, {@code -1} if absent;</li>
+ *     <li>{@code byte} The flags, indicating whether the UUID and the message are present;</li>
+ *     <li>{@code long, long} The most and the least significant bits of the UUID, if present;</li>
+ *     <li>{@code byte[]} The UTF-8 message, if present, till the end of the frame.</li>
+ * </ol>
+ * @since ArkPets 3.3
+ */
+public final class BinarySocketCodec implements SocketCodec {
+    private static final int headerLength = 4;
+    private static final int maxBodyLength = maxFrameLength - headerLength;
+    private static final int flagUuid = 1;
+    private static final int flagMsg = 2;
+    private static final SocketData.Operation[] operations = SocketData.Operation.values();
+
+    BinarySocketCodec() {
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public ByteBuffer encode(SocketData data) {
+        byte[] msg = data.msg != null ? data.getMsgString().getBytes(StandardCharsets.UTF_8) : null;
+        int flags = (data.uuid != null ? flagUuid : 0) | (msg != null ? flagMsg : 0);
+        int bodyLength = 2 + (data.uuid != null ? 16 : 0) + (msg != null ? msg.length : 0);
+        if (bodyLength > maxBodyLength)
+            throw new IllegalArgumentException("The frame is too long");
+        ByteBuffer frame = ByteBuffer.allocate(headerLength + bodyLength);
+        frame.putInt(bodyLength);
+        frame.put((byte)(data.operation != null ? data.operation.ordinal() : -1));
+        frame.put((byte)flags);
+        if (data.uuid != null)
+            frame.putLong(data.uuid.getMostSignificantBits()).putLong(data.uuid.getLeastSignificantBits());
+        if (msg != null)
+            frame.put(msg);
+        return frame.flip();
+    }
+
+    @Override
+    public SocketData decode(ByteBuffer buffer)
+            throws ProtocolException {
+        if (buffer.remaining() < headerLength)
+            return null;
+        int start = buffer.position();
+        int bodyLength = buffer.getInt(start);
+        if (bodyLength < 2 || bodyLength > maxBodyLength)
+            throw new ProtocolException("Invalid frame length " + bodyLength);
+        if (buffer.remaining() < headerLength + bodyLength)
+            return null;
+        int end = start + headerLength + bodyLength;
+        buffer.position(start + headerLength);
+        int ordinal = buffer.get();
+        int flags = buffer.get();
+        UUID uuid = null;
+        if ((flags & flagUuid) != 0) {
+            if (end - buffer.position() < 16)
+                throw new ProtocolException("Truncated UUID");
+            uuid = new UUID(buffer.getLong(), buffer.getLong());
+        }
+        String msg = null;
+        if ((flags & flagMsg) != 0) {
+            byte[] bytes = new byte[end - buffer.position()];
+            buffer.get(bytes);
+            msg = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(end);
+        // An unknown operation (e.g. from a newer version) is decoded as null
+        SocketData.Operation operation = ordinal >= 0 && ordinal < operations.length ? operations[ordinal] : null;
+        return SocketData.of(uuid, operation, msg);
+    }
+}
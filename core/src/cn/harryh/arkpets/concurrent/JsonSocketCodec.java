@@ -0,0 +1,61 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/** The legacy codec, each frame of which is a line of JSON text.
+ * @since ArkPets 3.3
+ */
+public final class JsonSocketCodec implements SocketCodec {
+    private static final byte delimiter = '\n';
+
+    JsonSocketCodec() {
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public ByteBuffer encode(SocketData data) {
+        byte[] bytes = data.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length + 1 > maxFrameLength)
+            throw new IllegalArgumentException("The frame is too long");
+        ByteBuffer frame = ByteBuffer.allocate(bytes.length + 1);
+        frame.put(bytes).put(delimiter).flip();
+        return frame;
+    }
+
+    @Override
+    public SocketData decode(ByteBuffer buffer) {
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            int end = -1;
+            for (int i = start; i < buffer.limit(); i++) {
+                if (buffer.get(i) == delimiter) {
+                    end = i;
+                    break;
+                }
+            }
+            if (end < 0)
+                return null;
+            buffer.position(end + 1);
+            int length = end > start && buffer.get(end - 1) == '\r' ? end - 1 - start : end - start;
+            byte[] bytes = new byte[length];
+            buffer.get(start, bytes);
+            try {
+                SocketData data = SocketData.of(new String(bytes, StandardCharsets.UTF_8));
+                if (data != null)
+                    return data;
+            } catch (RuntimeException ignored) {
+                // Skip the line that is not a valid JSON
+            }
+        }
+        return null;
+    }
+}
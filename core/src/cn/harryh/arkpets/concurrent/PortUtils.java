@@ -4,21 +4,30 @@
 package cn.harryh.arkpets.concurrent;
 
 import cn.harryh.arkpets.utils.Logger;
-import com.alibaba.fastjson2.JSONException;
-import com.alibaba.fastjson2.JSONObject;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
 import java.net.ConnectException;
 import java.net.DatagramSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
 import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.UUID;
 
+import static cn.harryh.arkpets.Const.serverHost;
+
 
 public class PortUtils {
+    private static final int probeTimeoutMillis = 100;
+    /** The suffix of the offered codec in the handshake request, which offers to keep the connection.
+     * A legacy server regards the whole offer as an unknown codec, and responds without naming any codec.
+     */
+    static final String sessionOfferSuffix = "+session";
+
     /** Gets server port for client to connect to.
      * @param expectedPorts The candidate ports to query.
      * @return A server port.
@@ -26,20 +35,48 @@ public class PortUtils {
      */
     public static int getServerPort(int[] expectedPorts)
             throws NoServerRunningException {
+        return probeServer(expectedPorts).port();
+    }
+
+    /** Finds the running server by handshaking, and negotiates the codec of the frames at the same time.
+     * The handshake request offers the binary codec, and a server that supports it names the codec in the response,
+     * while a legacy server simply responds without naming any codec.
+     * The connection of the handshake is closed after that.
+     * @param expectedPorts The candidate ports to query.
+     * @return The probe result.
+     * @throws NoServerRunningException If no server is running.
+     * @since ArkPets 3.3
+     */
+    public static ServerProbe probeServer(int[] expectedPorts)
+            throws NoServerRunningException {
         for (int serverPort : expectedPorts) {
-            try (Socket socket = new Socket("localhost", serverPort)) {
-                socket.setSoTimeout(100);
-                PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                out.println(SocketData.ofOperation(UUID.randomUUID(), SocketData.Operation.HANDSHAKE_REQUEST));
-                SocketData socketData = JSONObject.parseObject(in.readLine(), SocketData.class);
-                out.close();
-                in.close();
-                if (socketData.operation == SocketData.Operation.HANDSHAKE_RESPONSE)
-                    return serverPort;
-            } catch (ConnectException ignored) {
-            } catch (JSONException ignored) {
-                Logger.warn("SocketServer", "Port " + serverPort + " responded with an invalid content");
+            Handshake handshake = handshake(serverPort, false);
+            if (handshake != null)
+                return new ServerProbe(serverPort, handshake.codec() != null ? handshake.codec() : SocketCodec.JSON);
+        }
+        throw new NoServerRunningException();
+    }
+
+    /** Finds the running server by handshaking, and keeps the connection of the handshake as the session channel,
+     * so that connecting to the server costs only one connection.
+     * The handshake request additionally offers to keep the connection, which a server that supports it accepts
+     * by naming the codec in the response. Since a legacy server closes the connection after the handshake anyway,
+     * a new connection is opened to it instead, which uses the legacy JSON frames.
+     * @param expectedPorts The candidate ports to query.
+     * @return The connection, whose channel is in blocking mode.
+     * @throws NoServerRunningException If no server is running.
+     * @since ArkPets 3.3
+     */
+    public static ServerConnection connectServer(int[] expectedPorts)
+            throws NoServerRunningException {
+        for (int serverPort : expectedPorts) {
+            Handshake handshake = handshake(serverPort, true);
+            if (handshake == null)
+                continue;
+            if (handshake.channel() != null)
+                return new ServerConnection(serverPort, handshake.codec(), handshake.channel());
+            try {
+                return new ServerConnection(serverPort, SocketCodec.JSON, SocketChannel.open(new InetSocketAddress(serverHost, serverPort)));
             } catch (IOException ignored) {
                 Logger.warn("SocketServer", "Port " + serverPort + " is inaccessible");
             }
@@ -47,6 +84,67 @@ public class PortUtils {
         throw new NoServerRunningException();
     }
 
+    /** Handshakes with the given port.
+     * @param serverPort The port to query.
+     * @param keepSession Whether to offer keeping the connection as the session channel.
+     * @return The result, or {@code null} if no server is running on the port.
+     */
+    private static Handshake handshake(int serverPort, boolean keepSession) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.socket().connect(new InetSocketAddress(serverHost, serverPort), probeTimeoutMillis);
+            channel.socket().setSoTimeout(probeTimeoutMillis);
+            String offer = SocketCodec.BINARY.getName() + (keepSession ? sessionOfferSuffix : "");
+            ByteBuffer request = SocketCodec.JSON.encode(SocketData.of(UUID.randomUUID(), SocketData.Operation.HANDSHAKE_REQUEST, offer));
+            while (request.hasRemaining())
+                channel.write(request);
+            SocketData socketData = SocketCodec.JSON.decode(readLine(channel.socket().getInputStream()));
+            if (socketData == null) {
+                Logger.warn("SocketServer", "Port " + serverPort + " responded with an invalid content");
+                return null;
+            }
+            if (socketData.operation != SocketData.Operation.HANDSHAKE_RESPONSE)
+                return null;
+            SocketCodec codec = socketData.msg != null ? SocketCodec.of(socketData.getMsgString()) : null;
+            if (codec == null || !keepSession)
+                return new Handshake(codec, null);
+            // The server has accepted keeping the connection
+            channel.socket().setSoTimeout(0);
+            Handshake handshake = new Handshake(codec, channel);
+            channel = null;
+            return handshake;
+        } catch (ConnectException ignored) {
+        } catch (IOException ignored) {
+            Logger.warn("SocketServer", "Port " + serverPort + " is inaccessible");
+        } finally {
+            if (channel != null)
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+        }
+        return null;
+    }
+
+    /** Reads a line byte by byte, so that no byte after the line is consumed from the stream.
+     * @return A buffer containing the line and its delimiter, ready to be read.
+     */
+    private static ByteBuffer readLine(InputStream in)
+            throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        do {
+            b = in.read();
+            if (b < 0)
+                throw new EOFException("The connection was closed");
+            if (line.size() >= SocketCodec.maxFrameLength)
+                throw new ProtocolException("The line is too long");
+            line.write(b);
+        } while (b != '\n');
+        return ByteBuffer.wrap(line.toByteArray());
+    }
+
     /** Gets an available port for server to bind to.
      * @param expectedPorts The candidate ports to query.
      * @return A port number.
@@ -70,6 +168,33 @@ public class PortUtils {
     }
 
 
+    /** The result of probing the server.
+     * @param port The port of the server.
+     * @param codec The codec that the server is able to decode.
+     * @since ArkPets 3.3
+     */
+    public record ServerProbe(int port, SocketCodec codec) {
+    }
+
+
+    /** The connection to the server, which is ready to be the target of a {@link SocketSession}.
+     * @param port The port of the server.
+     * @param codec The codec that the server is able to decode.
+     * @param channel The connected channel.
+     * @since ArkPets 3.3
+     */
+    public record ServerConnection(int port, SocketCodec codec, SocketChannel channel) {
+    }
+
+
+    /** The result of a handshake.
+     * @param codec The codec named by the server, or {@code null} if the server is a legacy one.
+     * @param channel The channel kept as the session channel, or {@code null} if it has been closed.
+     */
+    private record Handshake(SocketCodec codec, SocketChannel channel) {
+    }
+
+
     /** This exception indicates that there is no port in idle.
      */
     public static class NoPortAvailableException extends IllegalStateException {
@@ -36,12 +36,14 @@ public final class ProcessPool implements Executor {
     private ProcessPool() {
     }
 
+    /** Executes the given task on a daemon thread of the pool.
+     * @param task The task.
+     * @throws RejectedExecutionException If the pool has been shut down, so that the caller can handle it
+     *                                    (e.g. a {@code CompletableFuture} will complete exceptionally instead of never).
+     */
     @Override
     public void execute(Runnable task) {
-        try {
-            executorService.submit(task);
-        } catch (RejectedExecutionException ignored) {
-        }
+        executorService.submit(task);
     }
 
     public void shutdown() {
@@ -60,6 +62,8 @@ public final class ProcessPool implements Executor {
             command.add(javaBin);
             if (!jvmArgs.isEmpty())
                 command.addAll(jvmArgs);
+            if (jvmArgs.stream().noneMatch(SharedArchive::isSharingArg))
+                command.addAll(SharedArchive.getJvmArgs(clazz));
             command.add("-cp");
             command.add(classpath);
             command.add(className);
@@ -0,0 +1,108 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import cn.harryh.arkpets.utils.IOUtils.FileUtil;
+import cn.harryh.arkpets.utils.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The helper of the AppCDS (Application Class Data Sharing) archives of the child processes.
+ * <hr>
+ * An archive is created by a training run of the main class with {@code -XX:ArchiveClassesAtExit},
+ * during which the process writes a key file beside the archive.
+ * The key identifies the JVM and the classpath (including the size and the modification time of every JAR),
+ * because the JVM refuses an archive whose classpath has changed since it was dumped.
+ * The JARs are identified by their names rather than their paths, since the JVM accepts an archive
+ * whose classpath has been moved as a whole, e.g. when the packaged app is installed.
+ * A child process is only started with the archive when the key file matches the current environment.
+ * @see ProcessPool#submit
+ * @since ArkPets 3.3
+ */
+public final class SharedArchive {
+    private SharedArchive() {
+    }
+
+    /** Gets the archive file of the given main class.
+     * @param clazz The main class.
+     * @return The archive file, which may not exist.
+     */
+    public static File getArchiveFile(Class<?> clazz) {
+        return new File(PathConfig.cdsArchiveDirPath + clazz.getSimpleName() + ".jsa");
+    }
+
+    /** Gets the JVM args that make a child process of the given main class use its archive.
+     * @param clazz The main class.
+     * @return The JVM args, or an empty list if the archive is missing or doesn't match the current environment.
+     */
+    public static List<String> getJvmArgs(Class<?> clazz) {
+        File archive = getArchiveFile(clazz);
+        File keyFile = getKeyFile(archive);
+        if (!archive.isFile() || !keyFile.isFile())
+            return List.of();
+        try {
+            if (!getKey().equals(FileUtil.readString(keyFile, charsetDefault).trim())) {
+                Logger.debug("SharedArchive", "The archive " + archive + " is outdated");
+                return List.of();
+            }
+        } catch (IOException e) {
+            Logger.warn("SharedArchive", "Failed to read the key of " + archive);
+            return List.of();
+        }
+        return List.of("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+    }
+
+    /** Checks whether the given JVM arg configures the class data sharing,
+     * in which case the archive shouldn't be applied automatically.
+     * @param jvmArg The JVM arg.
+     * @return true if it is one of {@code -Xshare}, {@code -XX:SharedArchiveFile} and {@code -XX:ArchiveClassesAtExit}.
+     */
+    public static boolean isSharingArg(String jvmArg) {
+        return jvmArg.startsWith("-Xshare") ||
+                jvmArg.startsWith("-XX:SharedArchiveFile") ||
+                jvmArg.startsWith("-XX:ArchiveClassesAtExit");
+    }
+
+    /** Writes the key of the current environment beside the archive of the given main class.
+     * This should be called by the training run which dumps the archive.
+     * @param clazz The main class.
+     */
+    public static void writeKey(Class<?> clazz) {
+        File keyFile = getKeyFile(getArchiveFile(clazz));
+        try {
+            if (keyFile.getParentFile() != null && !keyFile.getParentFile().isDirectory() && !keyFile.getParentFile().mkdirs())
+                throw new IOException("Failed to create the directory");
+            FileUtil.writeString(keyFile, charsetDefault, getKey(), false);
+            Logger.info("SharedArchive", "Wrote the archive key to " + keyFile);
+        } catch (IOException e) {
+            Logger.error("SharedArchive", "Failed to write the archive key, details see below.", e);
+        }
+    }
+
+    private static File getKeyFile(File archive) {
+        return new File(archive.getPath() + ".key");
+    }
+
+    static String getKey() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(System.getProperty("java.vm.version")).append('\n');
+        for (String path : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            File entry = new File(path);
+            // The size and the modification time of a directory don't reflect its content
+            if (entry.isDirectory())
+                builder.append(entry.getAbsolutePath()).append('\n');
+            else
+                builder.append(entry.getName()).append('|')
+                        .append(entry.length()).append('|')
+                        .append(entry.lastModified()).append('\n');
+        }
+        return FileUtil.getMD5(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
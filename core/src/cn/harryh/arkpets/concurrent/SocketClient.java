@@ -5,11 +5,7 @@ package cn.harryh.arkpets.concurrent;
 
 import cn.harryh.arkpets.tray.MemberTrayImpl;
 import cn.harryh.arkpets.utils.Logger;
-import com.alibaba.fastjson2.JSONException;
-import com.alibaba.fastjson2.JSONObject;
 
-import java.io.IOException;
-import java.net.Socket;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
@@ -44,22 +40,18 @@ public class SocketClient {
         if (connected)
             return;
         try {
-            int port = PortUtils.getServerPort(serverPorts);
-            Logger.info("SocketClient", "Connecting to server on port " + port);
-            try {
-                Socket socket = new Socket(serverHost, port);
-                connected = true;
-                if (this.session != null)
-                    this.session.close();
-                session.setTarget(socket);
-                ProcessPool.getInstance().execute(session);
-                this.session = session;
-                Logger.info("SocketClient", "(+)" + session + " connected");
-                if (onConnected != null)
-                    onConnected.run();
-            } catch (IOException e) {
-                Logger.error("SocketClient", "Connecting to server on port " + port + "failed, details see below.", e);
-            }
+            // The connection of the handshake becomes the channel of the session
+            PortUtils.ServerConnection connection = PortUtils.connectServer(serverPorts);
+            Logger.info("SocketClient", "Connected to server on port " + connection.port() + " with " + connection.codec().getName() + " frames");
+            connected = true;
+            if (this.session != null)
+                this.session.close();
+            session.setEncoder(connection.codec());
+            session.setTarget(connection.channel());
+            this.session = session;
+            Logger.info("SocketClient", "(+)" + session + " connected");
+            if (onConnected != null)
+                onConnected.run();
         } catch (PortUtils.NoServerRunningException e) {
             Logger.debug("SocketClient", "Connecting to server failed. " + e.getMessage());
         }
@@ -78,7 +70,7 @@ public class SocketClient {
 
     public void sendRequest(SocketData socketData) {
         if (connected && session != null)
-             session.send(JSONObject.toJSONString(socketData));
+             session.send(socketData);
     }
 
 
@@ -94,25 +86,21 @@ public class SocketClient {
         }
 
         @Override
-        public void receive(String request) {
-            try {
-                SocketData socketData = SocketData.of(request);
-                if (socketData == null || socketData.operation == null)
-                    return;
-                if (uuid == null)
-                    uuid = socketData.uuid;
-                if (socketData.uuid.compareTo(this.uuid) == 0 && memberTray != null) {
-                    // If the connection is normal:
-                    switch (socketData.operation) {
-                        case LOGOUT                 -> memberTray.onExit();
-                        case KEEP_ACTION            -> memberTray.onKeepAnimEn();
-                        case NO_KEEP_ACTION         -> memberTray.onKeepAnimDis();
-                        case TRANSPARENT_MODE       -> memberTray.onTransparentEn();
-                        case NO_TRANSPARENT_MODE    -> memberTray.onTransparentDis();
-                        case CHANGE_STAGE           -> memberTray.onChangeStage();
-                    }
+        public void receive(SocketData socketData) {
+            if (socketData.operation == null)
+                return;
+            if (uuid == null)
+                uuid = socketData.uuid;
+            if (socketData.uuid.compareTo(this.uuid) == 0 && memberTray != null) {
+                // If the connection is normal:
+                switch (socketData.operation) {
+                    case LOGOUT                 -> memberTray.onExit();
+                    case KEEP_ACTION            -> memberTray.onKeepAnimEn();
+                    case NO_KEEP_ACTION         -> memberTray.onKeepAnimDis();
+                    case TRANSPARENT_MODE       -> memberTray.onTransparentEn();
+                    case NO_TRANSPARENT_MODE    -> memberTray.onTransparentDis();
+                    case CHANGE_STAGE           -> memberTray.onChangeStage();
                 }
-            } catch (JSONException ignored) {
             }
         }
 
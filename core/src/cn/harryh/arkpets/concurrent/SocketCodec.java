@@ -0,0 +1,66 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+
+/** The codec that converts {@link SocketData} from and to the frames on the wire.
+ * <hr>
+ * Every frame of {@link #BINARY} begins with a zero byte, which never begins a frame of {@link #JSON},
+ * so that the receiver can tell the codec of each frame by its first byte (see {@link #sniff(byte)}).
+ * A peer only sends binary frames after knowing that the other side supports them, see {@link PortUtils#probeServer}.
+ * @since ArkPets 3.3
+ */
+public interface SocketCodec {
+    /** The legacy codec, which sends a line of JSON per frame. */
+    SocketCodec JSON = new JsonSocketCodec();
+    /** The compact codec, which sends a length-prefixed binary frame. */
+    SocketCodec BINARY = new BinarySocketCodec();
+    /** The max length in bytes of a frame of any codec, including its header or delimiter.
+     * A longer frame is neither encoded nor received. */
+    int maxFrameLength = 1 << 20;
+
+    /** Gets the name of the codec, which is used in the negotiation.
+     * @return The name.
+     */
+    String getName();
+
+    /** Encodes the given data into a frame.
+     * @param data The data to encode.
+     * @return A buffer containing the whole frame, ready to be read.
+     * @throws IllegalArgumentException If the frame would be longer than {@link #maxFrameLength}.
+     */
+    ByteBuffer encode(SocketData data);
+
+    /** Decodes the first frame from the given buffer.
+     * If a frame is decoded, the position of the buffer is advanced to the end of the frame.
+     * @param buffer The buffer which contains the received bytes, ready to be read.
+     * @return The decoded data, or {@code null} if the frame is incomplete.
+     * @throws ProtocolException If the frame is malformed and the stream cannot be recovered.
+     */
+    SocketData decode(ByteBuffer buffer)
+            throws ProtocolException;
+
+    /** Gets the codec of a frame according to its first byte.
+     * @param firstByte The first byte of the frame.
+     * @return The codec.
+     */
+    static SocketCodec sniff(byte firstByte) {
+        return firstByte == 0 ? BINARY : JSON;
+    }
+
+    /** Gets the codec of the given name.
+     * @param name The name of the codec, nullable.
+     * @return The codec, or {@code null} if no codec matches.
+     */
+    static SocketCodec of(String name) {
+        if (BINARY.getName().equals(name))
+            return BINARY;
+        if (JSON.getName().equals(name))
+            return JSON;
+        return null;
+    }
+}
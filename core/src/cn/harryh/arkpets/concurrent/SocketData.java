@@ -25,7 +25,10 @@ public class SocketData implements Serializable {
         CHANGE_STAGE,
         HANDSHAKE_REQUEST,
         HANDSHAKE_RESPONSE,
-        ACTIVATE_LAUNCHER
+        ACTIVATE_LAUNCHER,
+        HOST_LOGIN,
+        LAUNCH_PET,
+        MEMORY_STATUS
     }
 
     /** The UUID for identification.
@@ -41,6 +44,10 @@ public class SocketData implements Serializable {
      */
     public StringDTO msg;
 
+    private SocketData() {
+        // Required by the deserialization of fastjson
+    }
+
     private SocketData(UUID uuid, Operation operation, StringDTO msg) {
         this.uuid       = uuid;
         this.operation  = operation;
@@ -61,10 +68,18 @@ public class SocketData implements Serializable {
         return JSONObject.parseObject(jsonString, SocketData.class);
     }
 
+    static SocketData of(UUID uuid, Operation operation, String msg) {
+        return new SocketData(uuid, operation, msg != null ? StringDTO.of(msg) : null);
+    }
+
     public static SocketData ofLogin(UUID uuid, String name) {
         return new SocketData(uuid, Operation.LOGIN, StringDTO.of(name));
     }
 
+    public static SocketData ofMemoryStatus(UUID uuid, String status) {
+        return new SocketData(uuid, Operation.MEMORY_STATUS, StringDTO.of(status));
+    }
+
     public static SocketData ofOperation(UUID uuid, Operation operation) {
         return new SocketData(uuid, operation, null);
     }
@@ -74,6 +89,10 @@ public class SocketData implements Serializable {
         public byte[] bytes;
         public String encoding;
 
+        private StringDTO() {
+            // Required by the deserialization of fastjson
+        }
+
         private StringDTO(byte[] bytes, String encoding) {
             this.bytes = bytes;
             this.encoding = encoding;
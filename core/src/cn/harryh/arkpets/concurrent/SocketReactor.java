@@ -0,0 +1,167 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import cn.harryh.arkpets.utils.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+/** The selector-based I/O loop that multiplexes all the socket channels of the current process on a single thread.
+ * <hr>
+ * The listening server channels and the {@link SocketSession}s are registered to the loop.
+ * All the I/O and the callbacks of the sessions run on the loop thread,
+ * other threads should submit their work via {@link #execute(Runnable)}.
+ * @since ArkPets 3.3
+ */
+public final class SocketReactor {
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile Thread thread;
+
+    private static volatile SocketReactor instance = null;
+
+    public static SocketReactor getInstance() {
+        if (instance == null)
+            synchronized (SocketReactor.class) {
+                if (instance == null)
+                    instance = new SocketReactor();
+            }
+        return instance;
+    }
+
+    private SocketReactor() {
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ProcessPool.getInstance().execute(this::loop);
+    }
+
+    /** Runs the given task on the loop thread.
+     * @param task The task.
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread)
+            selector.wakeup();
+    }
+
+    /** Waits until the tasks submitted before have run on the loop thread,
+     * e.g. the closing of the sessions, which flushes their queued requests.
+     * @param timeoutMillis The maximum time to wait, in milliseconds.
+     * @return true if the tasks have run, false if timed out or if called on the loop thread.
+     */
+    public boolean awaitTasks(long timeoutMillis) {
+        if (Thread.currentThread() == thread)
+            return false;
+        CountDownLatch latch = new CountDownLatch(1);
+        execute(latch::countDown);
+        try {
+            return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /** Starts accepting the connections of the given server channel.
+     * @param server The server channel, which has been bound to a port.
+     * @param acceptor The callback to handle a new connection, which runs on the loop thread.
+     */
+    public void listen(ServerSocketChannel server, Acceptor acceptor) {
+        execute(() -> {
+            try {
+                server.configureBlocking(false);
+                server.register(selector, SelectionKey.OP_ACCEPT, acceptor);
+            } catch (IOException e) {
+                Logger.error("SocketReactor", "Failed to listen on " + server + ", details see below.", e);
+            }
+        });
+    }
+
+    /** Starts the I/O of the given session.
+     * @param session The session whose target has been set.
+     */
+    void register(SocketSession session) {
+        execute(() -> {
+            try {
+                session.channel.configureBlocking(false);
+                session.onRegistered(session.channel.register(selector, SelectionKey.OP_READ, session));
+            } catch (IOException e) {
+                Logger.error("SocketReactor", "Failed to register " + session + ", details see below.", e);
+                session.close();
+            }
+        });
+    }
+
+    private void loop() {
+        thread = Thread.currentThread();
+        Logger.debug("SocketReactor", "Reactor is running");
+        while (selector.isOpen()) {
+            try {
+                // The tasks submitted by the loop thread itself don't wake up the selector, so don't block for them
+                if (tasks.isEmpty())
+                    selector.select();
+                else
+                    selector.selectNow();
+                Runnable task;
+                while ((task = tasks.poll()) != null)
+                    task.run();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    try {
+                        handle(key);
+                    } catch (CancelledKeyException ignored) {
+                    }
+                }
+            } catch (IOException e) {
+                Logger.error("SocketReactor", "An unexpected error occurred while selecting, details see below.", e);
+                return;
+            } catch (RuntimeException e) {
+                Logger.error("SocketReactor", "An unexpected error occurred in the reactor, details see below.", e);
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid())
+            return;
+        if (key.isAcceptable()) {
+            try {
+                SocketChannel channel = ((ServerSocketChannel)key.channel()).accept();
+                if (channel != null)
+                    ((Acceptor)key.attachment()).accept(channel);
+            } catch (IOException e) {
+                Logger.warn("SocketReactor", "Failed to accept a connection: " + e.getMessage());
+            }
+            return;
+        }
+        SocketSession session = (SocketSession)key.attachment();
+        if (key.isReadable())
+            session.onReadable();
+        if (key.isValid() && key.isWritable())
+            session.onWritable();
+    }
+
+
+    /** The callback to handle the accepted connections.
+     */
+    public interface Acceptor {
+        /** Handles a newly accepted connection, on the loop thread.
+         * @param channel The channel of the connection.
+         */
+        void accept(SocketChannel channel);
+    }
+}
@@ -6,25 +6,26 @@ package cn.harryh.arkpets.concurrent;
 import cn.harryh.arkpets.tray.HostTray;
 import cn.harryh.arkpets.tray.MemberTrayProxy;
 import cn.harryh.arkpets.utils.Logger;
-import com.alibaba.fastjson2.JSONException;
 
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static cn.harryh.arkpets.Const.serverPorts;
+import static cn.harryh.arkpets.Const.stopTimeoutMillis;
 
 
 public final class SocketServer {
     private int port;
-    private ServerSocket serverSocket = null;
+    private ServerSocketChannel serverChannel = null;
     private final Set<SocketSession> sessionList = new CopyOnWriteArraySet<>();
-    private Thread listener;
+    private volatile ServerSocketSession hostSession = null;
+    private boolean isHostStarting = false;
+    private int pendingLaunches = 0;
     private final AtomicBoolean running = new AtomicBoolean(false);
     private static volatile SocketServer instance = null;
 
@@ -51,39 +52,107 @@ public final class SocketServer {
             return;
         Logger.info("SocketServer", "Request to start server");
         this.port = PortUtils.getAvailablePort(serverPorts);
-        listener = new Thread(() -> {
-            try {
-                serverSocket = new ServerSocket(port);
-                Logger.info("SocketServer", "Server is running on port " + port);
-                while (!listener.isInterrupted()) {
-                    Socket socket = serverSocket.accept();
-                    SocketSession session = new ServerSocketSession(hostTray);
-                    session.setTarget(socket);
-                    sessionList.add(session);
-                    ProcessPool.getInstance().execute(session);
-                    Logger.info("SocketServer", "(+)" + session + " connected");
-                }
-                serverSocket.close();
-                Logger.info("SocketServer", "Server was stopped");
-            } catch (IOException e) {
-                Logger.error("SocketServer", "An unexpected error occurred while listening, details see below.", e);
-            } catch (RejectedExecutionException ignored) {
-            }
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            Logger.error("SocketServer", "An unexpected error occurred while binding, details see below.", e);
+            return;
+        }
+        // All the sessions are multiplexed on the reactor thread
+        SocketReactor.getInstance().listen(serverChannel, channel -> {
+            SocketSession session = new ServerSocketSession(hostTray);
+            sessionList.add(session);
+            session.setTarget(channel);
+            Logger.info("SocketServer", "(+)" + session + " connected");
         });
-        ProcessPool.getInstance().execute(listener);
+        Logger.info("SocketServer", "Server is running on port " + port);
         running.set(true);
     }
 
     /** Stops the server and close all the sessions.
+     * It returns after the queued requests of the sessions have been flushed,
+     * so that the requests sent just before (e.g. the logouts) won't be lost if the process exits then.
      */
     public synchronized void stopServer() {
         if (!running.get())
             return;
         Logger.info("SocketServer", "Request to stop server");
-        if (listener != null)
-            listener.interrupt();
+        ServerSocketChannel channel = serverChannel;
+        SocketReactor.getInstance().execute(() -> {
+            try {
+                channel.close();
+                Logger.info("SocketServer", "Server was stopped");
+            } catch (IOException ignored) {
+            }
+        });
         sessionList.forEach(SocketSession::close);
         running.set(false);
+        if (!SocketReactor.getInstance().awaitTasks(stopTimeoutMillis))
+            Logger.warn("SocketServer", "Timed out while closing the sessions");
+    }
+
+    /** Requests the connected pet host to launch a new pet in its process.
+     * The pet will use the config saved in the config file.
+     * <hr>
+     * If a pet host has been started but hasn't logged in yet, the request is queued until it logs in.
+     * If no pet host is connected or starting, the pet host is regarded as starting since then,
+     * so the caller should start a pet host, and call {@link #onHostExited()} once the process of it exits.
+     * @return true if the request has been sent or queued, false if the caller should start a pet host.
+     */
+    public synchronized boolean requestLaunch() {
+        if (!running.get())
+            return false;
+        ServerSocketSession host = hostSession;
+        if (host != null) {
+            host.send(SocketData.ofOperation(host.uuid, SocketData.Operation.LAUNCH_PET));
+            return true;
+        }
+        if (isHostStarting) {
+            pendingLaunches++;
+            Logger.info("SocketServer", "Pet host is starting, queued the launch request (" + pendingLaunches + " queued)");
+            return true;
+        }
+        isHostStarting = true;
+        return false;
+    }
+
+    /** Notifies that the process of the pet host started after {@link #requestLaunch()} has exited.
+     * The queued launch requests are dropped if the pet host exited without logging in.
+     */
+    public synchronized void onHostExited() {
+        isHostStarting = false;
+        if (pendingLaunches > 0)
+            Logger.warn("SocketServer", "Pet host exited before logging in, dropped " + pendingLaunches + " launch request(s)");
+        pendingLaunches = 0;
+    }
+
+    private synchronized boolean registerHost(ServerSocketSession session) {
+        if (hostSession != null && hostSession != session) {
+            // Only one pet host is served, otherwise the previous one would become unreachable
+            Logger.warn("SocketServer", "Pet host " + session + " rejected since " + hostSession + " is registered");
+            return false;
+        }
+        hostSession = session;
+        isHostStarting = false;
+        Logger.info("SocketServer", "Pet host " + session + " registered");
+        for (; pendingLaunches > 0; pendingLaunches--)
+            session.send(SocketData.ofOperation(session.uuid, SocketData.Operation.LAUNCH_PET));
+        return true;
+    }
+
+    private synchronized boolean unregisterHost(ServerSocketSession session) {
+        if (hostSession != session)
+            return false;
+        hostSession = null;
+        Logger.info("SocketServer", "Pet host " + session + " unregistered");
+        return true;
+    }
+
+    /** Returns true if a pet host is connected.
+     */
+    public boolean hasPetHost() {
+        return running.get() && hostSession != null;
     }
 
     @Override
@@ -117,37 +186,49 @@ public final class SocketServer {
         }
 
         @Override
-        public void receive(String request) {
-            try {
-                SocketData socketData = SocketData.of(request);
-                if (socketData == null || socketData.operation == null)
-                    return;
-                if (uuid == null)
-                    uuid = socketData.uuid;
-
-                switch (socketData.operation) {
-                    case HANDSHAKE_REQUEST -> {
-                        this.send(SocketData.ofOperation(uuid, SocketData.Operation.HANDSHAKE_RESPONSE));
+        public void receive(SocketData socketData) {
+            if (socketData.operation == null)
+                return;
+            if (uuid == null)
+                uuid = socketData.uuid;
+
+            switch (socketData.operation) {
+                case HANDSHAKE_REQUEST -> {
+                    // Tell the prober which codec is supported, the legacy prober offers nothing
+                    String offer = socketData.msg != null ? socketData.getMsgString() : null;
+                    boolean keepSession = offer != null && offer.endsWith(PortUtils.sessionOfferSuffix);
+                    if (keepSession)
+                        offer = offer.substring(0, offer.length() - PortUtils.sessionOfferSuffix.length());
+                    SocketCodec codec = SocketCodec.of(offer);
+                    this.send(codec != null ?
+                            SocketData.of(uuid, SocketData.Operation.HANDSHAKE_RESPONSE, codec.getName()) :
+                            SocketData.ofOperation(uuid, SocketData.Operation.HANDSHAKE_RESPONSE));
+                    if (codec != null && keepSession)
+                        uuid = null; // The prober keeps the connection as its session, whose requests carry another UUID
+                    else
                         close();
-                    }
-                    case ACTIVATE_LAUNCHER -> hostTray.showStage();
-                    case LOGIN -> {
-                        tray = new MemberTrayProxy(socketData, this, hostTray);
-                        hostTray.addMemberTray(uuid, tray);
-                    }
-                    case LOGOUT -> {
-                        hostTray.removeMemberTray(uuid);
-                        tray.onExit();
+                }
+                case ACTIVATE_LAUNCHER -> hostTray.showStage();
+                case HOST_LOGIN -> {
+                    if (!SocketServer.getInstance().registerHost(this))
                         close();
-                    }
-                    case KEEP_ACTION            -> tray.onKeepAnimEn();
-                    case NO_KEEP_ACTION         -> tray.onKeepAnimDis();
-                    case TRANSPARENT_MODE       -> tray.onTransparentEn();
-                    case NO_TRANSPARENT_MODE    -> tray.onTransparentDis();
-                    case CAN_CHANGE_STAGE       -> tray.onCanChangeStage();
-                    case CHANGE_STAGE           -> tray.onChangeStage();
                 }
-            } catch (JSONException ignored) {
+                case LOGIN -> {
+                    tray = new MemberTrayProxy(socketData, this, hostTray);
+                    hostTray.addMemberTray(uuid, tray);
+                }
+                case LOGOUT -> {
+                    hostTray.removeMemberTray(uuid);
+                    tray.onExit();
+                    close();
+                }
+                case KEEP_ACTION            -> tray.onKeepAnimEn();
+                case NO_KEEP_ACTION         -> tray.onKeepAnimDis();
+                case TRANSPARENT_MODE       -> tray.onTransparentEn();
+                case NO_TRANSPARENT_MODE    -> tray.onTransparentDis();
+                case CAN_CHANGE_STAGE       -> tray.onCanChangeStage();
+                case CHANGE_STAGE           -> tray.onChangeStage();
+                case MEMORY_STATUS          -> Logger.info("SocketServer", "Memory status of " + this + ": " + socketData.getMsgString());
             }
         }
 
@@ -155,12 +236,18 @@ public final class SocketServer {
         protected void onClosed() {
             Logger.info("SocketServer", "(-)" + this + " closed");
             SocketServer.getInstance().sessionList.remove(this);
+            unregisterHost();
         }
 
         @Override
         protected void onBroken() {
             Logger.info("SocketServer", "(x)" + this + " broken");
-            hostTray.removeMemberTray(uuid);
+            if (!unregisterHost())
+                hostTray.removeMemberTray(uuid);
+        }
+
+        private boolean unregisterHost() {
+            return SocketServer.getInstance().unregisterHost(this);
         }
     }
 }
@@ -5,106 +5,103 @@ package cn.harryh.arkpets.concurrent;
 
 import cn.harryh.arkpets.utils.Logger;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
-import java.net.SocketException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
-abstract public class SocketSession implements Runnable {
-    protected Socket target;
-    protected BufferedReader in;
-    protected PrintWriter out;
+/** The session of a socket connection, whose I/O is driven by the {@link SocketReactor}.
+ * <hr>
+ * Each message is framed by a {@link SocketCodec}. The received messages are handled on the reactor thread,
+ * and the sent messages are queued and written without blocking the caller.
+ * The session sends the legacy JSON frames until the peer is known to support the binary frames,
+ * while the received frames of either codec are always accepted.
+ */
+abstract public class SocketSession {
+    protected SocketChannel channel;
+    private SelectionKey key;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(initialBufferSize);
+    private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+    private InetSocketAddress remoteAddress;
     private boolean hasTarget = false;
-    private boolean hasRun = false;
-    private boolean hasClosed = false;
+    private final AtomicBoolean hasClosed = new AtomicBoolean(false);
+    private final AtomicBoolean hasFlushPending = new AtomicBoolean(false);
+    private volatile SocketCodec encoder = SocketCodec.JSON;
+
+    private static final int initialBufferSize = 1024;
 
     public SocketSession() {
     }
 
-    /** Sets the target socket to I/O.
-     * @param target The target socket.
+    /** Sets the target socket channel to I/O, and starts the I/O on the reactor.
+     * @param target The target socket channel, which has been connected.
      */
-    public final void setTarget(Socket target) {
+    public final void setTarget(SocketChannel target) {
+        if (hasTarget)
+            throw new IllegalStateException("The target socket has been set yet.");
+        this.channel = target;
         try {
-            this.target = target;
-            in = new BufferedReader(new InputStreamReader(target.getInputStream()));
-            out = new PrintWriter(target.getOutputStream(), true);
-            hasTarget = true;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            SocketAddress address = target.getRemoteAddress();
+            if (address instanceof InetSocketAddress inetAddress)
+                remoteAddress = inetAddress;
+        } catch (IOException ignored) {
         }
+        hasTarget = true;
+        SocketReactor.getInstance().register(this);
     }
 
     public final String getHostAddress() {
-        return target != null ? target.getInetAddress().getHostAddress() : "0.0.0.0";
+        return remoteAddress != null ? remoteAddress.getAddress().getHostAddress() : "0.0.0.0";
     }
 
     public final int getPort() {
-        return target != null ? target.getPort() : 0;
+        return remoteAddress != null ? remoteAddress.getPort() : 0;
     }
 
-    /** Closes this session together with the socket and the I/O stream.
+    /** Sets the codec used to encode the sent requests.
+     * Note that the peer must be able to decode it, see {@link PortUtils#connectServer}.
+     * @param codec The codec.
      */
-    public final void close() {
-        if (!hasTarget || hasClosed)
-            return;
-        hasClosed = true;
-        try {
-            target.close();
-            in.close();
-            out.close();
-            this.onClosed();
-        } catch (IOException ignored) {
-        }
+    public final void setEncoder(SocketCodec codec) {
+        encoder = codec;
     }
 
-    @Override
-    public final void run() {
-        if (hasRun)
-            throw new IllegalStateException("The session thread has run yet.");
-        if (!hasTarget)
-            throw new IllegalStateException("The target socket has not been set yet.");
-        hasRun = true;
-        try {
-            while (!target.isClosed()) {
-                try {
-                    String request = in.readLine();
-                    if (request == null) {
-                        Logger.debug("SocketSession", "x- " + this);
-                        this.onBroken();
-                        this.close();
-                    } else {
-                        Logger.debug("SocketSession", "<- " + this + " " + request);
-                        receive(request);
-                    }
-                } catch (SocketException e) {
-                    Logger.debug("SocketSession", "x- " + this + " (" + e.getMessage() + ")");
-                    this.onBroken();
-                    this.close();
-                }
-            }
-        } catch (IOException e) {
-            Logger.error("SocketSession", "An unexpected error occurred on " + this + ", details see below.", e);
-        }
+    /** Closes this session together with the socket channel.
+     * The queued requests will be flushed before closing if possible.
+     */
+    public final void close() {
+        if (!hasTarget || hasClosed.getAndSet(true))
+            return;
+        SocketReactor.getInstance().execute(this::closeNow);
     }
 
     /** Sends a request via this session.
      * @param request The request to be sent.
      */
-    public final void send(Object request) {
+    public final void send(SocketData request) {
         if (!hasTarget)
             throw new IllegalStateException("The target socket has not been set yet.");
-        Logger.debug("SocketSession", "-> " + this + " " + request);
-        out.println(request);
+        if (Logger.isDebugEnabled())
+            Logger.debug("SocketSession", "-> " + this + " " + request);
+        writeQueue.add(encoder.encode(request));
+        // Coalesce the flushes of the requests sent in a row
+        if (!hasFlushPending.getAndSet(true))
+            SocketReactor.getInstance().execute(() -> {
+                hasFlushPending.set(false);
+                flush();
+            });
     }
 
     /** Handles a received request from this session.
      * @param request The received request.
      */
-    abstract public void receive(String request);
+    abstract public void receive(SocketData request);
 
     /** When the session is to be closed.
      */
@@ -116,6 +113,109 @@ abstract public class SocketSession implements Runnable {
     protected void onBroken() {
     }
 
+    final void onRegistered(SelectionKey key) {
+        this.key = key;
+        if (hasClosed.get())
+            return;
+        flush();
+    }
+
+    final void onReadable() {
+        if (hasClosed.get())
+            return;
+        int count;
+        try {
+            count = channel.read(readBuffer);
+        } catch (IOException e) {
+            broken(e.getMessage());
+            return;
+        }
+        if (count < 0) {
+            broken(null);
+            return;
+        }
+        // Split the received bytes into frames
+        readBuffer.flip();
+        try {
+            while (readBuffer.hasRemaining() && !hasClosed.get()) {
+                SocketCodec decoder = SocketCodec.sniff(readBuffer.get(readBuffer.position()));
+                SocketData request = decoder.decode(readBuffer);
+                if (request == null)
+                    break;
+                if (decoder == SocketCodec.BINARY && encoder != SocketCodec.BINARY) {
+                    // The peer sends binary frames, so it is able to receive them as well
+                    Logger.debug("SocketSession", "== " + this + " upgraded to binary frames");
+                    encoder = SocketCodec.BINARY;
+                }
+                if (Logger.isDebugEnabled())
+                    Logger.debug("SocketSession", "<- " + this + " " + request);
+                receive(request);
+            }
+        } catch (IOException e) {
+            broken(e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            // The unread bytes can't be kept in order after a failed handler, so the stream is given up
+            Logger.error("SocketSession", "An unexpected error occurred while handling the request of " + this +
+                    ", details see below.", e);
+            broken(e.getMessage());
+            return;
+        }
+        readBuffer.compact();
+        // Grow the buffer for a long frame
+        if (!readBuffer.hasRemaining()) {
+            if (readBuffer.capacity() >= SocketCodec.maxFrameLength) {
+                Logger.warn("SocketSession", "The frame received by " + this + " is too long");
+                broken("frame too long");
+                return;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(readBuffer.capacity() << 1);
+            readBuffer.flip();
+            readBuffer = buffer.put(readBuffer);
+        }
+    }
+
+    final void onWritable() {
+        flush();
+    }
+
+    private void flush() {
+        if (key == null || !key.isValid())
+            return;
+        try {
+            ByteBuffer head;
+            while ((head = writeQueue.peek()) != null) {
+                channel.write(head);
+                if (head.hasRemaining())
+                    break;
+                writeQueue.poll();
+            }
+            key.interestOps(writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            broken(e.getMessage());
+        }
+    }
+
+    private void broken(String reason) {
+        if (hasClosed.get())
+            return;
+        Logger.debug("SocketSession", "x- " + this + (reason != null ? " (" + reason + ")" : ""));
+        this.onBroken();
+        this.close();
+    }
+
+    private void closeNow() {
+        flush();
+        try {
+            if (key != null)
+                key.cancel();
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        writeQueue.clear();
+        this.onClosed();
+    }
+
     @Override
     public String toString() {
         return "[" + getHostAddress() + ":" + getPort() +"]";
@@ -3,6 +3,8 @@
  */
 package cn.harryh.arkpets.platform;
 
+import java.util.BitSet;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,6 +18,9 @@ public abstract class HWndCtrl {
     public final int windowWidth;
     public final int windowHeight;
 
+    private NumberedTitleManager numberedBy;
+    private int number;
+
     public HWndCtrl(String windowText, WindowRect windowRect) {
         this.windowText = windowText;
         posTop = windowRect.top;
@@ -121,6 +126,9 @@ public abstract class HWndCtrl {
         private final String numberedNameFormat;
         private final Pattern zeroNamePattern;
         private final Pattern numberedNamePattern;
+        private final BitSet reserved = new BitSet();
+
+        private static final int maxNumber = 1024;
 
         public NumberedTitleManager(String coreName) {
             zeroNameFormat = coreName;
@@ -129,13 +137,27 @@ public abstract class HWndCtrl {
             numberedNamePattern = Pattern.compile("^" + coreName + " \\(([0-9]+)\\)");
         }
 
+        /** Gets the number of the given window.
+         * The result is cached in the HWndCtrl instance, since its title never changes.
+         * @param hWndCtrl The window.
+         * @return The number, or {@code -1} if the window doesn't have a numbered title.
+         */
         public int getNumber(HWndCtrl hWndCtrl) {
             if (hWndCtrl == null) return -1;
-            return getNumber(hWndCtrl.windowText);
+            if (hWndCtrl.numberedBy != this) {
+                hWndCtrl.number = getNumber(hWndCtrl.windowText);
+                hWndCtrl.numberedBy = this;
+            }
+            return hWndCtrl.number;
         }
 
+        /** Gets the number of the given title.
+         * @param windowText The title.
+         * @return The number, or {@code -1} if it isn't a numbered title.
+         */
         public int getNumber(String windowText) {
             if (windowText.isEmpty()) return -1;
+            if (!windowText.startsWith(zeroNameFormat)) return -1;
             if (zeroNamePattern.matcher(windowText).find()) return 0;
             try {
                 Matcher matcher = numberedNamePattern.matcher(windowText);
@@ -145,18 +167,62 @@ public abstract class HWndCtrl {
             }
         }
 
-        public String getIdleTitle() {
-            String title = String.format(zeroNameFormat);
-            if (WindowSystem.findWindow(null, title) == null) {
-                return title;
-            } else {
-                for (int cur = 2; cur <= 1024; cur++) {
-                    title = String.format(numberedNameFormat, cur);
-                    if (WindowSystem.findWindow(null, title) == null)
-                        return title;
-                }
-                throw new IllegalStateException("Failed to get idle title.");
+        /** Gets an idle title which isn't used by any existing window, nor reserved in this process.
+         * All the windows are enumerated in a single pass.
+         * @return The idle title.
+         * @throws IllegalStateException If all the numbers are used.
+         */
+        public synchronized String getIdleTitle() {
+            return getIdleTitle(getCurrentWindows());
+        }
+
+        /** Reserves an idle title which isn't used by any existing window, nor reserved in this process.
+         * The title won't be returned again until it is released, even if no window has been created with it yet,
+         * so the windows created lazily in the same process (e.g. in multi-window mode) won't get the same title.
+         * @return The reserved title, which should be released by {@link #releaseTitle(String)} once the window is disposed.
+         * @throws IllegalStateException If all the numbers are used.
+         * @since ArkPets 3.3
+         */
+        public synchronized String reserveIdleTitle() {
+            return reserveIdleTitle(getCurrentWindows());
+        }
+
+        /** Releases a title reserved by {@link #reserveIdleTitle()}.
+         * Releasing a title which isn't reserved has no effect.
+         * @param title The title.
+         * @since ArkPets 3.3
+         */
+        public synchronized void releaseTitle(String title) {
+            int number = getNumber(title);
+            if (number >= 0)
+                reserved.clear(number);
+        }
+
+        synchronized String reserveIdleTitle(List<HWndCtrl> windows) {
+            String title = getIdleTitle(windows);
+            reserved.set(getNumber(title));
+            return title;
+        }
+
+        synchronized String getIdleTitle(List<HWndCtrl> windows) {
+            BitSet used = (BitSet)reserved.clone();
+            for (HWndCtrl hWndCtrl : windows) {
+                int number = getNumber(hWndCtrl);
+                if (number >= 0 && number <= maxNumber)
+                    used.set(number);
             }
+            if (!used.get(0))
+                return zeroNameFormat;
+            int cur = used.nextClearBit(2);
+            if (cur <= maxNumber)
+                return String.format(numberedNameFormat, cur);
+            throw new IllegalStateException("Failed to get idle title.");
+        }
+
+        private static List<HWndCtrl> getCurrentWindows() {
+            WindowSnapshot<?> snapshot = WindowSystem.newWindowSnapshot();
+            snapshot.refresh(false);
+            return snapshot.getWindows();
         }
     }
 
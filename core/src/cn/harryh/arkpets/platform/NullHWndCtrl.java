@@ -9,6 +9,10 @@ public class NullHWndCtrl extends HWndCtrl {
         super("", new WindowRect());
     }
 
+    public NullHWndCtrl(String windowText, WindowRect windowRect) {
+        super(windowText, windowRect);
+    }
+
     @Override
     public boolean isForeground() {
         return false;
@@ -12,6 +12,7 @@ import com.sun.jna.platform.win32.WinDef.RECT;
 import com.sun.jna.platform.win32.WinUser;
 
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 
 public class User32HWndCtrl extends HWndCtrl {
@@ -40,7 +41,16 @@ public class User32HWndCtrl extends HWndCtrl {
      * @param hWnd The handle of the window.
      */
     protected User32HWndCtrl(HWND hWnd) {
-        super(getWindowText(hWnd), getWindowRect(hWnd));
+        this(hWnd, getWindowText(hWnd), getWindowRect(hWnd));
+    }
+
+    /** HWnd Controller instance with the known information.
+     * @param hWnd The handle of the window.
+     * @param windowText The title of the window.
+     * @param windowRect The rect of the window.
+     */
+    protected User32HWndCtrl(HWND hWnd, String windowText, WindowRect windowRect) {
+        super(windowText, windowRect);
         this.hWnd = hWnd;
     }
 
@@ -178,6 +188,37 @@ public class User32HWndCtrl extends HWndCtrl {
         return windowList;
     }
 
+    /** Gets the window source that enumerates the windows via User32.
+     * @return The window source.
+     */
+    public static WindowSource<HWND> getWindowSource() {
+        return new WindowSource<>() {
+            @Override
+            public void enumerate(boolean onlyVisible, Consumer<HWND> consumer) {
+                User32.INSTANCE.EnumWindows((hWnd, arg1) -> {
+                    if (User32.INSTANCE.IsWindow(hWnd) && (!onlyVisible || isVisible(hWnd)))
+                        consumer.accept(hWnd);
+                    return true;
+                }, null);
+            }
+
+            @Override
+            public String getWindowText(HWND handle) {
+                return User32HWndCtrl.getWindowText(handle);
+            }
+
+            @Override
+            public WindowRect getWindowRect(HWND handle) {
+                return User32HWndCtrl.getWindowRect(handle);
+            }
+
+            @Override
+            public HWndCtrl create(HWND handle, String windowText, WindowRect windowRect) {
+                return new User32HWndCtrl(handle, windowText, windowRect);
+            }
+        };
+    }
+
     /** Gets the value of the window's extended styles.
      * @return EX_STYLE value.
      * @see WinUser
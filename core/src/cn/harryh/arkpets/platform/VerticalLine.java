@@ -0,0 +1,107 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+
+/** The class indexes the windows that share the same vertical line,
+ * in order to figure out which windows' top edges are exposed (not covered by any upper window).
+ * <hr>
+ * The windows should be offered in Z-order (from the topmost to the bottommost).
+ * The vertical spans of the offered windows are kept as a sorted union of disjoint intervals,
+ * so that each offer costs a binary search rather than marking every pixel.
+ * @since ArkPets 3.3
+ */
+public class VerticalLine {
+    private final ArrayList<HWndCtrl> exposed = new ArrayList<>();
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int size = 0;
+
+    private static final Comparator<HWndCtrl> byTop = Comparator.comparingInt(w -> w.posTop);
+
+    /** Resets the line, removing all the offered windows.
+     */
+    public void clear() {
+        exposed.clear();
+        size = 0;
+    }
+
+    /** Offers a window to the line.
+     * The window's top edge is recorded only if it is not covered by any window offered before.
+     * @param hWndCtrl The window which should be lower than all the windows offered before.
+     */
+    public void offer(HWndCtrl hWndCtrl) {
+        final int top = hWndCtrl.posTop;
+        final int bottom = hWndCtrl.posBottom;
+        if (bottom <= top)
+            return;
+        if (!isCovered(top))
+            exposed.add(hWndCtrl);
+        cover(top, bottom);
+    }
+
+    /** Gets the windows whose top edges are exposed.
+     * @return A list sorted by the top edge, from the highest to the lowest.
+     */
+    public List<HWndCtrl> getExposed() {
+        exposed.sort(byTop);
+        return exposed;
+    }
+
+    /** Returns true if the given y-position is covered by any offered window.
+     * @param y The y-position (px).
+     */
+    public boolean isCovered(int y) {
+        int i = floorIndex(y);
+        return i >= 0 && ends[i] > y;
+    }
+
+    /** Finds the last interval whose start is not greater than the given value.
+     */
+    private int floorIndex(int y) {
+        int i = Arrays.binarySearch(starts, 0, size, y);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /** Merges the span {@code [top, bottom)} into the union.
+     */
+    private void cover(int top, int bottom) {
+        int first = floorIndex(top);
+        if (first < 0 || ends[first] < top)
+            first++; // The span doesn't touch the previous interval
+        int last = floorIndex(bottom); // The last interval that may be merged
+        if (first > last) {
+            // Insert a new interval
+            ensureCapacity(size + 1);
+            System.arraycopy(starts, first, starts, first + 1, size - first);
+            System.arraycopy(ends, first, ends, first + 1, size - first);
+            starts[first] = top;
+            ends[first] = bottom;
+            size++;
+        } else {
+            // Merge the intervals in [first, last]
+            starts[first] = Math.min(starts[first], top);
+            ends[first] = Math.max(ends[last], bottom);
+            int removed = last - first;
+            if (removed > 0) {
+                System.arraycopy(starts, last + 1, starts, first + 1, size - last - 1);
+                System.arraycopy(ends, last + 1, ends, first + 1, size - last - 1);
+                size -= removed;
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int newLength = Math.max(capacity, starts.length << 1);
+            starts = Arrays.copyOf(starts, newLength);
+            ends = Arrays.copyOf(ends, newLength);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/** Copyright (c) 2022-2024, Harry Huang, Litwak913
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import cn.harryh.arkpets.platform.HWndCtrl.WindowRect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+
+/** The class keeps an incremental snapshot of the current windows.
+ * <hr>
+ * The HWndCtrl instances are cached by the window handle. When refreshing the snapshot,
+ * an instance is reused if its title and rect are unchanged, otherwise it will be replaced.
+ * A generation counter is increased whenever the snapshot changes (including the Z-order changes),
+ * along with a diff that describes the added, removed and moved windows.
+ * @param <H> The type of the window handle.
+ * @since ArkPets 3.3
+ */
+public class WindowSnapshot<H> {
+    private final WindowSource<H> source;
+    private final ArrayList<H> handles = new ArrayList<>();
+    private final Consumer<H> handleCollector = handles::add;
+    private HashMap<H, HWndCtrl> cache = new HashMap<>();
+    private HashMap<H, HWndCtrl> nextCache = new HashMap<>();
+    private ArrayList<HWndCtrl> windows = new ArrayList<>();
+    private ArrayList<HWndCtrl> nextWindows = new ArrayList<>();
+    private final ArrayList<HWndCtrl> added = new ArrayList<>();
+    private final ArrayList<HWndCtrl> removed = new ArrayList<>();
+    private final ArrayList<HWndCtrl> moved = new ArrayList<>();
+    private long generation = 0;
+
+    /** Initializes a window snapshot.
+     * @param source The window source to take the snapshot from.
+     */
+    public WindowSnapshot(WindowSource<H> source) {
+        this.source = source;
+    }
+
+    /** Refreshes the snapshot.
+     * @param onlyVisible Whether exclude the invisible window.
+     * @return true if the snapshot has changed since the last refresh.
+     */
+    public boolean refresh(boolean onlyVisible) {
+        handles.clear();
+        source.enumerate(onlyVisible, handleCollector);
+        added.clear();
+        removed.clear();
+        moved.clear();
+        nextWindows.clear();
+        nextCache.clear();
+        boolean reordered = handles.size() != windows.size();
+        for (int i = 0; i < handles.size(); i++) {
+            H handle = handles.get(i);
+            String text = source.getWindowText(handle);
+            WindowRect rect = source.getWindowRect(handle);
+            HWndCtrl old = cache.get(handle);
+            HWndCtrl cur;
+            if (old == null) {
+                cur = source.create(handle, text, rect);
+                added.add(cur);
+            } else if (isIdentical(old, text, rect)) {
+                cur = old;
+            } else {
+                cur = source.create(handle, text, rect);
+                moved.add(cur);
+            }
+            if (!reordered && windows.get(i) != old)
+                reordered = true;
+            nextWindows.add(cur);
+            nextCache.put(handle, cur);
+        }
+        if (cache.size() + added.size() != nextCache.size())
+            for (H handle : cache.keySet())
+                if (!nextCache.containsKey(handle))
+                    removed.add(cache.get(handle));
+        // Swap the buffers
+        HashMap<H, HWndCtrl> tempCache = cache;
+        cache = nextCache;
+        nextCache = tempCache;
+        ArrayList<HWndCtrl> tempWindows = windows;
+        windows = nextWindows;
+        nextWindows = tempWindows;
+        boolean changed = reordered || !added.isEmpty() || !removed.isEmpty() || !moved.isEmpty();
+        if (changed)
+            generation++;
+        return changed;
+    }
+
+    /** Gets the windows in the snapshot.
+     * @return A list of HWndCtrls in Z-order, which shouldn't be modified.
+     */
+    public List<HWndCtrl> getWindows() {
+        return windows;
+    }
+
+    /** Gets the windows that were added in the last refresh.
+     */
+    public List<HWndCtrl> getAdded() {
+        return added;
+    }
+
+    /** Gets the windows that were removed in the last refresh.
+     */
+    public List<HWndCtrl> getRemoved() {
+        return removed;
+    }
+
+    /** Gets the windows that were moved, resized or retitled in the last refresh.
+     */
+    public List<HWndCtrl> getMoved() {
+        return moved;
+    }
+
+    /** Gets the generation of the snapshot, which increases whenever the snapshot changes.
+     * @return The generation number.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    private static boolean isIdentical(HWndCtrl hWndCtrl, String windowText, WindowRect windowRect) {
+        return hWndCtrl.posTop == windowRect.top() && hWndCtrl.posBottom == windowRect.bottom() &&
+                hWndCtrl.posLeft == windowRect.left() && hWndCtrl.posRight == windowRect.right() &&
+                hWndCtrl.windowText.equals(windowText);
+    }
+}
@@ -0,0 +1,64 @@
+/** Copyright (c) 2022-2024, Harry Huang, Litwak913
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import cn.harryh.arkpets.platform.HWndCtrl.WindowRect;
+
+import java.util.function.Consumer;
+
+
+/** The interface represents a source of the native windows, which is used by {@link WindowSnapshot}.
+ * @param <H> The type of the window handle, which must implement {@code equals} and {@code hashCode}.
+ * @since ArkPets 3.3
+ */
+public interface WindowSource<H> {
+    /** Enumerates the handles of the current windows in Z-order (from the topmost to the bottommost).
+     * @param onlyVisible Whether exclude the invisible window.
+     * @param consumer The consumer to accept each handle.
+     */
+    void enumerate(boolean onlyVisible, Consumer<H> consumer);
+
+    /** Gets the title of the window.
+     * @param handle The handle of the window.
+     * @return The title string.
+     */
+    String getWindowText(H handle);
+
+    /** Gets the rect of the window.
+     * @param handle The handle of the window.
+     * @return The window rect.
+     */
+    WindowRect getWindowRect(H handle);
+
+    /** Creates a new HWndCtrl of the window using the given information.
+     * @param handle The handle of the window.
+     * @param windowText The title of the window.
+     * @param windowRect The rect of the window.
+     * @return The HWndCtrl.
+     */
+    HWndCtrl create(H handle, String windowText, WindowRect windowRect);
+
+    /** The window source that contains no window.
+     */
+    WindowSource<Object> EMPTY = new WindowSource<>() {
+        @Override
+        public void enumerate(boolean onlyVisible, Consumer<Object> consumer) {
+        }
+
+        @Override
+        public String getWindowText(Object handle) {
+            return "";
+        }
+
+        @Override
+        public WindowRect getWindowRect(Object handle) {
+            return new WindowRect();
+        }
+
+        @Override
+        public HWndCtrl create(Object handle, String windowText, WindowRect windowRect) {
+            return new NullHWndCtrl(windowText, windowRect);
+        }
+    };
+}
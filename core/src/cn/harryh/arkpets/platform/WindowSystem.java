@@ -78,6 +78,20 @@ public enum WindowSystem {
         }
     }
 
+    /** Creates a new incremental snapshot of the current windows.
+     * @return A WindowSnapshot which should be refreshed before use.
+     */
+    public static WindowSnapshot<?> newWindowSnapshot() {
+        switch (PLATFORM) {
+            case USER32 -> {
+                return new WindowSnapshot<>(User32HWndCtrl.getWindowSource());
+            }
+            default -> {
+                return new WindowSnapshot<>(WindowSource.EMPTY);
+            }
+        }
+    }
+
     /** Gets the topmost window.
      * @return The topmost window's HWndCtrl.
      */
@@ -0,0 +1,27 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+
+/** The interface represents an easing function, which interpolates between two float numbers without boxing.
+ * @since ArkPets 3.3
+ */
+@SuppressWarnings("unused")
+@FunctionalInterface
+public interface EasingFunction {
+    /** Applies this function to the given arguments.
+     * @param start The starting value.
+     * @param end The ending value.
+     * @param ratio The progress ratio, from 0 to 1.
+     * @return The value at the given ratio.
+     */
+    float apply(float start, float end, float ratio);
+
+    EasingFunction LINEAR = (b, e, p) -> b + p * (e - b);
+
+    EasingFunction EASE_OUT_CUBIC = (b, e, p) -> {
+        float q = 1 - p;
+        return b + (1 - q * q * q) * (e - b);
+    };
+}
@@ -3,59 +3,47 @@
  */
 package cn.harryh.arkpets.transitions;
 
-import java.util.Objects;
-
 
 /** The class represents a transition,
  * which controls a value transit from its starting value to its ending value.
- * @param <E> The type of the value.
+ * <hr>
+ * Since ArkPets 3.3, the subclasses are specialized for primitive values.
+ * They compute the current value into a reusable output field only when the progress or the ending value has changed,
+ * and the current value is exactly the ending value once the transition has settled.
  * @since ArkPets 2.3
  */
-abstract public class Transition<E> {
-    protected E start;
-    protected E end;
+abstract public class Transition {
+    protected final EasingFunction function;
     protected float currentProgress;
     protected float totalProgress;
+    private boolean isSettled;
+    private boolean isDirty;
 
     /** Initializes a transition.
+     * @param function The easing function.
      * @param totalProgress The total progress of the transition.
      */
-    public Transition(float totalProgress) {
+    public Transition(EasingFunction function, float totalProgress) {
+        this.function = function;
         setTotalProgress(totalProgress);
     }
 
-    /** Gets the certain value at the specific progress.
-     * @param progress The given progress
-     * @return The value at the given progress.
-     */
-    abstract public E atProgress(float progress);
-
-    /** Gets the starting value.
-     * @return The starting value.
+    /** Computes the current value into the output field.
+     * @param ratio The current progress ratio, from 0 to 1.
      */
-    public final E start() {
-        return start;
-    }
+    abstract protected void update(float ratio);
 
-    /** Gets the ending value.
-     * @return The ending value.
-     */
-    public final E end() {
-        return end;
-    }
-
-    /** Gets the current value.
-     * @return The current value.
+    /** Returns {@code true} if the current value equals to the ending value.
+     * @return true=ended, false=not-yet-ended.
      */
-    public final E now() {
-        return atProgress(currentProgress);
-    }
+    abstract public boolean isEnded();
 
-    /** Returns {@code true} if the transition is at its ending point.
-     * @return true=ended, false=not-yet-ended.
+    /** Returns {@code true} if the progress has reached the end.
+     * Unlike {@link #isEnded()}, it doesn't need to compute the current value.
+     * @return true=settled, false=in-progress.
      */
-    public final boolean isEnded() {
-        return Objects.equals(now(), end());
+    public final boolean isSettled() {
+        return isSettled;
     }
 
     /** Adds the given progress to the transition progress.
@@ -65,22 +53,16 @@ abstract public class Transition<E> {
         setCurrentProgress(currentProgress + progress);
     }
 
-    /** Updates the ending value of the transition and resets the current progress to 0.
-     * @param end The new ending value.
-     */
-    public final void reset(E end) {
-        if (Objects.equals(this.end, end))
-            return;
-        this.start = now();
-        this.end = end;
-        currentProgress = 0;
-    }
-
     /** Sets the current progress of the transition.
      * @param currentProgress The new current progress.
      */
     public final void setCurrentProgress(float currentProgress) {
-        this.currentProgress = Math.max(0, Math.min(totalProgress, currentProgress));
+        currentProgress = Math.max(0, Math.min(totalProgress, currentProgress));
+        if (this.currentProgress != currentProgress) {
+            this.currentProgress = currentProgress;
+            isDirty = true;
+        }
+        isSettled = currentProgress >= totalProgress;
     }
 
     /** Sets the total progress of the transition.
@@ -89,24 +71,39 @@ abstract public class Transition<E> {
     public final void setTotalProgress(float totalProgress) {
         if (totalProgress <= 0)
             throw new IllegalArgumentException("Total progress must be greater than 0");
-        currentProgress = 0;
         this.totalProgress = totalProgress;
+        this.currentProgress = 0;
+        isSettled = false;
+        isDirty = true;
     }
 
     /** Sets the transition to its ending point where {@code currentProgress = totalProgress}.
      */
     public final void setToEnd() {
-        this.currentProgress = totalProgress;
+        setCurrentProgress(totalProgress);
     }
 
     /** Sets the transition to its starting point where {@code currentProgress = 0}.
      */
     public final void setToStart() {
-        this.currentProgress = 0;
+        setCurrentProgress(0);
     }
 
-    @Override
-    public String toString() {
-        return getClass().getSimpleName() + " [" + start + ", " + end + ']';
+    /** Restarts the transition from the current value, typically after the ending value has been changed.
+     * The subclasses should have copied the current value to the starting value before calling this.
+     */
+    protected final void restart() {
+        currentProgress = 0;
+        isSettled = false;
+        isDirty = true;
+    }
+
+    /** Makes sure the output field holds the current value.
+     */
+    protected final void validate() {
+        if (isDirty) {
+            isDirty = false;
+            update(isSettled ? 1 : currentProgress / totalProgress);
+        }
     }
 }
@@ -7,18 +7,60 @@ package cn.harryh.arkpets.transitions;
 /** The class represents a transition,
  * which controls a float number transit from its starting value to its ending value.
  */
-public class TransitionFloat extends Transition<Float> {
-    protected final TernaryFunction<Float, Float> function;
+public class TransitionFloat extends Transition {
+    protected float start;
+    protected float end;
+    protected float current;
 
-    public TransitionFloat(TernaryFunction<Float, Float> function, float totalProgress) {
-        super(totalProgress);
-        this.function = function;
-        start = 0f;
-        end = 0f;
+    public TransitionFloat(EasingFunction function, float totalProgress) {
+        super(function, totalProgress);
     }
 
     @Override
-    public Float atProgress(float progress) {
-        return function.apply(start, end, currentProgress / totalProgress);
+    protected void update(float ratio) {
+        current = isSettled() ? end : function.apply(start, end, ratio);
+    }
+
+    /** Gets the starting value.
+     * @return The starting value.
+     */
+    public final float start() {
+        return start;
+    }
+
+    /** Gets the ending value.
+     * @return The ending value.
+     */
+    public final float end() {
+        return end;
+    }
+
+    /** Gets the current value.
+     * @return The current value.
+     */
+    public final float now() {
+        validate();
+        return current;
+    }
+
+    @Override
+    public final boolean isEnded() {
+        return now() == end;
+    }
+
+    /** Updates the ending value of the transition and resets the current progress to 0.
+     * @param end The new ending value.
+     */
+    public final void reset(float end) {
+        if (this.end == end)
+            return;
+        this.start = now();
+        this.end = end;
+        restart();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [" + start + ", " + end + ']';
     }
 }
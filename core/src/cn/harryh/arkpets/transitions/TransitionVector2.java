@@ -8,27 +8,72 @@ import com.badlogic.gdx.math.Vector2;
 
 /** The class represents a transition,
  * which controls a vector-2 (x,y) transit from its starting value to its ending value.
+ * <hr>
+ * The vectors returned by the getters are owned by the transition, they shouldn't be modified or retained by the caller.
  */
-public class TransitionVector2 extends Transition<Vector2> {
-    protected final TernaryFunction<Float, Float> function;
+public class TransitionVector2 extends Transition {
+    protected final Vector2 start = new Vector2(0, 0);
+    protected final Vector2 end = new Vector2(0, 0);
+    protected final Vector2 current = new Vector2(0, 0);
 
-    public TransitionVector2(TernaryFunction<Float, Float> function, float totalProgress) {
-        super(totalProgress);
-        this.function = function;
-        start = new Vector2(0, 0);
-        end = new Vector2(0, 0);
+    public TransitionVector2(EasingFunction function, float totalProgress) {
+        super(function, totalProgress);
     }
 
     @Override
-    public Vector2 atProgress(float progress) {
-        float ratio = currentProgress / totalProgress;
-        return new Vector2(
-                function.apply(start.x, end.x, ratio),
-                function.apply(start.y, end.y, ratio)
-        );
+    protected void update(float ratio) {
+        if (isSettled()) {
+            current.set(end);
+        } else {
+            current.x = function.apply(start.x, end.x, ratio);
+            current.y = function.apply(start.y, end.y, ratio);
+        }
     }
 
-    public void reset(float x, float y) {
-        reset(new Vector2(x, y));
+    /** Gets the starting value.
+     * @return The starting value.
+     */
+    public final Vector2 start() {
+        return start;
+    }
+
+    /** Gets the ending value.
+     * @return The ending value.
+     */
+    public final Vector2 end() {
+        return end;
+    }
+
+    /** Gets the current value.
+     * @return The current value.
+     */
+    public final Vector2 now() {
+        validate();
+        return current;
+    }
+
+    @Override
+    public final boolean isEnded() {
+        return now().equals(end);
+    }
+
+    /** Updates the ending value of the transition and resets the current progress to 0.
+     * @param end The new ending value.
+     */
+    public final void reset(Vector2 end) {
+        reset(end.x, end.y);
+    }
+
+    public final void reset(float x, float y) {
+        if (end.x == x && end.y == y)
+            return;
+        start.set(now());
+        end.set(x, y);
+        restart();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [" + start + ", " + end + ']';
     }
 }
@@ -8,28 +8,73 @@ import com.badlogic.gdx.math.Vector3;
 
 /** The class represents a transition,
  * which controls a vector-3 (x,y,z) transit from its starting value to its ending value.
+ * <hr>
+ * The vectors returned by the getters are owned by the transition, they shouldn't be modified or retained by the caller.
  */
-public class TransitionVector3 extends Transition<Vector3> {
-    protected final TernaryFunction<Float, Float> function;
+public class TransitionVector3 extends Transition {
+    protected final Vector3 start = new Vector3(0, 0, 0);
+    protected final Vector3 end = new Vector3(0, 0, 0);
+    protected final Vector3 current = new Vector3(0, 0, 0);
 
-    public TransitionVector3(TernaryFunction<Float, Float> function, float totalProgress) {
-        super(totalProgress);
-        this.function = function;
-        start = new Vector3(0, 0, 0);
-        end = new Vector3(0, 0, 0);
+    public TransitionVector3(EasingFunction function, float totalProgress) {
+        super(function, totalProgress);
     }
 
     @Override
-    public Vector3 atProgress(float progress) {
-        float ratio = currentProgress / totalProgress;
-        return new Vector3(
-                function.apply(start.x, end.x, ratio),
-                function.apply(start.y, end.y, ratio),
-                function.apply(start.z, end.z, ratio)
-        );
+    protected void update(float ratio) {
+        if (isSettled()) {
+            current.set(end);
+        } else {
+            current.x = function.apply(start.x, end.x, ratio);
+            current.y = function.apply(start.y, end.y, ratio);
+            current.z = function.apply(start.z, end.z, ratio);
+        }
     }
 
-    public void reset(float x, float y, float z) {
-        reset(new Vector3(x, y, z));
+    /** Gets the starting value.
+     * @return The starting value.
+     */
+    public final Vector3 start() {
+        return start;
+    }
+
+    /** Gets the ending value.
+     * @return The ending value.
+     */
+    public final Vector3 end() {
+        return end;
+    }
+
+    /** Gets the current value.
+     * @return The current value.
+     */
+    public final Vector3 now() {
+        validate();
+        return current;
+    }
+
+    @Override
+    public final boolean isEnded() {
+        return now().equals(end);
+    }
+
+    /** Updates the ending value of the transition and resets the current progress to 0.
+     * @param end The new ending value.
+     */
+    public final void reset(Vector3 end) {
+        reset(end.x, end.y, end.z);
+    }
+
+    public final void reset(float x, float y, float z) {
+        if (end.x == x && end.y == y && end.z == z)
+            return;
+        start.set(now());
+        end.set(x, y, z);
+        restart();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [" + start + ", " + end + ']';
     }
 }
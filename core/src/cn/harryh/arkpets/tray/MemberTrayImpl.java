@@ -9,7 +9,7 @@ import cn.harryh.arkpets.concurrent.SocketClient;
 import cn.harryh.arkpets.concurrent.SocketData;
 import cn.harryh.arkpets.concurrent.SocketSession;
 import cn.harryh.arkpets.utils.Logger;
-import com.badlogic.gdx.Gdx;
+import cn.harryh.arkpets.utils.MemoryStatus;
 
 import javax.swing.*;
 import java.awt.*;
@@ -18,6 +18,7 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.AffineTransform;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static cn.harryh.arkpets.Const.durationNormal;
 import static cn.harryh.arkpets.Const.iconFilePng;
@@ -31,6 +32,9 @@ public class MemberTrayImpl extends MemberTray {
     private TrayIcon icon;
     public AnimData keepAnim;
 
+    /** The memory status is process-wide, so it is reported by only one of the pets in the same process. */
+    private static final AtomicBoolean isMemoryStatusClaimed = new AtomicBoolean(false);
+
     /** Initializes a per-character tray icon instance for an ArkPets. <br/>
      * Must be used after Gdx.app was initialized.
      * @param boundArkPets The ArkPets instance that bound to the tray icon.
@@ -98,7 +102,7 @@ public class MemberTrayImpl extends MemberTray {
         new Timer().schedule(new TimerTask() {
             @Override
             public void run() {
-                Gdx.app.exit();
+                arkPets.exit();
             }
         }, (int)durationNormal.toMillis());
     }
@@ -171,6 +175,19 @@ public class MemberTrayImpl extends MemberTray {
             if (element.equals(optTransparentDis))
                 sendOperation(SocketData.Operation.TRANSPARENT_MODE);
         }
+        // Report the memory usage after startup to the launcher, once per process
+        if (isMemoryStatusClaimed.compareAndSet(false, true)) {
+            MemoryStatus status = MemoryStatus.ofCurrentProcess();
+            Logger.info("MemberTray", "Memory status: " + status);
+            client.sendRequest(SocketData.ofMemoryStatus(uuid, status.toString()));
+        }
+    }
+
+    /** Stops the pets in the current process from reporting the memory status,
+     * typically because the process reports it by itself, e.g. the pet host.
+     */
+    public static void claimMemoryStatus() {
+        isMemoryStatusClaimed.set(true);
     }
 
     public void onDisconnected() {
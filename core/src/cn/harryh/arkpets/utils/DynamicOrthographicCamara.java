@@ -7,6 +7,7 @@ import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.glutils.FrameBuffer;
 
+import java.nio.ByteBuffer;
 import java.util.Objects;
 
 
@@ -53,70 +54,57 @@ public class DynamicOrthographicCamara extends OrthographicCamera {
     }
 
     public void cropTo(Pixmap pixmap, boolean flippedX, boolean flippedY) {
-        Insert insert = getFittedInsert(pixmap, flippedX, flippedY);
+        cropTo(getSolidBounds(pixmap), flippedX, flippedY);
+    }
+
+    public void cropTo(SolidBounds bounds, boolean flippedX, boolean flippedY) {
+        Insert insert = getFittedInsert(bounds, flippedX, flippedY);
         insert.limitMax(curInsert);
         setInsert(insert);
     }
 
     public Insert getFittedInsert(Pixmap pixmap, boolean flippedX, boolean flippedY) {
+        return getFittedInsert(getSolidBounds(pixmap), flippedX, flippedY);
+    }
+
+    public Insert getFittedInsert(SolidBounds bounds, boolean flippedX, boolean flippedY) {
         final Insert insert = curInsert.clone();
-        final int edgeWidth = pixmap.getWidth() - 1;
-        final int edgeHeight = pixmap.getHeight() - 1;
+        final int edgeWidth = bounds.width() - 1;
+        final int edgeHeight = bounds.height() - 1;
         final int extendedX = paddingLength;
         final int extendedY = paddingLength;
         final int reservedX = paddingLength;
         final int reservedY = paddingLength;
-        //PixmapIO.writePNG(new FileHandle("temp.png"), pixmap);
 
         if (flippedX)
             insert.swapHorizontal();
         if (flippedY)
             insert.swapVertical();
 
-        // TOP
-        for (int y = 0; y <= edgeHeight; y += stepLength)
-            for (int x = 0; x <= edgeWidth; x += stepLength)
-                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
-                    if (y == 0)
-                        insert.top += extendedY;
-                    else
-                        insert.top -= y - reservedY;
-                    x = Integer.MAX_VALUE - stepLength;
-                    y = Integer.MAX_VALUE - stepLength;
-                }
-        // BOTTOM
-        for (int y = edgeHeight; y >= 0; y -= stepLength)
-            for (int x = 0; x <= edgeWidth; x += stepLength)
-                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
-                    if (y == edgeHeight)
-                        insert.bottom += extendedY;
-                    else
-                        insert.bottom -= edgeHeight - y - reservedY;
-                    x = Integer.MAX_VALUE - stepLength;
-                    y = Integer.MIN_VALUE + stepLength;
-                }
-        // LEFT
-        for (int x = 0; x <= edgeWidth; x += stepLength)
-            for (int y = 0; y <= edgeHeight; y += stepLength)
-                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
-                    if (x == 0)
-                        insert.left += extendedX;
-                    else
-                        insert.left -= x - reservedX;
-                    x = Integer.MAX_VALUE - stepLength;
-                    y = Integer.MAX_VALUE - stepLength;
-                }
-        // RIGHT
-        for (int x = edgeWidth; x >= 0; x -= stepLength)
-            for (int y = 0; y <= edgeHeight; y += stepLength)
-                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
-                    if (x == edgeWidth)
-                        insert.right += extendedX;
-                    else
-                        insert.right -= edgeWidth - x - reservedX;
-                    x = Integer.MIN_VALUE + stepLength;
-                    y = Integer.MAX_VALUE - stepLength;
-                }
+        if (bounds.top() >= 0) {
+            if (bounds.top() == 0)
+                insert.top += extendedY;
+            else
+                insert.top -= bounds.top() - reservedY;
+        }
+        if (bounds.bottom() >= 0) {
+            if (bounds.bottom() == edgeHeight)
+                insert.bottom += extendedY;
+            else
+                insert.bottom -= edgeHeight - bounds.bottom() - reservedY;
+        }
+        if (bounds.left() >= 0) {
+            if (bounds.left() == 0)
+                insert.left += extendedX;
+            else
+                insert.left -= bounds.left() - reservedX;
+        }
+        if (bounds.right() >= 0) {
+            if (bounds.right() == edgeWidth)
+                insert.right += extendedX;
+            else
+                insert.right -= edgeWidth - bounds.right() - reservedX;
+        }
 
         if (flippedX)
             insert.swapHorizontal();
@@ -126,6 +114,95 @@ public class DynamicOrthographicCamara extends OrthographicCamera {
         return insert;
     }
 
+    /** Finds the bounds of the solid pixels in the given pixmap on the CPU side.
+     * Only the pixels on the sampling grid are examined, that is:
+     * the top and the left are sampled from the even rows and the even columns;
+     * the bottom is sampled from the rows which have the same parity as the last row, and the even columns;
+     * the right is sampled from the columns which have the same parity as the last column, and the even rows.
+     * @param pixmap The pixmap to scan.
+     * @return The bounds.
+     * @see GpuBoundsReducer
+     */
+    public static SolidBounds getSolidBounds(Pixmap pixmap) {
+        final int edgeWidth = pixmap.getWidth() - 1;
+        final int edgeHeight = pixmap.getHeight() - 1;
+        //PixmapIO.writePNG(new FileHandle("temp.png"), pixmap);
+
+        final ByteBuffer pixels = pixmap.getFormat() == Pixmap.Format.RGBA8888 ? pixmap.getPixels() : null;
+        final int width = pixmap.getWidth();
+        // TOP: The first sampled row that contains a solid pixel
+        int top = -1;
+        for (int y = 0; y <= edgeHeight && top < 0; y += stepLength)
+            if (findSolidInRow(pixmap, pixels, width, y, 0, edgeWidth) >= 0)
+                top = y;
+        // BOTTOM: The last sampled row that contains a solid pixel
+        int bottom = -1;
+        for (int y = edgeHeight; y >= 0 && bottom < 0; y -= stepLength)
+            if (findSolidInRow(pixmap, pixels, width, y, 0, edgeWidth) >= 0)
+                bottom = y;
+        // LEFT & RIGHT: Scan the sampled rows once, narrowing the search range row by row
+        int left = -1;
+        int right = -1;
+        final int rightStart = edgeWidth;
+        for (int y = 0; y <= edgeHeight; y += stepLength) {
+            // Only the columns on the left of the current result need to be checked,
+            // note that the rows above the top have no sampled solid pixel
+            int leftEnd = left < 0 ? edgeWidth : left - stepLength;
+            if (top >= 0 && y >= top && leftEnd >= 0) {
+                int x = findSolidInRow(pixmap, pixels, width, y, 0, leftEnd);
+                if (x >= 0)
+                    left = x;
+            }
+            // Only the columns on the right of the current result need to be checked
+            int rightEnd = right < 0 ? 0 : right + stepLength;
+            if (rightEnd <= rightStart) {
+                int x = findSolidInRowReversed(pixmap, pixels, width, y, rightStart, rightEnd);
+                if (x >= 0)
+                    right = x;
+            }
+            if (left == 0 && right == rightStart)
+                break;
+        }
+
+        return new SolidBounds(pixmap.getWidth(), pixmap.getHeight(), top, bottom, left, right);
+    }
+
+    /** Finds the first sampled solid pixel in the given row, scanning from left to right.
+     * The sampled columns are {@code fromX, fromX + stepLength, ...} within {@code [fromX, toX]}.
+     * @return The x-position of the pixel, or {@code -1} if not found.
+     */
+    private static int findSolidInRow(Pixmap pixmap, ByteBuffer pixels, int width, int y, int fromX, int toX) {
+        if (pixels != null) {
+            final int rowBase = y * width;
+            for (int x = fromX; x <= toX; x += stepLength)
+                if ((pixels.get(((rowBase + x) << 2) + 3) & 0xFF) >= alphaThreshold)
+                    return x;
+        } else {
+            for (int x = fromX; x <= toX; x += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold)
+                    return x;
+        }
+        return -1;
+    }
+
+    /** Finds the first sampled solid pixel in the given row, scanning from right to left.
+     * The sampled columns are {@code fromX, fromX - stepLength, ...} within {@code [toX, fromX]}.
+     * @return The x-position of the pixel, or {@code -1} if not found.
+     */
+    private static int findSolidInRowReversed(Pixmap pixmap, ByteBuffer pixels, int width, int y, int fromX, int toX) {
+        if (pixels != null) {
+            final int rowBase = y * width;
+            for (int x = fromX; x >= toX; x -= stepLength)
+                if ((pixels.get(((rowBase + x) << 2) + 3) & 0xFF) >= alphaThreshold)
+                    return x;
+        } else {
+            for (int x = fromX; x >= toX; x -= stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold)
+                    return x;
+        }
+        return -1;
+    }
+
     /** Gets the total width.
      * @return The total width.
      */
@@ -154,6 +231,14 @@ public class DynamicOrthographicCamara extends OrthographicCamera {
         return fbo;
     }
 
+    /** Releases the cached FrameBuffer Object.
+     */
+    public void dispose() {
+        if (fbo != null)
+            fbo.dispose();
+        fbo = null;
+    }
+
     /** Gets the current insert.
      * @return The insert object;
      */
@@ -175,6 +260,18 @@ public class DynamicOrthographicCamara extends OrthographicCamera {
     }
 
 
+    /** The bounds of the solid pixels in a snapshot, in pixmap coordinates.
+     * @param width The width of the snapshot.
+     * @param height The height of the snapshot.
+     * @param top The first sampled row that contains a solid pixel, {@code -1} if not found.
+     * @param bottom The last sampled row that contains a solid pixel, {@code -1} if not found.
+     * @param left The first sampled column that contains a solid pixel, {@code -1} if not found.
+     * @param right The last sampled column that contains a solid pixel, {@code -1} if not found.
+     */
+    public record SolidBounds(int width, int height, int top, int bottom, int left, int right) {
+    }
+
+
     public static class Insert {
         public int top;
         public int bottom;
@@ -0,0 +1,202 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.util.Arrays;
+
+
+/** The class profiles the phases of the frames with low overhead.
+ * <hr>
+ * Each phase is measured as a span of {@link System#nanoTime()}. The span is recorded into a fixed ring buffer of
+ * the recent samples and a log-linear (HDR-style) histogram of all the samples, so recording allocates nothing.
+ * The percentiles are computed only when the report is requested.
+ * Note that the profiler isn't thread-safe, it should only be used by the render thread.
+ * @since ArkPets 3.3
+ */
+public class FrameProfiler {
+    protected final int recentCapacity;
+    private final PhaseStats[] stats;
+
+    /** Each power-of-two range is split into {@code 2^subBucketBits} linear sub-buckets, so the relative error of
+     * the histogram is less than {@code 1/2^subBucketBits}.
+     */
+    private static final int subBucketBits = 4;
+    private static final int subBucketCount = 1 << subBucketBits;
+    private static final int bucketCount = subBucketCount * (64 - subBucketBits);
+
+    /** Initializes a Frame Profiler.
+     * @param recentCapacity The number of the recent samples to keep for each phase.
+     */
+    public FrameProfiler(int recentCapacity) {
+        this.recentCapacity = recentCapacity;
+        stats = new PhaseStats[Phase.values().length];
+        for (int i = 0; i < stats.length; i++)
+            stats[i] = new PhaseStats(recentCapacity);
+    }
+
+    /** Begins a span.
+     * @return The beginning timestamp, which should be passed to {@link #end}.
+     */
+    public long begin() {
+        return System.nanoTime();
+    }
+
+    /** Ends a span and records it.
+     * @param phase The phase which the span belongs to.
+     * @param begin The beginning timestamp returned by {@link #begin()}.
+     */
+    public void end(Phase phase, long begin) {
+        record(phase, System.nanoTime() - begin);
+    }
+
+    /** Records a span of the given duration.
+     * @param phase The phase which the span belongs to.
+     * @param nanos The duration (ns).
+     */
+    void record(Phase phase, long nanos) {
+        stats[phase.ordinal()].record(nanos);
+    }
+
+    /** Clears all the recorded samples.
+     */
+    public void reset() {
+        for (PhaseStats s : stats)
+            s.reset();
+    }
+
+    /** Gets the duration at the given percentile of all the samples of a phase.
+     * @param phase The phase.
+     * @param percentile The percentile, from 0 to 1.
+     * @return Duration (ns) with a relative error less than 1/16, or 0 if there is no sample.
+     */
+    public long getPercentile(Phase phase, double percentile) {
+        return stats[phase.ordinal()].percentile(percentile);
+    }
+
+    /** Gets the duration at the given percentile of the recent samples of a phase.
+     * @param phase The phase.
+     * @param percentile The percentile, from 0 to 1.
+     * @return Duration (ns), or 0 if there is no sample.
+     */
+    public long getRecentPercentile(Phase phase, double percentile) {
+        return stats[phase.ordinal()].recentPercentile(percentile);
+    }
+
+    public String getDebugMsg() {
+        StringBuilder msg = new StringBuilder("FrameProfiler " + stats[Phase.FRAME.ordinal()].count + " frames" +
+                "\n\tall p50\tall p99\trecent p50\trecent p99\tmax");
+        for (Phase phase : Phase.values()) {
+            PhaseStats s = stats[phase.ordinal()];
+            if (s.count == 0)
+                continue;
+            msg.append("\n").append(phase.label).append(":\t")
+                    .append(toMilliseconds(s.percentile(0.5))).append("\t")
+                    .append(toMilliseconds(s.percentile(0.99))).append("\t")
+                    .append(toMilliseconds(s.recentPercentile(0.5))).append("\t")
+                    .append(toMilliseconds(s.recentPercentile(0.99))).append("\t")
+                    .append(toMilliseconds(s.max));
+        }
+        return msg.toString();
+    }
+
+    private static String toMilliseconds(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+
+    static int toBucket(long value) {
+        if (value < subBucketCount << 1)
+            return (int)Math.max(0, value);
+        int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        return ((shift + 1) << subBucketBits) + (int)(value >>> shift) - subBucketCount;
+    }
+
+    static long fromBucket(int bucket) {
+        if (bucket < subBucketCount << 1)
+            return bucket;
+        int shift = (bucket >> subBucketBits) - 1;
+        long lowest = (long)((bucket & (subBucketCount - 1)) + subBucketCount) << shift;
+        // Use the middle of the bucket
+        return lowest + (1L << shift >> 1);
+    }
+
+
+    /** The phases of a frame, a phase may be nested in another.
+     */
+    public enum Phase {
+        /** The whole frame. */
+        FRAME("Frame"),
+        /** The rendering of the character. */
+        RENDER("Render"),
+        /** The selection of the animation by the behavior controller. */
+        BEHAVIOR("Behavior"),
+        /** The applying of the selected animation. */
+        ANIMATION("Animation"),
+        /** The physics of the plane, including the window walking. */
+        PLANE("Plane"),
+        /** The positioning of the window, including the periodic refreshing of the window index. */
+        WINDOW("Window"),
+        /** The periodic refreshing of the window index and the monitor info. */
+        WINDOW_INDEX("WndIndex"),
+        /** The hit-testing of the mouse. */
+        HIT_TEST("HitTest");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+
+    private static class PhaseStats {
+        private final long[] recent;
+        private final long[] histogram = new long[bucketCount];
+        private int recentNext = 0;
+        private long count = 0;
+        private long max = 0;
+
+        private PhaseStats(int recentCapacity) {
+            recent = new long[recentCapacity];
+        }
+
+        private void record(long nanos) {
+            if (recent.length > 0) {
+                recent[recentNext] = nanos;
+                recentNext = (recentNext + 1) % recent.length;
+            }
+            histogram[toBucket(nanos)]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        private void reset() {
+            Arrays.fill(histogram, 0);
+            recentNext = 0;
+            count = 0;
+            max = 0;
+        }
+
+        private long percentile(double percentile) {
+            if (count == 0)
+                return 0;
+            long rank = Math.max(1, (long)Math.ceil(percentile * count));
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank)
+                    return Math.min(max, fromBucket(i));
+            }
+            return max;
+        }
+
+        private long recentPercentile(double percentile) {
+            int size = (int)Math.min(count, recent.length);
+            if (size == 0)
+                return 0;
+            long[] sorted = Arrays.copyOf(recent, size);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int)Math.ceil(percentile * size) - 1)];
+        }
+    }
+}
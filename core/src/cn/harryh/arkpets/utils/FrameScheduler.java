@@ -0,0 +1,107 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+
+/** The class schedules the frame rate adaptively.
+ * <hr>
+ * The frame rate will be lowered to the idle FPS once the app has been idle for a while,
+ * and it will be raised to the active FPS instantly when the app becomes active again.
+ * The time spent at each frame rate is recorded for diagnostic purposes.
+ * @since ArkPets 3.3
+ */
+public class FrameScheduler {
+    protected final int activeFps;
+    protected final int idleFps;
+    protected final float idleDelay;
+    protected int currentFps;
+    // The accumulators are double, since a float sum of frame deltas loses precision after hours of running
+    protected double idleTime = 0;
+    protected double timeAtActive = 0;
+    protected double timeAtIdle = 0;
+    protected int switchCount = 0;
+
+    /** Initializes a Frame Scheduler.
+     * @param activeFps The frame rate when active.
+     * @param idleFps The frame rate when idle, 0=disabled.
+     * @param idleDelay The duration (s) that the app should keep idle before lowering the frame rate.
+     */
+    public FrameScheduler(int activeFps, int idleFps, float idleDelay) {
+        this.activeFps = activeFps;
+        this.idleFps = idleFps;
+        this.idleDelay = idleDelay;
+        this.currentFps = activeFps;
+    }
+
+    /** Returns true if the adaptive frame rate is enabled.
+     */
+    public boolean isEnabled() {
+        return idleFps > 0 && idleFps < activeFps;
+    }
+
+    /** Updates the scheduler with the status of the last frame.
+     * @param deltaTime Delta time (s).
+     * @param idle Whether the app is idle now.
+     * @return true if the frame rate has changed.
+     */
+    public boolean update(float deltaTime, boolean idle) {
+        if (currentFps == activeFps)
+            timeAtActive += deltaTime;
+        else
+            timeAtIdle += deltaTime;
+        if (!isEnabled())
+            return false;
+        if (!idle)
+            return wake();
+        idleTime += deltaTime;
+        return idleTime >= idleDelay && setFps(idleFps);
+    }
+
+    /** Raises the frame rate to the active FPS instantly, typically when an input event occurs.
+     * @return true if the frame rate has changed.
+     */
+    public boolean wake() {
+        idleTime = 0;
+        return setFps(activeFps);
+    }
+
+    /** Gets the scheduled frame rate.
+     * @return The FPS value.
+     */
+    public int getFps() {
+        return currentFps;
+    }
+
+    /** Gets the total time spent at the active frame rate.
+     * @return Time (s).
+     */
+    public double getTimeAtActive() {
+        return timeAtActive;
+    }
+
+    /** Gets the total time spent at the idle frame rate.
+     * @return Time (s).
+     */
+    public double getTimeAtIdle() {
+        return timeAtIdle;
+    }
+
+    /** Gets the debug message.
+     * @return Debug message string.
+     */
+    public String getDebugMsg() {
+        return "FrameScheduler " + (isEnabled() ? "enabled" : "disabled") + ", FPS" + currentFps +
+                "\nActive:\t" + activeFps + "fps\t" + Math.round(timeAtActive) + "s" +
+                "\nIdle:\t" + idleFps + "fps\t" + Math.round(timeAtIdle) + "s" +
+                "\nSwitches:\t" + switchCount;
+    }
+
+    private boolean setFps(int fps) {
+        if (currentFps == fps)
+            return false;
+        currentFps = fps;
+        switchCount++;
+        return true;
+    }
+}
@@ -0,0 +1,162 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.SolidBounds;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import static cn.harryh.arkpets.Const.*;
+
+
+/** The class finds the bounds of the solid pixels in a texture on the GPU side,
+ * so that only a few pixels need to be read back instead of the whole snapshot.
+ * <hr>
+ * The texture is reduced by a chain of progressively smaller FBOs, each of which is half the size of its input.
+ * The initial pass marks the sampled solid pixels, and the later passes take the min and max values of every 2x2 block,
+ * until a single texel which holds the result is left. The X-axis and the Y-axis are reduced separately,
+ * since each value is encoded into two 8-bit channels in order to be portable to any RGBA8888 FBO.
+ * The result is identical to the CPU-side implementation {@link DynamicOrthographicCamara#getSolidBounds}.
+ * @since ArkPets 3.3
+ */
+public class GpuBoundsReducer {
+    protected final ShaderProgram initShader;
+    protected final ShaderProgram reduceShader;
+    protected final SpriteBatch batch;
+    protected final Matrix4 projection = new Matrix4();
+    protected final ArrayList<FrameBuffer> levels = new ArrayList<>();
+    protected final ByteBuffer readBuffer = BufferUtils.newByteBuffer(4);
+    protected int chainWidth = 0;
+    protected int chainHeight = 0;
+
+    protected static final int axisY = 0;
+    protected static final int axisX = 1;
+    protected static final int valueNone = 0xFFFF;
+
+    /** Initializes a GPU Bounds Reducer.
+     * Note that this must be called on the GL thread.
+     * @throws GdxRuntimeException If the shaders failed to compile.
+     */
+    public GpuBoundsReducer() {
+        initShader = new ShaderProgram(Gdx.files.internal(boundsVShader), Gdx.files.internal(boundsIFShader));
+        reduceShader = new ShaderProgram(Gdx.files.internal(boundsVShader), Gdx.files.internal(boundsRFShader));
+        if (!initShader.isCompiled() || !reduceShader.isCompiled()) {
+            String log = initShader.getLog() + reduceShader.getLog();
+            initShader.dispose();
+            reduceShader.dispose();
+            throw new GdxRuntimeException("Bounds reduction shader failed to compile: " + log);
+        }
+        batch = new SpriteBatch(1, initShader);
+        batch.disableBlending();
+    }
+
+    /** Finds the bounds of the solid pixels in the given texture.
+     * @param texture The texture, typically the color buffer of an FBO.
+     * @param width The width of the texture.
+     * @param height The height of the texture.
+     * @return The bounds, in the same coordinates as a pixmap read from the texture's FBO.
+     */
+    public SolidBounds reduce(Texture texture, int width, int height) {
+        ensureChain(width, height);
+        int packedY = reduceAxis(texture, width, height, axisY);
+        int packedX = reduceAxis(texture, width, height, axisX);
+        return new SolidBounds(width, height, unpackMin(packedY), unpackMax(packedY), unpackMin(packedX), unpackMax(packedX));
+    }
+
+    /** Releases all the resources of the reducer.
+     */
+    public void dispose() {
+        disposeChain();
+        batch.dispose();
+        initShader.dispose();
+        reduceShader.dispose();
+    }
+
+    private int reduceAxis(Texture texture, int width, int height, int axis) {
+        Texture input = texture;
+        int inputWidth = width;
+        int inputHeight = height;
+        int packed = 0;
+        for (int i = 0; i < levels.size(); i++) {
+            FrameBuffer fbo = levels.get(i);
+            ShaderProgram shader = i == 0 ? initShader : reduceShader;
+            batch.setShader(shader);
+            batch.setProjectionMatrix(projection.setToOrtho2D(0, 0, fbo.getWidth(), fbo.getHeight()));
+            fbo.begin();
+            batch.begin();
+            shader.setUniformf("u_inputSize", inputWidth, inputHeight);
+            if (i == 0) {
+                shader.setUniformf("u_edgeParity", (width - 1) & 1, (height - 1) & 1);
+                shader.setUniformi("u_axis", axis);
+            }
+            batch.draw(input, 0, 0, fbo.getWidth(), fbo.getHeight());
+            batch.end();
+            if (i == levels.size() - 1)
+                packed = readTexel();
+            fbo.end();
+            input = fbo.getColorBufferTexture();
+            inputWidth = fbo.getWidth();
+            inputHeight = fbo.getHeight();
+        }
+        return packed;
+    }
+
+    private int readTexel() {
+        readBuffer.clear();
+        Gdx.gl.glPixelStorei(GL20.GL_PACK_ALIGNMENT, 1);
+        Gdx.gl.glReadPixels(0, 0, 1, 1, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, readBuffer);
+        // Combine the channels (R, G, B, A) as a big-endian integer
+        return (readBuffer.get(0) & 0xFF) << 24 | (readBuffer.get(1) & 0xFF) << 16 |
+                (readBuffer.get(2) & 0xFF) << 8 | (readBuffer.get(3) & 0xFF);
+    }
+
+    private void ensureChain(int width, int height) {
+        if (width <= 0 || height <= 0 || width >= valueNone || height >= valueNone)
+            throw new IllegalArgumentException("Invalid texture size " + width + "*" + height);
+        if (width == chainWidth && height == chainHeight)
+            return;
+        disposeChain();
+        int w = width;
+        int h = height;
+        do {
+            w = (w + 1) >> 1;
+            h = (h + 1) >> 1;
+            FrameBuffer fbo = new FrameBuffer(Pixmap.Format.RGBA8888, w, h, false);
+            fbo.getColorBufferTexture().setFilter(TextureFilter.Nearest, TextureFilter.Nearest);
+            levels.add(fbo);
+        } while (w > 1 || h > 1);
+        chainWidth = width;
+        chainHeight = height;
+    }
+
+    private void disposeChain() {
+        for (FrameBuffer fbo : levels)
+            fbo.dispose();
+        levels.clear();
+        chainWidth = 0;
+        chainHeight = 0;
+    }
+
+    static int unpackMin(int packed) {
+        int value = packed >>> 16;
+        return value == valueNone ? -1 : value;
+    }
+
+    static int unpackMax(int packed) {
+        int value = packed & 0xFFFF;
+        return value - 1;
+    }
+}
@@ -0,0 +1,144 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+
+
+/** The class holds a CPU-side alpha mask of the last rendered frame,
+ * so that the hit-test of the mouse can be done without touching the GL pipeline.
+ * <hr>
+ * The frame is downloaded asynchronously through two Pixel Buffer Objects (PBO) in turn,
+ * that is, the pixels read in a frame will be mapped to the mask in the next frame.
+ * If PBO is not supported, it falls back to a synchronous read into a reusable buffer,
+ * which is done lazily by the first hit-test after a frame, so that the frames without any hit-test read nothing.
+ * @since ArkPets 3.3
+ */
+public class HitTestBuffer {
+    protected final boolean usePBO;
+    protected final int[] pbo = new int[2];
+    protected final boolean[] pending = new boolean[2];
+    protected int index = 0;
+    protected int width = 0;
+    protected int height = 0;
+    protected byte[] mask = new byte[0];
+    protected ByteBuffer fallbackBuffer;
+    protected boolean isStale = false;
+
+    protected static final int bytesPerPixel = 4;
+
+    /** Initializes a Hit-Test Buffer.
+     * Note that this must be called on the GL thread.
+     */
+    public HitTestBuffer() {
+        boolean usePBO;
+        try {
+            GLCapabilities caps = GL.getCapabilities();
+            usePBO = caps.OpenGL21 || caps.GL_ARB_pixel_buffer_object;
+        } catch (Throwable e) {
+            usePBO = false;
+        }
+        this.usePBO = usePBO;
+        Logger.debug("HitTest", "Using " + (usePBO ? "asynchronous PBO" : "synchronous") + " readback");
+    }
+
+    /** Captures the current content of the bound framebuffer into the mask.
+     * It should be called once per frame after the rendering is completed.
+     * @param width The width of the region to capture, starting from the origin.
+     * @param height The height of the region to capture, starting from the origin.
+     */
+    public void capture(int width, int height) {
+        if (width <= 0 || height <= 0)
+            return;
+        if (width != this.width || height != this.height)
+            resize(width, height);
+        if (usePBO) {
+            // Issue an asynchronous read into the current PBO
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbo[index]);
+            GL11.glReadPixels(0, 0, width, height, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, 0L);
+            pending[index] = true;
+            // Map the other PBO which was filled in the last frame
+            int last = index ^ 1;
+            if (pending[last]) {
+                GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, pbo[last]);
+                ByteBuffer buffer = GL15.glMapBuffer(GL21.GL_PIXEL_PACK_BUFFER, GL15.GL_READ_ONLY);
+                if (buffer != null) {
+                    copyAlpha(buffer);
+                    GL15.glUnmapBuffer(GL21.GL_PIXEL_PACK_BUFFER);
+                }
+                pending[last] = false;
+            }
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+            index = last;
+        } else {
+            // Defer the synchronous read until the mask is queried
+            isStale = true;
+        }
+    }
+
+    /** Gets the alpha value of the specified pixel in the last captured frame.
+     * Note that the y-axis starts from the bottom, which is the same as the framebuffer.
+     * If PBO is not supported, this must be called on the GL thread.
+     * @param x The X-axis coordinate.
+     * @param y The Y-axis coordinate.
+     * @return The alpha value ranging in [0,255], 0 if the pixel is out of the mask.
+     */
+    public int getAlpha(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height)
+            return 0;
+        if (isStale) {
+            isStale = false;
+            fallbackBuffer.clear();
+            Gdx.gl.glReadPixels(0, 0, width, height, GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, fallbackBuffer);
+            copyAlpha(fallbackBuffer);
+        }
+        return mask[y * width + x] & 0xFF;
+    }
+
+    /** Releases all the GL resources of this buffer.
+     */
+    public void dispose() {
+        if (usePBO && pbo[0] != 0) {
+            GL15.glDeleteBuffers(pbo);
+            pbo[0] = pbo[1] = 0;
+        }
+        pending[0] = pending[1] = false;
+        isStale = false;
+    }
+
+    protected void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        mask = new byte[width * height];
+        int size = width * height * bytesPerPixel;
+        if (usePBO) {
+            dispose();
+            GL15.glGenBuffers(pbo);
+            for (int i : pbo) {
+                GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, i);
+                GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, size, GL15.GL_STREAM_READ);
+            }
+            GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+            index = 0;
+        } else {
+            fallbackBuffer = BufferUtils.newByteBuffer(size);
+        }
+        Logger.debug("HitTest", "Resized to " + width + " * " + height);
+    }
+
+    private void copyAlpha(ByteBuffer buffer) {
+        final int length = Math.min(mask.length, buffer.limit() / bytesPerPixel);
+        for (int i = 0, j = bytesPerPixel - 1; i < length; i++, j += bytesPerPixel)
+            mask[i] = buffer.get(j);
+    }
+}
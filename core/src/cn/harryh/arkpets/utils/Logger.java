@@ -136,6 +136,14 @@ public class Logger {
         return rootLogger.getLevel();
     }
 
+    /** Returns true if the messages with the level {@code DEBUG} will be logged,
+     * which can be used to avoid building the unused messages.
+     * @since ArkPets 3.3
+     */
+    public static boolean isDebugEnabled() {
+        return isFileLoggerAvailable && currentLogger.isDebugEnabled();
+    }
+
     /** Logs a message with the level {@code DEBUG}.
      */
     public static void debug(String tag, String message) {
@@ -0,0 +1,98 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Structure;
+import com.sun.jna.platform.win32.BaseTSD;
+import com.sun.jna.platform.win32.Kernel32;
+import com.sun.jna.platform.win32.WinNT;
+import com.sun.jna.win32.StdCallLibrary;
+import com.sun.jna.win32.W32APIOptions;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+
+/** The snapshot of the memory usage of a process.
+ * @param rss The resident set size (the working set size in Windows) in bytes, {@code -1} if unavailable.
+ * @param heapUsed The used size of the Java heap in bytes.
+ * @param heapCommitted The committed size of the Java heap in bytes.
+ * @param heapMax The max size of the Java heap in bytes.
+ * @since ArkPets 3.3
+ */
+public record MemoryStatus(long rss, long heapUsed, long heapCommitted, long heapMax) {
+    private static final Path procStatusPath = Path.of("/proc/self/status");
+
+    /** Gets the memory usage of the current process.
+     * @return The snapshot.
+     */
+    public static MemoryStatus ofCurrentProcess() {
+        Runtime runtime = Runtime.getRuntime();
+        long committed = runtime.totalMemory();
+        return new MemoryStatus(getRss(), committed - runtime.freeMemory(), committed, runtime.maxMemory());
+    }
+
+    private static long getRss() {
+        try {
+            if (Platform.isWindows()) {
+                ProcessMemoryCounters counters = new ProcessMemoryCounters();
+                if (PsapiExt.INSTANCE.GetProcessMemoryInfo(Kernel32.INSTANCE.GetCurrentProcess(), counters, counters.size()))
+                    return counters.WorkingSetSize.longValue();
+            } else if (Platform.isLinux()) {
+                List<String> lines = Files.readAllLines(procStatusPath);
+                for (String line : lines)
+                    if (line.startsWith("VmRSS:"))
+                        return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+            }
+        } catch (IOException | RuntimeException | LinkageError e) {
+            Logger.debug("Memory", "Failed to get the resident set size: " + e);
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "RSS " + (rss < 0 ? "unknown" : toMegabytes(rss)) +
+                ", heap " + toMegabytes(heapUsed) + " used / " + toMegabytes(heapCommitted) + " committed / " + toMegabytes(heapMax) + " max";
+    }
+
+    private static String toMegabytes(long bytes) {
+        return String.format("%.1fMB", bytes / 1048576f);
+    }
+
+
+    /** The mapping of the {@code GetProcessMemoryInfo} function, which is absent in the JNA platform library.
+     */
+    private interface PsapiExt extends StdCallLibrary {
+        PsapiExt INSTANCE = Native.load("psapi", PsapiExt.class, W32APIOptions.DEFAULT_OPTIONS);
+
+        boolean GetProcessMemoryInfo(WinNT.HANDLE process, ProcessMemoryCounters counters, int cb);
+    }
+
+
+    /** The {@code PROCESS_MEMORY_COUNTERS} structure.
+     */
+    @Structure.FieldOrder({"cb", "PageFaultCount", "PeakWorkingSetSize", "WorkingSetSize", "QuotaPeakPagedPoolUsage",
+            "QuotaPagedPoolUsage", "QuotaPeakNonPagedPoolUsage", "QuotaNonPagedPoolUsage", "PagefileUsage", "PeakPagefileUsage"})
+    public static class ProcessMemoryCounters extends Structure {
+        public int cb;
+        public int PageFaultCount;
+        public BaseTSD.SIZE_T PeakWorkingSetSize;
+        public BaseTSD.SIZE_T WorkingSetSize;
+        public BaseTSD.SIZE_T QuotaPeakPagedPoolUsage;
+        public BaseTSD.SIZE_T QuotaPagedPoolUsage;
+        public BaseTSD.SIZE_T QuotaPeakNonPagedPoolUsage;
+        public BaseTSD.SIZE_T QuotaNonPagedPoolUsage;
+        public BaseTSD.SIZE_T PagefileUsage;
+        public BaseTSD.SIZE_T PeakPagefileUsage;
+
+        public ProcessMemoryCounters() {
+            cb = size();
+        }
+    }
+}
@@ -4,18 +4,26 @@
 package cn.harryh.arkpets.utils;
 
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static cn.harryh.arkpets.Const.*;
 
 
 public class Plane {
-    public final ArrayList<Vector3> barriers;
-    public final ArrayList<Vector3> pointCharges;
     public final ArrayList<RectArea> world;
+    private float[] barriers;       // Each barrier takes 3 floats: left, top, width
+    private float[] pointCharges;   // Each point charge takes 3 floats: x, y, quantity product
+    private int barrierCount;
+    private int pointChargeCount;
+    private float top;      // Cached borders of the current step
+    private float bottom;
+    private float left;
+    private float right;
     private final Vector2 obj;
     private final Vector2 position;
+    private final Vector2 lastPosition;
     private final Vector2 speed;
     private final Vector2 speedLimit;
     private float gravity;
@@ -24,15 +32,21 @@ public class Plane {
     private float staticFrict;
     private boolean dropped = false;
     private float droppedHeight = 0;
+    private float fixedStep = 0;
+    private float accumulator = 0;
+
+    private static final int initialCapacity = 16;
+    private static final float maxAccumulation = 0.25f;
 
     /** Initializes a plane with gravity field.
      */
     public Plane() {
-        barriers        = new ArrayList<>();
-        pointCharges    = new ArrayList<>();
+        barriers        = new float[initialCapacity * 3];
+        pointCharges    = new float[initialCapacity * 3];
         this.world      = new ArrayList<>();
         obj             = new Vector2(0, 0);
         position        = new Vector2(0, 0);
+        lastPosition    = new Vector2(0, 0);
         speed           = new Vector2(0, 0);
         speedLimit      = new Vector2(0, 0);
         gravity         = 0;
@@ -80,6 +94,17 @@ public class Plane {
         speedLimit.set(Math.max(0, x), Math.max(0, y));
     }
 
+    /** Sets the fixed time step of the physics integration.
+     * When enabled, {@link #update(float)} accumulates the delta time and advances the physics
+     * in steps of the same length, so the result won't depend on the frame rate.
+     * @param stepRate The count of steps per second, 0=disabled (integrate with the raw delta time).
+     */
+    public void setFixedStepRate(float stepRate) {
+        fixedStep = stepRate > 0 ? 1f / stepRate : 0;
+        accumulator = 0;
+        lastPosition.set(position);
+    }
+
     /** Changes the position of the object forcibly,
      * which will cause velocity change.
      * @param deltaTime Delta time (s), set to 0 to avoid changing the velocity.
@@ -90,17 +115,38 @@ public class Plane {
         if (deltaTime > 0)
             speed.set((x - position.x) / deltaTime, (y - position.y) / deltaTime);
         position.set(x, y);
+        updateBorders();
         position.set(limitX(x), limitY(y));
+        lastPosition.set(position);
+    }
+
+    /** Updates the physics of the object within the given delta time.
+     * If the fixed time step is enabled, zero or more fixed steps will be performed,
+     * and the remainder will be used for interpolation, see {@link #getInterpolatedX()}.
+     * @param deltaTime Delta time (s).
+     */
+    public void update(float deltaTime) {
+        if (fixedStep <= 0) {
+            updatePosition(deltaTime);
+            lastPosition.set(position);
+            return;
+        }
+        accumulator = Math.min(accumulator + Math.max(0, deltaTime), maxAccumulation);
+        while (accumulator >= fixedStep) {
+            lastPosition.set(position);
+            updatePosition(fixedStep);
+            accumulator -= fixedStep;
+        }
     }
 
     /** Updates the position of the object.
      * @param deltaTime Delta time (s).
      */
     public void updatePosition(float deltaTime) {
+        updateBorders();
         updateVelocity(deltaTime);
         float deltaX = speed.x * deltaTime;
         float deltaY = speed.y * deltaTime;
-        final float bottom = borderBottom();
         droppedHeight = Math.max(Math.signum(gravity) * (position.y - bottom), droppedHeight);
         if (position.y != bottom && limitY(deltaY + position.y) == bottom) {
             // When it fell to the ground.
@@ -118,10 +164,22 @@ public class Plane {
      * @param overCover Whether to set the highest priority to this barrier.
      */
     public void setBarrier(float posTop, float posLeft, float width, boolean overCover) {
+        barriers = ensureCapacity(barriers, barrierCount + 1);
+        int i = 0;
         if (overCover)
-            barriers.add(0, new Vector3(posLeft, posTop, width));
+            System.arraycopy(barriers, 0, barriers, 3, barrierCount * 3);
         else
-            barriers.add(new Vector3(posLeft, posTop, width));
+            i = barrierCount * 3;
+        barriers[i] = posLeft;
+        barriers[i + 1] = posTop;
+        barriers[i + 2] = width;
+        barrierCount++;
+    }
+
+    /** Removes all the barriers.
+     */
+    public void clearBarriers() {
+        barrierCount = 0;
     }
 
     /** Sets a point charge whose excited electric field can repulse the object.
@@ -131,7 +189,18 @@ public class Plane {
      * @param quantityProduct The product of the point's quantity and the object's quantity (C^2).
      */
     public void setPointCharge(float posTop, float posLeft, float quantityProduct) {
-        pointCharges.add(new Vector3(posLeft, posTop, quantityProduct));
+        pointCharges = ensureCapacity(pointCharges, pointChargeCount + 1);
+        int i = pointChargeCount * 3;
+        pointCharges[i] = posLeft;
+        pointCharges[i + 1] = posTop;
+        pointCharges[i + 2] = quantityProduct;
+        pointChargeCount++;
+    }
+
+    /** Removes all the point charges.
+     */
+    public void clearPointCharges() {
+        pointChargeCount = 0;
     }
 
     /** Gets the x-position of the object.
@@ -148,6 +217,22 @@ public class Plane {
         return position.y;
     }
 
+    /** Gets the x-position of the object interpolated between the last two fixed steps.
+     * It equals to {@link #getX()} if the fixed time step is disabled.
+     * @return X (px).
+     */
+    public float getInterpolatedX() {
+        return lastPosition.x + (position.x - lastPosition.x) * getInterpolationAlpha();
+    }
+
+    /** Gets the y-position of the object interpolated between the last two fixed steps.
+     * It equals to {@link #getY()} if the fixed time step is disabled.
+     * @return Y (px).
+     */
+    public float getInterpolatedY() {
+        return lastPosition.y + (position.y - lastPosition.y) * getInterpolationAlpha();
+    }
+
     /** Gets the dropped-status of the object.
      * @return true=dropped once.
      */
@@ -184,10 +269,10 @@ public class Plane {
         for (RectArea i : world)
             msgBuilder1.append("\n- ").append(i.toString());
         msg = msgBuilder1.toString();
-        msg += "\nBarriers:\t" + barriers.size();
+        msg += "\nBarriers:\t" + barrierCount;
         StringBuilder msgBuilder2 = new StringBuilder(msg);
-        for (Vector3 i : barriers)
-            msgBuilder2.append("\n- Y = ").append(i.y).append(", X range = (").append(i.x).append(",").append(i.x + i.z).append(")");
+        for (int i = 0; i < barrierCount * 3; i += 3)
+            msgBuilder2.append("\n- Y = ").append(barriers[i + 1]).append(", X range = (").append(barriers[i]).append(",").append(barriers[i] + barriers[i + 2]).append(")");
         msg = msgBuilder2.toString();
         return msg;
     }
@@ -196,19 +281,17 @@ public class Plane {
      * @param deltaTime Delta time (s).
      */
     private void updateVelocity(float deltaTime) {
-        final float top = borderTop();
-        final float bottom = borderBottom();
         // Gravity
         speed.y -= gravity * deltaTime;
         if (position.y == bottom || (position.y + obj.y >= top && speed.y > 0))
             speed.y = 0;
         // Electrostatic forces
-        for (Vector3 pc : pointCharges) {
-            float dx = position.x + obj.x / 2f - pc.x;
-            float dy = position.y + obj.y / 2f - pc.y;
+        for (int i = 0; i < pointChargeCount * 3; i += 3) {
+            float dx = position.x + obj.x / 2f - pointCharges[i];
+            float dy = position.y + obj.y / 2f - pointCharges[i + 1];
             float hypot = (float)Math.hypot(dx, dy);
-            speed.x = applyElectrostaticEffect(speed.x, pc.z,  hypot, dx / hypot, deltaTime);
-            speed.y = applyElectrostaticEffect(speed.y, pc.z, hypot, dy / hypot , deltaTime);
+            speed.x = applyElectrostaticEffect(speed.x, pointCharges[i + 2], hypot, dx / hypot, deltaTime);
+            speed.y = applyElectrostaticEffect(speed.y, pointCharges[i + 2], hypot, dy / hypot , deltaTime);
         }
         // Ground friction
         if (position.y == bottom)
@@ -222,7 +305,7 @@ public class Plane {
         if (speedLimit.y != 0 && Math.abs(speed.y) > speedLimit.y)
             speed.y = Math.signum(speed.y) * speedLimit.y;
         // Bounce
-        if (resilience != 0 && (position.x == borderLeft() || position.x == borderRight())) {
+        if (resilience != 0 && (position.x == left || position.x == right)) {
             speed.x = (float)(Math.sqrt(speed.x * speed.x * resilience) * Math.signum(-speed.x));
         }
     }
@@ -260,7 +343,7 @@ public class Plane {
      * @return New x (px).
      */
     private float limitX(float x) {
-        return Math.max(borderLeft(), Math.min(x, borderRight() - obj.x));
+        return Math.max(left, Math.min(x, right - obj.x));
     }
 
     /** Limits the y-position to avoid overstepping.
@@ -268,7 +351,28 @@ public class Plane {
      * @return New y (px).
      */
     private float limitY(float y) {
-        return Math.max(borderBottom(), Math.min(y, borderTop() - obj.y));
+        return Math.max(bottom, Math.min(y, top - obj.y));
+    }
+
+    /** Gets the ratio of the accumulated time to the fixed step.
+     * @return The alpha value ranging in [0,1].
+     */
+    private float getInterpolationAlpha() {
+        return fixedStep > 0 ? Math.min(1, accumulator / fixedStep) : 1;
+    }
+
+    /** Computes the four borders at the current position into the cached fields,
+     * which are used throughout a physics step.
+     */
+    private void updateBorders() {
+        top = borderTop();
+        bottom = borderBottom(top);
+        left = borderLeft();
+        right = borderRight();
+    }
+
+    private static float[] ensureCapacity(float[] array, int count) {
+        return count * 3 > array.length ? Arrays.copyOf(array, Math.max(count * 3, array.length << 1)) : array;
     }
 
     /** Gets the position of the top border.
@@ -276,10 +380,12 @@ public class Plane {
      */
     public float borderTop() {
         float t = -Float.MAX_VALUE;
-        for (RectArea a : world)
+        for (int j = 0; j < world.size(); j++) {
+            RectArea a = world.get(j);
             if (a.isXInOrthographic(position.x, obj.x))
                 if (a.top > t)
                     t = a.top;
+        }
         return t;
     }
 
@@ -287,16 +393,22 @@ public class Plane {
      * @return Y (px).
      */
     public float borderBottom() {
-        for (Vector3 i : barriers)
-            if (i.x <= position.x + obj.x && position.x <= i.x + i.z)
-                if (position.y + obj.y > i.y && borderTop() - obj.y > i.y)
-                    return i.y;
+        return borderBottom(borderTop());
+    }
+
+    private float borderBottom(float top) {
+        for (int i = 0; i < barrierCount * 3; i += 3)
+            if (barriers[i] <= position.x + obj.x && position.x <= barriers[i] + barriers[i + 2])
+                if (position.y + obj.y > barriers[i + 1] && top - obj.y > barriers[i + 1])
+                    return barriers[i + 1];
 
         float t = Float.MAX_VALUE;
-        for (RectArea a : world)
+        for (int j = 0; j < world.size(); j++) {
+            RectArea a = world.get(j);
             if (a.isXInOrthographic(position.x, obj.x))
                 if (a.bottom < t)
                     t = a.bottom;
+        }
         return t;
     }
 
@@ -305,10 +417,12 @@ public class Plane {
      */
     public float borderRight() {
         float t = -Float.MAX_VALUE;
-        for (RectArea a : world)
+        for (int j = 0; j < world.size(); j++) {
+            RectArea a = world.get(j);
             if (a.isYInOrthographic(position.y, obj.y))
                 if (a.right > t)
                     t = a.right;
+        }
         return t;
     }
 
@@ -317,10 +431,12 @@ public class Plane {
      */
     public float borderLeft() {
         float t = Float.MAX_VALUE;
-        for (RectArea a : world)
+        for (int j = 0; j < world.size(); j++) {
+            RectArea a = world.get(j);
             if (a.isYInOrthographic(position.y, obj.y))
                 if (a.left < t)
                     t = a.left;
+        }
         return t;
     }
 
@@ -0,0 +1,96 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the sampling distribution and the reproducibility of {@link AliasSampler}.
+ * <hr>
+ * The distribution is checked by Pearson's chi-squared test against the weights, whose critical values are those
+ * of the significance level 0.001, so that a correct sampler fails with a negligible chance,
+ * while the samples are drawn from fixed seeds, so that the results are deterministic anyway.
+ */
+public class AliasSamplerTest {
+    private static final int sampleCount = 200_000;
+    /** The critical values of the chi-squared distribution at the significance level 0.001, indexed by the degrees of freedom. */
+    private static final double[] chiSquaredCritical = {0, 10.828, 13.816, 16.266, 18.467, 20.515, 22.458, 24.322, 26.124};
+
+    @Test
+    public void testDistribution() {
+        int[][] weightsList = {
+                {1},
+                {1, 1},
+                {320, 10, 40, 40, 16},   // The typical action list of GeneralBehavior
+                {1, 2, 3, 4, 5, 6, 7, 8, 9},
+                {1000, 1, 1},
+                {5, 0, 5, 0, 90}
+        };
+        for (int[] weights : weightsList)
+            for (long seed = 0; seed < 3; seed++)
+                assertFits(weights, seed);
+    }
+
+    @Test
+    public void testZeroWeights() {
+        AliasSampler sampler = new AliasSampler(new int[]{0, 3, 0, -2, 1});
+        SplittableRandom random = new SplittableRandom(0);
+        for (int i = 0; i < sampleCount; i++) {
+            int index = sampler.sample(random);
+            assertTrue(index == 1 || index == 4, "Drew the index " + index + " without weight");
+        }
+        // No weight at all
+        SplittableRandom random2 = new SplittableRandom(0);
+        AliasSampler none = new AliasSampler(new int[]{0, 0, 0});
+        for (int i = 0; i < 1000; i++)
+            assertEquals(0, none.sample(random2));
+        assertEquals(-1, new AliasSampler(new int[0]).sample(random2));
+    }
+
+    @Test
+    public void testSeedReproducibility() {
+        int[] weights = {320, 10, 40, 40, 16};
+        AliasSampler sampler = new AliasSampler(weights);
+        int[] trace1 = trace(sampler, new SplittableRandom(42));
+        int[] trace2 = trace(new AliasSampler(weights), new SplittableRandom(42));
+        int[] trace3 = trace(sampler, new SplittableRandom(43));
+        assertArrayEquals(trace1, trace2);
+        assertFalse(java.util.Arrays.equals(trace1, trace3));
+    }
+
+    private static void assertFits(int[] weights, long seed) {
+        AliasSampler sampler = new AliasSampler(weights);
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] counts = new long[weights.length];
+        for (int i = 0; i < sampleCount; i++)
+            counts[sampler.sample(random)]++;
+        long total = 0;
+        for (int w : weights)
+            total += w;
+        double chiSquared = 0;
+        int degrees = -1;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] == 0) {
+                assertEquals(0, counts[i]);
+                continue;
+            }
+            double expected = (double)sampleCount * weights[i] / total;
+            chiSquared += (counts[i] - expected) * (counts[i] - expected) / expected;
+            degrees++;
+        }
+        String message = "weights " + java.util.Arrays.toString(weights) + " seed " + seed + " chi-squared " + chiSquared;
+        assertTrue(chiSquared <= chiSquaredCritical[degrees], message);
+    }
+
+    private static int[] trace(AliasSampler sampler, SplittableRandom random) {
+        int[] trace = new int[1000];
+        for (int i = 0; i < trace.length; i++)
+            trace[i] = sampler.sample(random);
+        return trace;
+    }
+}
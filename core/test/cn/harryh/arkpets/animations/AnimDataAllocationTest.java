@@ -0,0 +1,86 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import com.esotericsoftware.spine.AnimationState;
+import com.esotericsoftware.spine.AnimationStateData;
+import com.esotericsoftware.spine.Skeleton;
+import com.esotericsoftware.spine.SkeletonData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static cn.harryh.arkpets.utils.AllocationAssertions.assertAllocatesNothing;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests that the animation data drawn from an {@link AnimClipGroup} are interned by its {@link AnimDataRegistry},
+ * and that the per-frame animation selection allocates nothing once the variations have been interned.
+ * <hr>
+ * The frames simulate the render loop of a pet, including the behavior, the clicks and the turning around at the borders.
+ */
+public class AnimDataAllocationTest {
+    private static final int frameCount = 100_000;
+    private static final float deltaTime = 1 / 60f;
+
+    private AnimClipGroup animList;
+    private AnimationState state;
+    private Skeleton skeleton;
+
+    @BeforeEach
+    public void setUp() {
+        SkeletonData skeletonData = TestModels.newSkeletonData();
+        animList = TestModels.newAnimList(skeletonData);
+        state = new AnimationState(new AnimationStateData(skeletonData));
+        skeleton = new Skeleton(skeletonData);
+    }
+
+    @Test
+    public void testVariantsAreInterned() {
+        AnimData move = animList.getLoopAnimData(AnimClip.AnimType.MOVE);
+        AnimData right = move.derive(0, 1);
+        assertSame(right, move.derive(0, 1));
+        assertSame(right, animList.getLoopAnimData(AnimClip.AnimType.MOVE).derive(0, 1));
+        assertSame(right, right.turnAround().turnAround());
+        assertNotSame(right, right.turnAround());
+        AnimData idle = animList.getLoopAnimData(AnimClip.AnimType.IDLE);
+        AnimData attack = animList.getStreamedAnimData(AnimClip.AnimType.ATTACK);
+        assertSame(attack.join(idle), attack.join(idle));
+        assertSame(attack.join(idle), animList.getRegistry().intern(new AnimData(attack.animClip(),
+                new AnimData(attack.animNext().animClip(), new AnimData(attack.animNext().animNext().animClip()).join(idle), false, false),
+                false, false)));
+        // The standalone ones still compare structurally
+        assertEquals(new AnimData(idle.animClip(), null, true, false), idle);
+        assertEquals(idle, new AnimData(idle.animClip(), null, true, false));
+        assertNotEquals(move, right);
+    }
+
+    @Test
+    public void testSelectionAllocatesNothing() {
+        GeneralBehavior behavior = new GeneralBehavior(TestModels.newConfig(), animList, 1);
+        AnimComposer composer = new AnimComposer(state);
+        // The warm-up passes intern the variations and fill the pools of Spine
+        assertAllocatesNothing(() -> runFrames(behavior, composer), frameCount + " frames");
+    }
+
+    /** Simulates the animation selection of {@code ArkPets.render()}.
+     */
+    private void runFrames(GeneralBehavior behavior, AnimComposer composer) {
+        composer.offer(behavior.defaultAnim());
+        for (int i = 0; i < frameCount; i++) {
+            state.update(deltaTime);
+            AnimData newAnim = behavior.autoCtrl(deltaTime);
+            AnimData playing = composer.getPlaying();
+            if (playing != null && playing.mobility() != 0 && i % 900 == 0)
+                newAnim = playing.turnAround(); // Reached the border
+            if (i % 600 == 0)
+                newAnim = behavior.clickEnd(); // Clicked
+            else if (i % 1000 == 0)
+                newAnim = behavior.dropped(); // Dropped
+            else if (newAnim == null)
+                newAnim = playing; // Kept, which is compared with the playing one
+            composer.offer(newAnim);
+            state.apply(skeleton);
+        }
+    }
+}
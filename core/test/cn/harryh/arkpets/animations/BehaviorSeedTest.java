@@ -0,0 +1,59 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests that a {@link Behavior} given the same seed makes the same decisions,
+ * which is what the seed of a pet ({@code behavior_random_seed} or {@code --seed}) relies on.
+ */
+public class BehaviorSeedTest {
+    private static final int frameCount = 50_000;
+    private static final float deltaTime = 1 / 60f;
+
+    private AnimClipGroup animList;
+
+    @BeforeEach
+    public void setUp() {
+        animList = TestModels.newAnimList(TestModels.newSkeletonData());
+    }
+
+    @Test
+    public void testSameSeedSameTrace() {
+        List<String> trace = trace(new GeneralBehavior(TestModels.newConfig(), animList, 42));
+        assertFalse(trace.isEmpty());
+        assertEquals(trace, trace(new GeneralBehavior(TestModels.newConfig(), animList, 42)));
+        // The random numbers used by the pet besides the actions follow as well
+        Behavior a = new GeneralBehavior(TestModels.newConfig(), animList, 42);
+        Behavior b = new GeneralBehavior(TestModels.newConfig(), animList, 42);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(a.getRandom().nextDouble(), b.getRandom().nextDouble());
+    }
+
+    @Test
+    public void testDifferentSeedDifferentTrace() {
+        // The pets in one process use the consecutive seeds
+        assertNotEquals(trace(new GeneralBehavior(TestModels.newConfig(), animList, 42)),
+                trace(new GeneralBehavior(TestModels.newConfig(), animList, 43)));
+    }
+
+    /** Records the frames at which the behavior changes the animation, and the animations changed to.
+     */
+    private static List<String> trace(Behavior behavior) {
+        List<String> trace = new ArrayList<>();
+        for (int i = 0; i < frameCount; i++) {
+            AnimData anim = behavior.autoCtrl(deltaTime);
+            if (anim != null)
+                trace.add(i + ":" + anim.animClip().fullName + ":" + anim.mobility());
+        }
+        return trace;
+    }
+}
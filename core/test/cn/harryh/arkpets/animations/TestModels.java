@@ -0,0 +1,50 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.animations;
+
+import cn.harryh.arkpets.ArkConfig;
+import com.alibaba.fastjson.JSONObject;
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.spine.Animation;
+import com.esotericsoftware.spine.SkeletonData;
+
+
+/** The shared fixtures of the animation tests, which need a model and a config but no real files.
+ */
+final class TestModels {
+    /** The names of the animations of a typical operator model. */
+    static final String[] animationNames = {
+            "Relax", "Move", "Sit", "Sleep", "Special", "Interact", "Attack_Begin", "Attack_Loop", "Attack_End"
+    };
+
+    private TestModels() {
+    }
+
+    /** Creates a skeleton data containing an empty animation of 1 second for each of {@link #animationNames}.
+     * @return The skeleton data.
+     */
+    static SkeletonData newSkeletonData() {
+        SkeletonData skeletonData = new SkeletonData();
+        for (String name : animationNames)
+            skeletonData.getAnimations().add(new Animation(name, new Array<>(), 1));
+        return skeletonData;
+    }
+
+    /** Creates the animation list of the given skeleton data.
+     * @param skeletonData The skeleton data.
+     * @return The animation list.
+     */
+    static AnimClipGroup newAnimList(SkeletonData skeletonData) {
+        return new AnimClipGroup(skeletonData.getAnimations().toArray(Animation.class));
+    }
+
+    /** Creates a config which enables all the behaviors.
+     * @return The config.
+     */
+    static ArkConfig newConfig() {
+        return JSONObject.parseObject("""
+                {"behavior_ai_activation": 8, "behavior_allow_sit": true, "behavior_allow_walk": true, "behavior_allow_interact": true}
+                """, ArkConfig.class);
+    }
+}
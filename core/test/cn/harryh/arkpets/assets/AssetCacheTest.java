@@ -0,0 +1,139 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the persistence and the invalidation of {@link AssetCache} in a temporary directory.
+ */
+public class AssetCacheTest {
+    @TempDir
+    Path assetDir;
+    @TempDir
+    Path cacheDir;
+    private AssetAccessor accessor;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.writeString(assetDir.resolve("model.atlas"), "model.png");
+        Files.write(assetDir.resolve("model.skel"), new byte[]{0, 1, 2, 3});
+        JSONObject fileMap = new JSONObject();
+        fileMap.put(".atlas", "model.atlas");
+        fileMap.put(".skel", "model.skel");
+        accessor = new AssetAccessor(fileMap);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        AssetCache cache = open();
+        assertNull(cache.get("bounds"));
+        cache.save();
+        assertFalse(cache.getFile().exists(), "An unmodified cache shouldn't be saved");
+        cache.put("bounds", entry(42));
+        cache.save();
+        assertTrue(cache.getFile().isFile());
+        AssetCache reopened = open();
+        assertEquals(cache.getFile(), reopened.getFile());
+        assertEquals(42, reopened.get("bounds").getIntValue("value"));
+        assertArrayEquals(new String[]{cache.getFile().getName()}, cacheDir.toFile().list(),
+                "No temporary file should be left");
+    }
+
+    @Test
+    public void testMismatchesAreDiscarded() throws IOException {
+        for (String key : new String[]{"formatVersion", "appVersion", "contentHash"}) {
+            File file = saved();
+            JSONObject root = JSON.parseObject(Files.readString(file.toPath()));
+            root.put(key, key.equals("formatVersion") ? AssetCache.formatVersion + 1 : "0");
+            Files.writeString(file.toPath(), root.toJSONString());
+            assertNull(open().get("bounds"), "Mismatched " + key);
+            assertFalse(file.exists(), "Mismatched " + key + " should be deleted");
+        }
+    }
+
+    @Test
+    public void testCorruptedIsDiscarded() throws IOException {
+        for (String content : new String[]{"{\"formatVersion\": 1, \"entr", "", "[]", "null"}) {
+            File file = saved();
+            Files.writeString(file.toPath(), content);
+            AssetCache cache = open();
+            assertNull(cache.get("bounds"), "Corrupted as " + content);
+            assertFalse(file.exists(), "Corrupted as " + content + " should be deleted");
+            // Still usable
+            cache.put("bounds", entry(7));
+            cache.save();
+            assertEquals(7, open().get("bounds").getIntValue("value"));
+        }
+    }
+
+    @Test
+    public void testModifiedAssetPrunesStaleCache() throws IOException {
+        File previous = saved();
+        // Another asset sharing the cache directory
+        Path otherDir = Files.createDirectory(assetDir.resolve("other"));
+        Files.writeString(otherDir.resolve("model.atlas"), "model.png");
+        Files.write(otherDir.resolve("model.skel"), new byte[]{0, 1, 2, 3});
+        AssetCache other = AssetCache.open(cacheDir.toFile(), otherDir.toString(), accessor);
+        other.put("bounds", entry(1));
+        other.save();
+        // Modify the asset
+        Files.write(assetDir.resolve("model.skel"), new byte[]{4, 5, 6, 7});
+        AssetCache cache = open();
+        assertNotEquals(previous, cache.getFile());
+        assertNull(cache.get("bounds"));
+        assertTrue(previous.exists(), "The stale cache is only pruned on saving");
+        cache.put("bounds", entry(2));
+        cache.save();
+        assertFalse(previous.exists());
+        assertTrue(cache.getFile().isFile());
+        assertTrue(other.getFile().isFile(), "The cache of another asset should be kept");
+    }
+
+    @Test
+    public void testFailedSaveLeavesNoTemporaryFile() throws IOException {
+        AssetCache cache = open();
+        // A non-empty directory in place of the cache file makes the moving fail
+        Files.createDirectories(cache.getFile().toPath().resolve("blocker"));
+        cache.put("bounds", entry(3));
+        cache.save();
+        assertArrayEquals(new String[]{cache.getFile().getName()}, cacheDir.toFile().list());
+    }
+
+    @Test
+    public void testInaccessibleAsset() throws IOException {
+        Files.delete(assetDir.resolve("model.skel"));
+        assertNull(open());
+    }
+
+    private AssetCache open() {
+        return AssetCache.open(cacheDir.toFile(), assetDir.toString(), accessor);
+    }
+
+    private File saved() {
+        AssetCache cache = open();
+        cache.put("bounds", entry(42));
+        cache.save();
+        assertEquals(42, open().get("bounds").getIntValue("value"));
+        return cache.getFile();
+    }
+
+    private static JSONObject entry(int value) {
+        JSONObject entry = new JSONObject();
+        entry.put("value", value);
+        return entry;
+    }
+}
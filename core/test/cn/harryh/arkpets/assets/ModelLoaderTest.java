@@ -0,0 +1,124 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.assets;
+
+import cn.harryh.arkpets.assets.AssetItem.AssetAccessor;
+import cn.harryh.arkpets.assets.ModelLoader.Model;
+import cn.harryh.arkpets.assets.ModelLoader.Stage;
+import com.alibaba.fastjson.JSONObject;
+import com.badlogic.gdx.Files;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Files;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests that {@link ModelLoader} fails instead of hanging when its executor rejects a task,
+ * e.g. after the process pool has been shut down.
+ */
+public class ModelLoaderTest {
+    @TempDir
+    Path assetDir;
+    private Files originalFiles;
+    private ScriptedExecutor executor;
+    private ModelLoader loader;
+    private Throwable failure;
+    private int failedCount;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        originalFiles = Gdx.files;
+        Gdx.files = new Lwjgl3Files();
+        java.nio.file.Files.writeString(assetDir.resolve("model.atlas"), """
+                model.png
+                size: 2,2
+                format: RGBA8888
+                filter: Linear,Linear
+                repeat: none
+                """);
+        java.nio.file.Files.write(assetDir.resolve("model.skel"), new byte[]{0, 1, 2, 3});
+        JSONObject fileMap = new JSONObject();
+        fileMap.put(".atlas", "model.atlas");
+        fileMap.put(".skel", "model.skel");
+        fileMap.put(".png", "model.png");
+        executor = new ScriptedExecutor();
+        loader = new ModelLoader(assetDir.toString(), new AssetAccessor(fileMap), 1, executor);
+        loader.addListener(new ModelLoader.Listener() {
+            @Override
+            public void onReady(Model model) {
+                fail("Unexpected ready");
+            }
+
+            @Override
+            public void onFailed(Throwable cause) {
+                failure = cause;
+                failedCount++;
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Gdx.files = originalFiles;
+    }
+
+    @Test
+    public void testPendingTasksKeepLoading() {
+        loader.start();
+        assertFalse(loader.update());
+        assertEquals(Stage.LOADING, loader.getStage());
+        assertEquals(0, failedCount);
+    }
+
+    @Test
+    public void testRejectedOnStart() {
+        executor.rejecting = true;
+        assertDoesNotThrow(loader::start);
+        assertTrue(loader.update());
+        assertEquals(Stage.FAILED, loader.getStage());
+        assertInstanceOf(RejectedExecutionException.class, failure);
+        assertEquals(1, failedCount);
+    }
+
+    @Test
+    public void testRejectedPageDecoding() {
+        loader.start();
+        // The atlas is read, then the page decoding is rejected
+        executor.rejecting = true;
+        executor.runNext();
+        assertTrue(loader.update());
+        assertEquals(Stage.FAILED, loader.getStage());
+        assertInstanceOf(RejectedExecutionException.class, failure);
+        assertEquals(1, failedCount);
+    }
+
+
+    /** The executor which queues the tasks to be run by the test, or rejects them like a shut-down pool.
+     */
+    private static class ScriptedExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean rejecting;
+
+        @Override
+        public void execute(Runnable task) {
+            if (rejecting)
+                throw new RejectedExecutionException("The executor has been shut down");
+            tasks.add(task);
+        }
+
+        private void runNext() {
+            tasks.remove().run();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the archive key and the JVM args detection of {@link SharedArchive}.
+ */
+public class SharedArchiveTest {
+    @TempDir
+    Path root;
+    private String originalClasspath;
+    private Path classes;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        originalClasspath = System.getProperty("java.class.path");
+        classes = Files.createDirectories(root.resolve("classes"));
+        Files.writeString(classes.resolve("A.class"), "a");
+        Files.createDirectories(root.resolve("app"));
+        Files.writeString(root.resolve("app/app.jar"), "jar");
+        setClasspath(classes, root.resolve("app/app.jar"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        System.setProperty("java.class.path", originalClasspath);
+    }
+
+    @Test
+    public void testDirectoryContentIsIgnored() throws IOException {
+        String key = SharedArchive.getKey();
+        Files.writeString(classes.resolve("B.class"), "b");
+        assertTrue(classes.toFile().setLastModified(classes.toFile().lastModified() + 5000));
+        assertEquals(key, SharedArchive.getKey());
+    }
+
+    @Test
+    public void testChangedJarIsDetected() throws IOException {
+        String key = SharedArchive.getKey();
+        Files.writeString(root.resolve("app/app.jar"), "changed jar");
+        assertNotEquals(key, SharedArchive.getKey());
+    }
+
+    @Test
+    public void testMovedJarIsAccepted() throws IOException {
+        String key = SharedArchive.getKey();
+        File jar = root.resolve("app/app.jar").toFile();
+        Path moved = Files.createDirectories(root.resolve("installed")).resolve("app.jar");
+        Files.copy(jar.toPath(), moved);
+        assertTrue(moved.toFile().setLastModified(jar.lastModified()));
+        setClasspath(classes, moved);
+        assertEquals(key, SharedArchive.getKey());
+    }
+
+    @Test
+    public void testSharingArgs() {
+        assertTrue(SharedArchive.isSharingArg("-Xshare:off"));
+        assertTrue(SharedArchive.isSharingArg("-XX:SharedArchiveFile=app.jsa"));
+        assertTrue(SharedArchive.isSharingArg("-XX:ArchiveClassesAtExit=app.jsa"));
+        assertFalse(SharedArchive.isSharingArg("-Dcn.harryh.ArchivePath=foo"));
+        assertFalse(SharedArchive.isSharingArg("-Xmx512m"));
+    }
+
+    private static void setClasspath(Path... entries) {
+        StringBuilder builder = new StringBuilder();
+        for (Path entry : entries)
+            builder.append(builder.isEmpty() ? "" : File.pathSeparator).append(entry);
+        System.setProperty("java.class.path", builder.toString());
+    }
+}
@@ -0,0 +1,56 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests that both codecs of {@link SocketCodec} follow the shared {@link SocketCodec#maxFrameLength}.
+ */
+public class SocketCodecTest {
+    private static final UUID uuid = new UUID(1, 2);
+
+    @Test
+    public void testRoundTrip() throws ProtocolException {
+        for (SocketCodec codec : new SocketCodec[]{SocketCodec.JSON, SocketCodec.BINARY}) {
+            SocketData decoded = codec.decode(codec.encode(SocketData.ofLogin(uuid, "Amiya")));
+            assertNotNull(decoded, codec.getName());
+            assertEquals(uuid, decoded.uuid);
+            assertEquals(SocketData.Operation.LOGIN, decoded.operation);
+            assertEquals("Amiya", decoded.getMsgString());
+        }
+    }
+
+    @Test
+    public void testFrameAtLimit() throws ProtocolException {
+        for (SocketCodec codec : new SocketCodec[]{SocketCodec.JSON, SocketCodec.BINARY}) {
+            int overhead = codec.encode(status("")).remaining();
+            // The JSON codec encodes the bytes of the message in Base64, which costs 4 characters per 3 bytes
+            int msgLength = codec == SocketCodec.JSON ?
+                    (SocketCodec.maxFrameLength - overhead) / 4 * 3 :
+                    SocketCodec.maxFrameLength - overhead;
+            ByteBuffer frame = codec.encode(status("x".repeat(msgLength)));
+            assertTrue(frame.remaining() <= SocketCodec.maxFrameLength, codec.getName());
+            assertEquals(msgLength, codec.decode(frame).getMsgString().length(), codec.getName());
+            assertThrows(IllegalArgumentException.class, () -> codec.encode(status("x".repeat(SocketCodec.maxFrameLength))),
+                    codec.getName());
+        }
+    }
+
+    @Test
+    public void testBinaryFrameOverLimit() {
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(SocketCodec.maxFrameLength).putInt(0).flip();
+        assertThrows(ProtocolException.class, () -> SocketCodec.BINARY.decode(header));
+    }
+
+    private static SocketData status(String msg) {
+        return SocketData.ofMemoryStatus(uuid, msg);
+    }
+}
@@ -0,0 +1,225 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the sessions multiplexed on the {@link SocketReactor} with simulated pet clients over loopback,
+ * which connect through {@link PortUtils#connectServer} like {@link SocketClient} does.
+ * <hr>
+ * The server sessions handle the handshake as {@link SocketServer.ServerSocketSession} does, and echo the other requests.
+ * Every client sends some requests, one of which is longer than the initial read buffer, and waits for the echoes.
+ */
+public class SocketLoadTest {
+    private static final int clientCount = 200;
+    private static final int requestsPerClient = 50;
+    private static final long timeoutSeconds = 30;
+
+    private ServerSocketChannel serverChannel;
+    private int port;
+    private final AtomicInteger acceptedCount = new AtomicInteger();
+    private final Set<Thread> ioThreads = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(0));
+        port = ((InetSocketAddress)serverChannel.getLocalAddress()).getPort();
+        // Load the classes of the codecs and start the reactor, which may take longer than the handshake timeout
+        for (SocketCodec codec : new SocketCodec[]{SocketCodec.JSON, SocketCodec.BINARY})
+            codec.decode(codec.encode(SocketData.of(UUID.randomUUID(), SocketData.Operation.HANDSHAKE_REQUEST, "warm-up")));
+        SocketReactor.getInstance();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        serverChannel.close();
+    }
+
+    @Test
+    public void testClientsReuseTheHandshakeConnection() throws InterruptedException {
+        SocketReactor.getInstance().listen(serverChannel, channel -> {
+            acceptedCount.incrementAndGet();
+            new EchoSession(true).setTarget(channel);
+        });
+        List<ClientSession> clients = runClients();
+        // Each client costs only one connection, since the handshake connection is kept
+        assertEquals(clientCount, acceptedCount.get());
+        for (ClientSession client : clients) {
+            assertSame(SocketCodec.BINARY, client.codec);
+            assertEquals(requestsPerClient, client.received.get());
+        }
+        assertEquals(1, ioThreads.size(), "All the sessions should run on the reactor thread");
+    }
+
+    @Test
+    public void testClientsReconnectToLegacyServer() throws InterruptedException {
+        SocketReactor.getInstance().listen(serverChannel, channel -> {
+            acceptedCount.incrementAndGet();
+            new EchoSession(false).setTarget(channel);
+        });
+        List<ClientSession> clients = runClients();
+        // The legacy server closes the handshake connection, so each client opens another one
+        assertEquals(clientCount * 2, acceptedCount.get());
+        for (ClientSession client : clients) {
+            assertSame(SocketCodec.JSON, client.codec);
+            assertEquals(requestsPerClient, client.received.get());
+        }
+    }
+
+    @Test
+    public void testCloseFlushesBeforeAwaitReturns() throws IOException, InterruptedException {
+        List<SocketSession> sessions = new ArrayList<>();
+        SocketReactor.getInstance().listen(serverChannel, channel -> {
+            EchoSession session = new EchoSession(true);
+            session.setTarget(channel);
+            sessions.add(session);
+        });
+        List<SocketChannel> clients = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            clients.add(SocketChannel.open(new InetSocketAddress("localhost", port)));
+        assertTrue(SocketReactor.getInstance().awaitTasks(timeoutSeconds * 1000));
+        while (sessions.size() < clients.size())
+            Thread.sleep(10);
+        // Queue a logout and close at once, like the launcher does when it exits
+        for (SocketSession session : sessions) {
+            session.send(SocketData.ofOperation(new UUID(0, 0), SocketData.Operation.LOGOUT));
+            session.close();
+        }
+        assertTrue(SocketReactor.getInstance().awaitTasks(timeoutSeconds * 1000));
+        for (SocketSession session : sessions)
+            assertFalse(session.channel.isOpen(), "The session should have been closed");
+        for (SocketChannel client : clients) {
+            SocketData request = SocketCodec.JSON.decode(readAll(client));
+            assertNotNull(request);
+            assertEquals(SocketData.Operation.LOGOUT, request.operation);
+            client.close();
+        }
+    }
+
+    @Test
+    public void testFailedHandlerBreaksTheSession() throws IOException, InterruptedException {
+        AtomicInteger handled = new AtomicInteger();
+        CountDownLatch broken = new CountDownLatch(1);
+        SocketReactor.getInstance().listen(serverChannel, channel -> new SocketSession() {
+            @Override
+            public void receive(SocketData request) {
+                handled.incrementAndGet();
+                throw new IllegalStateException("Not logged in yet");
+            }
+
+            @Override
+            protected void onBroken() {
+                broken.countDown();
+            }
+        }.setTarget(channel));
+        try (SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", port))) {
+            ByteBuffer frames = ByteBuffer.allocate(1024);
+            for (int i = 0; i < 3; i++)
+                frames.put(SocketCodec.BINARY.encode(SocketData.ofOperation(new UUID(0, i), SocketData.Operation.KEEP_ACTION)));
+            client.write(frames.flip());
+            assertTrue(broken.await(timeoutSeconds, TimeUnit.SECONDS), "The session should have been broken");
+            // The frames after the failed one are neither handled nor parsed again
+            assertTrue(SocketReactor.getInstance().awaitTasks(timeoutSeconds * 1000));
+            assertEquals(1, handled.get());
+            assertEquals(-1, client.read(ByteBuffer.allocate(16)));
+        }
+    }
+
+    private static ByteBuffer readAll(SocketChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        while (channel.read(buffer) >= 0)
+            if (!buffer.hasRemaining())
+                break;
+        return buffer.flip();
+    }
+
+    private List<ClientSession> runClients() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clientCount);
+        List<ClientSession> clients = new ArrayList<>();
+        for (int i = 0; i < clientCount; i++) {
+            PortUtils.ServerConnection connection = PortUtils.connectServer(new int[]{port});
+            ClientSession client = new ClientSession(connection.codec(), done);
+            client.setEncoder(connection.codec());
+            client.setTarget(connection.channel());
+            clients.add(client);
+        }
+        for (ClientSession client : clients)
+            for (int j = 0; j < requestsPerClient; j++)
+                client.send(SocketData.ofMemoryStatus(client.uuid, j == 0 ? "x".repeat(4096) : "status " + j));
+        assertTrue(done.await(timeoutSeconds, TimeUnit.SECONDS), "Not all the echoes were received");
+        clients.forEach(SocketSession::close);
+        return clients;
+    }
+
+
+    /** The server session which handles the handshake like the current server or the legacy one,
+     * and echoes the other requests.
+     */
+    private class EchoSession extends SocketSession {
+        private final boolean keepsSession;
+
+        private EchoSession(boolean keepsSession) {
+            this.keepsSession = keepsSession;
+        }
+
+        @Override
+        public void receive(SocketData request) {
+            ioThreads.add(Thread.currentThread());
+            if (request.operation == SocketData.Operation.HANDSHAKE_REQUEST) {
+                String offer = request.getMsgString();
+                if (keepsSession && offer.endsWith(PortUtils.sessionOfferSuffix)) {
+                    send(SocketData.of(request.uuid, SocketData.Operation.HANDSHAKE_RESPONSE, SocketCodec.BINARY.getName()));
+                } else {
+                    send(SocketData.ofOperation(request.uuid, SocketData.Operation.HANDSHAKE_RESPONSE));
+                    close();
+                }
+                return;
+            }
+            send(request);
+        }
+    }
+
+
+    /** The simulated pet client, which counts the echoes of its requests.
+     */
+    private class ClientSession extends SocketSession {
+        private final UUID uuid = UUID.randomUUID();
+        private final SocketCodec codec;
+        private final CountDownLatch done;
+        private final AtomicInteger received = new AtomicInteger();
+
+        private ClientSession(SocketCodec codec, CountDownLatch done) {
+            this.codec = codec;
+            this.done = done;
+        }
+
+        @Override
+        public void receive(SocketData request) {
+            ioThreads.add(Thread.currentThread());
+            assertEquals(uuid, request.uuid);
+            if (received.incrementAndGet() == requestsPerClient)
+                done.countDown();
+        }
+    }
+}
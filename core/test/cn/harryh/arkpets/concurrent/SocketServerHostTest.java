@@ -0,0 +1,122 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static cn.harryh.arkpets.Const.serverPorts;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the registration of the pet host by {@link SocketServer} over loopback,
+ * including the launch requests made while the pet host is starting.
+ */
+public class SocketServerHostTest {
+    private static final long timeoutSeconds = 10;
+
+    private SocketServer server;
+
+    @BeforeEach
+    public void setUp() throws PortUtils.NoPortAvailableException, PortUtils.ServerCollisionException {
+        server = SocketServer.getInstance();
+        // The sessions of the pet hosts never touch the host tray
+        server.startServer(null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.onHostExited();
+        server.stopServer();
+    }
+
+    @Test
+    public void testLaunchesAreQueuedWhileHostIsStarting() throws Exception {
+        // The first caller starts a pet host, the later ones wait for it
+        assertFalse(server.requestLaunch());
+        assertTrue(server.requestLaunch());
+        assertTrue(server.requestLaunch());
+        assertFalse(server.hasPetHost());
+        HostSession host = connectHost();
+        host.awaitLaunches(2);
+        assertTrue(server.hasPetHost());
+        assertTrue(server.requestLaunch());
+        host.awaitLaunches(3);
+        host.close();
+    }
+
+    @Test
+    public void testSecondHostIsRejected() throws Exception {
+        assertFalse(server.requestLaunch());
+        HostSession first = connectHost();
+        assertTrue(waitFor(server::hasPetHost));
+        HostSession second = connectHost();
+        assertTrue(second.closed.await(timeoutSeconds, TimeUnit.SECONDS), "The second pet host should be rejected");
+        // The first one is still reachable
+        assertTrue(server.requestLaunch());
+        first.awaitLaunches(1);
+        assertEquals(0, second.launches.get());
+        first.close();
+    }
+
+    @Test
+    public void testQueuedLaunchesAreDroppedIfHostExits() {
+        assertFalse(server.requestLaunch());
+        assertTrue(server.requestLaunch());
+        server.onHostExited();
+        // The next caller starts another pet host
+        assertFalse(server.requestLaunch());
+    }
+
+    private static HostSession connectHost() throws PortUtils.NoServerRunningException {
+        PortUtils.ServerConnection connection = PortUtils.connectServer(serverPorts);
+        HostSession session = new HostSession();
+        session.setEncoder(connection.codec());
+        session.setTarget(connection.channel());
+        session.send(SocketData.ofOperation(session.uuid, SocketData.Operation.HOST_LOGIN));
+        return session;
+    }
+
+    private static boolean waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline)
+                return false;
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+
+    /** The simulated pet host, which counts the launch requests.
+     */
+    private static class HostSession extends SocketSession {
+        private final UUID uuid = UUID.randomUUID();
+        private final AtomicInteger launches = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void receive(SocketData request) {
+            if (request.operation == SocketData.Operation.LAUNCH_PET)
+                launches.incrementAndGet();
+        }
+
+        @Override
+        protected void onBroken() {
+            closed.countDown();
+        }
+
+        private void awaitLaunches(int count) throws InterruptedException {
+            assertTrue(waitFor(() -> launches.get() >= count), "Expected " + count + " launch requests");
+            assertTrue(SocketReactor.getInstance().awaitTasks(timeoutSeconds * 1000));
+            assertEquals(count, launches.get());
+        }
+    }
+}
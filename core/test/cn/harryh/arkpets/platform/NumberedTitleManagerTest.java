@@ -0,0 +1,61 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import cn.harryh.arkpets.platform.HWndCtrl.NumberedTitleManager;
+import cn.harryh.arkpets.platform.HWndCtrl.WindowRect;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the title reservation of {@link NumberedTitleManager},
+ * where the windows of the same process are created later than their titles are decided.
+ */
+public class NumberedTitleManagerTest {
+    private final NumberedTitleManager manager = new NumberedTitleManager("ArkPets");
+
+    @Test
+    public void testReservedTitlesAreDistinct() {
+        List<HWndCtrl> windows = List.of();
+        assertEquals("ArkPets", manager.reserveIdleTitle(windows));
+        assertEquals("ArkPets (2)", manager.reserveIdleTitle(windows));
+        assertEquals("ArkPets (3)", manager.reserveIdleTitle(windows));
+        assertEquals("ArkPets (4)", manager.getIdleTitle(windows));
+    }
+
+    @Test
+    public void testExistingWindowsAreSkipped() {
+        List<HWndCtrl> windows = windows("ArkPets", "ArkPets (2)", "Other");
+        assertEquals("ArkPets (3)", manager.reserveIdleTitle(windows));
+        assertEquals("ArkPets (4)", manager.reserveIdleTitle(windows));
+    }
+
+    @Test
+    public void testReleasedTitlesAreReused() {
+        List<HWndCtrl> windows = List.of();
+        manager.reserveIdleTitle(windows);
+        manager.reserveIdleTitle(windows);
+        manager.reserveIdleTitle(windows);
+        manager.releaseTitle("ArkPets (2)");
+        assertEquals("ArkPets (2)", manager.reserveIdleTitle(windows));
+        manager.releaseTitle("ArkPets");
+        assertEquals("ArkPets", manager.getIdleTitle(windows));
+        // Releasing a title which isn't reserved has no effect
+        manager.releaseTitle("ArkPets (9)");
+        manager.releaseTitle("Other");
+        assertEquals("ArkPets", manager.reserveIdleTitle(windows));
+        assertEquals("ArkPets (4)", manager.reserveIdleTitle(windows));
+    }
+
+    private static List<HWndCtrl> windows(String... titles) {
+        ArrayList<HWndCtrl> windows = new ArrayList<>();
+        for (String title : titles)
+            windows.add(new NullHWndCtrl(title, new WindowRect(0, 100, 0, 100)));
+        return windows;
+    }
+}
@@ -0,0 +1,194 @@
+/** Copyright (c) 2022-2024, Harry Huang, Litwak913
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.platform;
+
+import cn.harryh.arkpets.platform.HWndCtrl.WindowRect;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests {@link WindowSnapshot} by a scripted window source whose windows are {@link NullHWndCtrl}s.
+ */
+public class WindowSnapshotTest {
+    private ScriptedSource source;
+    private WindowSnapshot<Integer> snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        source = new ScriptedSource();
+        snapshot = new WindowSnapshot<>(source);
+    }
+
+    @Test
+    public void testEmptySource() {
+        assertFalse(snapshot.refresh(true));
+        assertEquals(0, snapshot.getGeneration());
+        assertTrue(snapshot.getWindows().isEmpty());
+    }
+
+    @Test
+    public void testAddedWindows() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        assertTrue(snapshot.refresh(true));
+        assertEquals(1, snapshot.getGeneration());
+        assertEquals(List.of("A", "B"), titles(snapshot.getWindows()));
+        assertEquals(List.of("A", "B"), titles(snapshot.getAdded()));
+        assertTrue(snapshot.getRemoved().isEmpty());
+        assertTrue(snapshot.getMoved().isEmpty());
+        assertInstanceOf(NullHWndCtrl.class, snapshot.getWindows().get(0));
+        assertEquals(2, source.created);
+    }
+
+    @Test
+    public void testUnchangedWindowsAreReused() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        snapshot.refresh(true);
+        HWndCtrl a = snapshot.getWindows().get(0);
+        assertFalse(snapshot.refresh(true));
+        assertEquals(1, snapshot.getGeneration());
+        assertSame(a, snapshot.getWindows().get(0));
+        assertTrue(snapshot.getAdded().isEmpty());
+        assertEquals(2, source.created);
+    }
+
+    @Test
+    public void testMovedAndRetitledWindows() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        snapshot.refresh(true);
+        HWndCtrl b = snapshot.getWindows().get(1);
+        source.put(1, "A", 10, 110);
+        source.put(2, "B2", 100, 200);
+        assertTrue(snapshot.refresh(true));
+        assertEquals(2, snapshot.getGeneration());
+        assertEquals(List.of("A", "B2"), titles(snapshot.getMoved()));
+        assertTrue(snapshot.getAdded().isEmpty());
+        assertTrue(snapshot.getRemoved().isEmpty());
+        assertEquals(10, snapshot.getWindows().get(0).posTop);
+        assertNotSame(b, snapshot.getWindows().get(1));
+    }
+
+    @Test
+    public void testRemovedWindows() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        source.put(3, "C", 200, 300);
+        snapshot.refresh(true);
+        HWndCtrl b = snapshot.getWindows().get(1);
+        source.remove(2);
+        assertTrue(snapshot.refresh(true));
+        assertEquals(List.of("A", "C"), titles(snapshot.getWindows()));
+        assertEquals(List.of(b), snapshot.getRemoved());
+        assertTrue(snapshot.getAdded().isEmpty());
+        assertTrue(snapshot.getMoved().isEmpty());
+    }
+
+    @Test
+    public void testReplacedWindowWithSameCount() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        snapshot.refresh(true);
+        source.remove(2);
+        source.put(3, "C", 100, 200);
+        assertTrue(snapshot.refresh(true));
+        assertEquals(List.of("C"), titles(snapshot.getAdded()));
+        assertEquals(List.of("B"), titles(snapshot.getRemoved()));
+    }
+
+    @Test
+    public void testReorderedWindows() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        snapshot.refresh(true);
+        HWndCtrl a = snapshot.getWindows().get(0);
+        source.raise(2);
+        assertTrue(snapshot.refresh(true));
+        assertEquals(2, snapshot.getGeneration());
+        assertEquals(List.of("B", "A"), titles(snapshot.getWindows()));
+        assertSame(a, snapshot.getWindows().get(1));
+        assertTrue(snapshot.getAdded().isEmpty());
+        assertTrue(snapshot.getRemoved().isEmpty());
+        assertTrue(snapshot.getMoved().isEmpty());
+    }
+
+    @Test
+    public void testInvisibleWindowsAreExcluded() {
+        source.put(1, "A", 0, 100);
+        source.put(2, "B", 100, 200);
+        source.hidden.add(2);
+        snapshot.refresh(true);
+        assertEquals(List.of("A"), titles(snapshot.getWindows()));
+        assertTrue(snapshot.refresh(false));
+        assertEquals(List.of("A", "B"), titles(snapshot.getWindows()));
+        assertEquals(List.of("B"), titles(snapshot.getAdded()));
+    }
+
+    private static List<String> titles(List<HWndCtrl> windows) {
+        ArrayList<String> titles = new ArrayList<>();
+        for (HWndCtrl window : windows)
+            titles.add(window.windowText);
+        return titles;
+    }
+
+
+    /** The window source whose windows are scripted by the test, in Z-order.
+     */
+    private static class ScriptedSource implements WindowSource<Integer> {
+        private final ArrayList<Integer> order = new ArrayList<>();
+        private final HashMap<Integer, String> texts = new HashMap<>();
+        private final HashMap<Integer, WindowRect> rects = new HashMap<>();
+        private final ArrayList<Integer> hidden = new ArrayList<>();
+        private int created;
+
+        void put(int handle, String text, int top, int bottom) {
+            if (!order.contains(handle))
+                order.add(handle);
+            texts.put(handle, text);
+            rects.put(handle, new WindowRect(top, bottom, 0, 100));
+        }
+
+        void remove(int handle) {
+            order.remove((Integer)handle);
+            texts.remove(handle);
+            rects.remove(handle);
+        }
+
+        void raise(int handle) {
+            order.remove((Integer)handle);
+            order.add(0, handle);
+        }
+
+        @Override
+        public void enumerate(boolean onlyVisible, Consumer<Integer> consumer) {
+            for (Integer handle : order)
+                if (!onlyVisible || !hidden.contains(handle))
+                    consumer.accept(handle);
+        }
+
+        @Override
+        public String getWindowText(Integer handle) {
+            return texts.get(handle);
+        }
+
+        @Override
+        public WindowRect getWindowRect(Integer handle) {
+            return rects.get(handle);
+        }
+
+        @Override
+        public HWndCtrl create(Integer handle, String windowText, WindowRect windowRect) {
+            created++;
+            return new NullHWndCtrl(windowText, windowRect);
+        }
+    }
+}
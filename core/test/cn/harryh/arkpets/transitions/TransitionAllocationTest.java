@@ -0,0 +1,100 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.transitions;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static cn.harryh.arkpets.utils.AllocationAssertions.assertAllocatesNothing;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests that the transitions reach exactly their ending values,
+ * and that the per-frame transition calls allocate nothing.
+ * <hr>
+ * The frames simulate the transition calls of {@code ArkPets.render()} and {@code ArkChar.renderToBatch()}.
+ */
+public class TransitionAllocationTest {
+    private static final int frameCount = 100_000;
+    private static final float deltaTime = 1 / 60f;
+    private static final float duration = 0.3f;
+
+    private TransitionVector2 windowPosition;
+    private TransitionVector3 position;
+    private TransitionFloat offsetY;
+    private TransitionFloat alpha;
+
+    @BeforeEach
+    public void setUp() {
+        windowPosition = new TransitionVector2(EasingFunction.EASE_OUT_CUBIC, duration);
+        position = new TransitionVector3(EasingFunction.EASE_OUT_CUBIC, duration);
+        offsetY = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, duration);
+        alpha = new TransitionFloat(EasingFunction.EASE_OUT_CUBIC, duration);
+    }
+
+    @Test
+    public void testSettledValueIsEnd() {
+        // The values which can't be reached exactly by start + 1 * (end - start)
+        windowPosition.reset(0.1f, 1e8f);
+        windowPosition.reset(1.7f, -3.3f);
+        assertFalse(windowPosition.isSettled());
+        assertFalse(windowPosition.isEnded());
+        Vector2 now = windowPosition.now();
+        for (int i = 0; i < 100 && !windowPosition.isSettled(); i++)
+            windowPosition.addProgress(deltaTime);
+        assertTrue(windowPosition.isSettled());
+        assertTrue(windowPosition.isEnded());
+        assertSame(now, windowPosition.now());
+        assertEquals(new Vector2(1.7f, -3.3f), windowPosition.now());
+
+        position.reset(0.1f, 0.2f, -1);
+        position.setToEnd();
+        assertTrue(position.isEnded());
+        assertEquals(new Vector3(0.1f, 0.2f, -1), position.now());
+        // Resetting restarts from the current value
+        position.reset(10, 0.2f, -1);
+        assertFalse(position.isSettled());
+        assertEquals(new Vector3(0.1f, 0.2f, -1), position.now());
+
+        alpha.reset(0.7f);
+        alpha.addProgress(duration / 2);
+        assertTrue(alpha.now() > 0 && alpha.now() < 0.7f);
+        alpha.addProgress(duration);
+        assertEquals(0.7f, alpha.now());
+        assertTrue(alpha.isEnded());
+    }
+
+    @Test
+    public void testFramesAllocateNothing() {
+        assertAllocatesNothing(this::runFrames, frameCount + " frames");
+    }
+
+    /** Simulates the transition calls of the render loop, with the pet walking, turning around and idling.
+     */
+    private void runFrames() {
+        float x = 0;
+        float direction = 1;
+        for (int i = 0; i < frameCount; i++) {
+            if (i % 2000 < 1500) {
+                x += direction * 1.5f; // Walking
+                if (Math.abs(x) > 1000)
+                    direction = -direction; // Reached the border
+            }
+            position.reset(x, position.end().y, direction);
+            position.addProgress(deltaTime);
+            offsetY.reset(i % 2000 < 1500 ? 0 : 4);
+            offsetY.addProgress(deltaTime);
+            alpha.reset(i % 5000 < 100 ? 0.5f : 1);
+            alpha.addProgress(deltaTime);
+            windowPosition.reset(x, 120);
+            windowPosition.addProgress(deltaTime);
+            float sum = position.now().x + position.now().y + offsetY.now() + position.now().z + alpha.now();
+            sum += windowPosition.now().x + windowPosition.now().y;
+            if (Float.isNaN(sum) || (windowPosition.isEnded() && !windowPosition.isSettled()))
+                fail("Unexpected transition state at frame " + i);
+        }
+    }
+}
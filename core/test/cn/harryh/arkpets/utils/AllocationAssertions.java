@@ -0,0 +1,56 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+/** The assertions about the heap allocation of the code running on the current thread.
+ * <hr>
+ * The allocation is measured by {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()},
+ * whose own allocation is excluded from the results.
+ */
+public final class AllocationAssertions {
+    /** The passes run before the measured one. The first pass typically fills the caches and the pools,
+     * and the compilation of the code allocates on the current thread as well, which takes more passes.
+     */
+    private static final int warmUpPasses = 5;
+
+    private AllocationAssertions() {
+    }
+
+    /** Asserts that the given pass allocates nothing once it has been warmed up.
+     * @param pass The pass to run, which should do the same work every time it runs.
+     * @param description The description of the pass, e.g. "100000 frames".
+     */
+    public static void assertAllocatesNothing(Runnable pass, String description) {
+        for (int i = 0; i < warmUpPasses; i++)
+            pass.run();
+        long allocated = allocatedBytes();
+        pass.run();
+        allocated = allocatedBytes() - allocated - measurementOverhead();
+        assertEquals(0, allocated, "Allocated " + allocated + " bytes in " + description);
+    }
+
+    /** Gets the bytes allocated by the current thread so far.
+     * @return The allocated bytes.
+     */
+    public static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    /** Gets the bytes allocated by the measurement itself, which are excluded from the results.
+     * @return The allocated bytes of a pair of {@link #allocatedBytes()} calls.
+     */
+    public static long measurementOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long begin = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - begin);
+        }
+        return overhead;
+    }
+}
@@ -0,0 +1,203 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.Insert;
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.SolidBounds;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static cn.harryh.arkpets.utils.DynamicOrthographicCamara.alphaThreshold;
+import static cn.harryh.arkpets.utils.DynamicOrthographicCamara.stepLength;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the canvas fitting of {@link DynamicOrthographicCamara} against the legacy implementation,
+ * which scans the snapshot by {@link Pixmap#getPixel(int, int)} in four nested loops.
+ */
+public class DynamicOrthographicCamaraTest {
+    private static final int[][] sizes = {{1, 1}, {2, 3}, {3, 2}, {64, 64}, {65, 33}, {120, 121}};
+    private static final int seedsPerSize = 40;
+
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        Pixmap pixmap = new Pixmap(32, 32, Pixmap.Format.RGBA8888);
+        assertEquals(new SolidBounds(32, 32, -1, -1, -1, -1), DynamicOrthographicCamara.getSolidBounds(pixmap));
+        assertSameAsLegacy(pixmap, "empty");
+        pixmap.dispose();
+    }
+
+    @Test
+    public void testFullSnapshot() {
+        Pixmap pixmap = new Pixmap(33, 32, Pixmap.Format.RGBA8888);
+        fill(pixmap, new int[33 * 32], 255);
+        assertEquals(new SolidBounds(33, 32, 0, 31, 0, 32), DynamicOrthographicCamara.getSolidBounds(pixmap));
+        assertSameAsLegacy(pixmap, "full");
+        pixmap.dispose();
+    }
+
+    @Test
+    public void testSparseSnapshots() {
+        for (int[] size : sizes)
+            for (int seed = 0; seed < seedsPerSize; seed++) {
+                Pixmap pixmap = new Pixmap(size[0], size[1], Pixmap.Format.RGBA8888);
+                fill(pixmap, sparseAlpha(size[0], size[1], new SplittableRandom(seed)), 0);
+                assertSameAsLegacy(pixmap, "sparse " + size[0] + "x" + size[1] + " seed " + seed);
+                pixmap.dispose();
+            }
+    }
+
+    @Test
+    public void testDenseSnapshots() {
+        for (int[] size : sizes)
+            for (int seed = 0; seed < seedsPerSize; seed++) {
+                Pixmap pixmap = new Pixmap(size[0], size[1], Pixmap.Format.RGBA8888);
+                fill(pixmap, denseAlpha(size[0], size[1], new SplittableRandom(seed)), 0);
+                assertSameAsLegacy(pixmap, "dense " + size[0] + "x" + size[1] + " seed " + seed);
+                pixmap.dispose();
+            }
+    }
+
+    @Test
+    public void testNonRgba8888Snapshots() {
+        for (int seed = 0; seed < seedsPerSize; seed++) {
+            Pixmap pixmap = new Pixmap(65, 33, Pixmap.Format.RGBA4444);
+            fill(pixmap, (seed & 1) == 0 ? sparseAlpha(65, 33, new SplittableRandom(seed)) : denseAlpha(65, 33, new SplittableRandom(seed)), 0);
+            assertSameAsLegacy(pixmap, "RGBA4444 seed " + seed);
+            pixmap.dispose();
+        }
+    }
+
+    /** Generates a few isolated solid pixels among the translucent ones.
+     */
+    static int[] sparseAlpha(int width, int height, SplittableRandom random) {
+        int[] alpha = new int[width * height];
+        int count = 1 + random.nextInt(4);
+        for (int i = 0; i < count; i++)
+            alpha[random.nextInt(alpha.length)] = 255;
+        for (int i = 0; i < alpha.length / 50; i++) {
+            int j = random.nextInt(alpha.length);
+            if (alpha[j] == 0)
+                alpha[j] = random.nextInt(alphaThreshold);
+        }
+        return alpha;
+    }
+
+    /** Generates some large solid ellipses with translucent edges, like a rendered model.
+     */
+    static int[] denseAlpha(int width, int height, SplittableRandom random) {
+        int[] alpha = new int[width * height];
+        int count = 1 + random.nextInt(3);
+        for (int i = 0; i < count; i++) {
+            float cx = random.nextInt(width), cy = random.nextInt(height);
+            float rx = 1 + random.nextInt(Math.max(1, width / 2)), ry = 1 + random.nextInt(Math.max(1, height / 2));
+            for (int y = 0; y < height; y++)
+                for (int x = 0; x < width; x++) {
+                    float d = ((x - cx) * (x - cx)) / (rx * rx) + ((y - cy) * (y - cy)) / (ry * ry);
+                    int a = d <= 1 ? 255 : d <= 1.3f ? 128 : 0;
+                    alpha[y * width + x] = Math.max(alpha[y * width + x], a);
+                }
+        }
+        return alpha;
+    }
+
+    static void fill(Pixmap pixmap, int[] alpha, int base) {
+        pixmap.setBlending(Pixmap.Blending.None);
+        for (int y = 0; y < pixmap.getHeight(); y++)
+            for (int x = 0; x < pixmap.getWidth(); x++)
+                pixmap.drawPixel(x, y, 0xFFFFFF00 | Math.max(base, alpha[y * pixmap.getWidth() + x]));
+    }
+
+    private static void assertSameAsLegacy(Pixmap pixmap, String message) {
+        DynamicOrthographicCamara camera = new DynamicOrthographicCamara(pixmap.getWidth(), pixmap.getHeight(), 5);
+        camera.setMaxInsert(100);
+        camera.setMinInsert(-100);
+        camera.setInsert(new Insert(3, 7, 11, 13));
+        for (int flip = 0; flip < 4; flip++) {
+            boolean flippedX = (flip & 1) != 0;
+            boolean flippedY = (flip & 2) != 0;
+            assertEquals(legacyFittedInsert(camera, pixmap, flippedX, flippedY),
+                    camera.getFittedInsert(pixmap, flippedX, flippedY),
+                    message + " flippedX=" + flippedX + " flippedY=" + flippedY);
+        }
+    }
+
+    /** The legacy {@code getFittedInsert}.
+     */
+    @SuppressWarnings("AssignmentToForLoopParameter")
+    private static Insert legacyFittedInsert(DynamicOrthographicCamara camera, Pixmap pixmap, boolean flippedX, boolean flippedY) {
+        final Insert insert = camera.getInsert().clone();
+        final int edgeWidth = pixmap.getWidth() - 1;
+        final int edgeHeight = pixmap.getHeight() - 1;
+        final int extendedX = camera.paddingLength;
+        final int extendedY = camera.paddingLength;
+        final int reservedX = camera.paddingLength;
+        final int reservedY = camera.paddingLength;
+
+        if (flippedX)
+            insert.swapHorizontal();
+        if (flippedY)
+            insert.swapVertical();
+
+        // TOP
+        for (int y = 0; y <= edgeHeight; y += stepLength)
+            for (int x = 0; x <= edgeWidth; x += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (y == 0)
+                        insert.top += extendedY;
+                    else
+                        insert.top -= y - reservedY;
+                    x = Integer.MAX_VALUE - stepLength;
+                    y = Integer.MAX_VALUE - stepLength;
+                }
+        // BOTTOM
+        for (int y = edgeHeight; y >= 0; y -= stepLength)
+            for (int x = 0; x <= edgeWidth; x += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (y == edgeHeight)
+                        insert.bottom += extendedY;
+                    else
+                        insert.bottom -= edgeHeight - y - reservedY;
+                    x = Integer.MAX_VALUE - stepLength;
+                    y = Integer.MIN_VALUE + stepLength;
+                }
+        // LEFT
+        for (int x = 0; x <= edgeWidth; x += stepLength)
+            for (int y = 0; y <= edgeHeight; y += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (x == 0)
+                        insert.left += extendedX;
+                    else
+                        insert.left -= x - reservedX;
+                    x = Integer.MAX_VALUE - stepLength;
+                    y = Integer.MAX_VALUE - stepLength;
+                }
+        // RIGHT
+        for (int x = edgeWidth; x >= 0; x -= stepLength)
+            for (int y = 0; y <= edgeHeight; y += stepLength)
+                if ((pixmap.getPixel(x, y) & 0x000000FF) >= alphaThreshold) {
+                    if (x == edgeWidth)
+                        insert.right += extendedX;
+                    else
+                        insert.right -= edgeWidth - x - reservedX;
+                    x = Integer.MIN_VALUE + stepLength;
+                    y = Integer.MAX_VALUE - stepLength;
+                }
+
+        if (flippedX)
+            insert.swapHorizontal();
+        if (flippedY)
+            insert.swapVertical();
+        return insert;
+    }
+}
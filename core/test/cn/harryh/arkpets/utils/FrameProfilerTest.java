@@ -0,0 +1,122 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.FrameProfiler.Phase;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static cn.harryh.arkpets.utils.AllocationAssertions.assertAllocatesNothing;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the histogram and the ring buffer of the recent samples of {@link FrameProfiler}.
+ */
+public class FrameProfilerTest {
+    @Test
+    public void testBucketRoundTrip() {
+        // The small values are exact
+        for (long value = 0; value < 32; value++)
+            assertEquals(value, FrameProfiler.fromBucket(FrameProfiler.toBucket(value)));
+        assertEquals(0, FrameProfiler.toBucket(-1));
+        SplittableRandom random = new SplittableRandom(0);
+        int lastBucket = -1;
+        long lastValue = -1;
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong(1, 1L << random.nextInt(6, 63));
+            assertRoundTrip(value);
+        }
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 / 2 + 1) {
+            assertRoundTrip(value);
+            assertRoundTrip(value - 1);
+            // The buckets are in the order of the values
+            int bucket = FrameProfiler.toBucket(value);
+            assertTrue(value > lastValue && bucket >= lastBucket);
+            lastBucket = bucket;
+            lastValue = value;
+        }
+        assertRoundTrip(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testPercentiles() {
+        FrameProfiler profiler = new FrameProfiler(16);
+        SplittableRandom random = new SplittableRandom(1);
+        long[] samples = new long[10_000];
+        for (int i = 0; i < samples.length; i++) {
+            // Typical frame durations: mostly about 2ms, with a long tail of slow frames
+            samples[i] = i % 50 == 0 ? random.nextLong(10_000_000, 40_000_000) : random.nextLong(1_500_000, 2_500_000);
+            profiler.record(Phase.FRAME, samples[i]);
+        }
+        Arrays.sort(samples);
+        for (double percentile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long exact = samples[(int)Math.ceil(percentile * samples.length) - 1];
+            long actual = profiler.getPercentile(Phase.FRAME, percentile);
+            assertEquals(exact, actual, exact / 32.0, "p" + percentile * 100);
+        }
+        assertEquals(samples[samples.length - 1], profiler.getPercentile(Phase.FRAME, 1));
+        assertEquals(0, profiler.getPercentile(Phase.RENDER, 0.5));
+    }
+
+    @Test
+    public void testRecentWrapsAround() {
+        FrameProfiler profiler = new FrameProfiler(4);
+        for (long value = 1; value <= 3; value++)
+            profiler.record(Phase.RENDER, value);
+        // Not filled yet
+        assertEquals(1, profiler.getRecentPercentile(Phase.RENDER, 0));
+        assertEquals(2, profiler.getRecentPercentile(Phase.RENDER, 0.5));
+        assertEquals(3, profiler.getRecentPercentile(Phase.RENDER, 1));
+        for (long value = 4; value <= 10; value++)
+            profiler.record(Phase.RENDER, value);
+        // Only 7, 8, 9 and 10 are kept
+        assertEquals(7, profiler.getRecentPercentile(Phase.RENDER, 0));
+        assertEquals(8, profiler.getRecentPercentile(Phase.RENDER, 0.5));
+        assertEquals(10, profiler.getRecentPercentile(Phase.RENDER, 0.99));
+        // While all the samples are kept by the histogram
+        assertEquals(1, profiler.getPercentile(Phase.RENDER, 0));
+        assertEquals(5, profiler.getPercentile(Phase.RENDER, 0.5));
+        // The ring buffer of no capacity keeps nothing
+        FrameProfiler none = new FrameProfiler(0);
+        none.record(Phase.RENDER, 1);
+        assertEquals(0, none.getRecentPercentile(Phase.RENDER, 0.5));
+        assertEquals(1, none.getPercentile(Phase.RENDER, 0.5));
+    }
+
+    @Test
+    public void testReset() {
+        FrameProfiler profiler = new FrameProfiler(4);
+        for (long value = 100; value <= 1000; value += 100)
+            profiler.record(Phase.HIT_TEST, value);
+        profiler.reset();
+        assertEquals(0, profiler.getPercentile(Phase.HIT_TEST, 0.5));
+        assertEquals(0, profiler.getRecentPercentile(Phase.HIT_TEST, 0.5));
+        // The samples before the reset don't appear in the recent samples or the maximum
+        profiler.record(Phase.HIT_TEST, 5);
+        profiler.record(Phase.HIT_TEST, 7);
+        assertEquals(5, profiler.getRecentPercentile(Phase.HIT_TEST, 0));
+        assertEquals(7, profiler.getRecentPercentile(Phase.HIT_TEST, 1));
+        assertEquals(7, profiler.getPercentile(Phase.HIT_TEST, 1));
+        assertTrue(profiler.getDebugMsg().startsWith("FrameProfiler 0 frames"));
+    }
+
+    @Test
+    public void testRecordingAllocatesNothing() {
+        FrameProfiler profiler = new FrameProfiler(256);
+        Phase[] phases = Phase.values();
+        assertAllocatesNothing(() -> {
+            for (int i = 0; i < 100_000; i++)
+                for (Phase phase : phases)
+                    profiler.end(phase, profiler.begin());
+        }, "100000 frames");
+    }
+
+    private static void assertRoundTrip(long value) {
+        long restored = FrameProfiler.fromBucket(FrameProfiler.toBucket(value));
+        // The restored value is the middle of the bucket, so the error is at most half a sub-bucket
+        assertTrue(Math.abs(restored - value) <= value / 32, value + " restored as " + restored);
+    }
+}
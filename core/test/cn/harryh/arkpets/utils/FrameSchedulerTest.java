@@ -0,0 +1,43 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests {@link FrameScheduler}.
+ */
+public class FrameSchedulerTest {
+    @Test
+    public void testSwitchesToIdleAfterDelay() {
+        FrameScheduler scheduler = new FrameScheduler(60, 10, 1);
+        for (int i = 0; i < 59; i++)
+            assertFalse(scheduler.update(1 / 60f, true));
+        assertTrue(scheduler.update(1 / 60f, true));
+        assertEquals(10, scheduler.getFps());
+        assertTrue(scheduler.wake());
+        assertEquals(60, scheduler.getFps());
+    }
+
+    @Test
+    public void testDisabledSchedulerKeepsActiveFps() {
+        FrameScheduler scheduler = new FrameScheduler(60, 0, 1);
+        for (int i = 0; i < 600; i++)
+            assertFalse(scheduler.update(1 / 60f, true));
+        assertEquals(60, scheduler.getFps());
+    }
+
+    @Test
+    public void testLongRunningAccumulation() {
+        // Two days at 60 fps, where a float accumulator would have drifted by hours
+        final int frames = 60 * 60 * 60 * 48;
+        FrameScheduler scheduler = new FrameScheduler(60, 0, 1);
+        for (int i = 0; i < frames; i++)
+            scheduler.update(1 / 60f, false);
+        assertEquals(frames / 60d, scheduler.getTimeAtActive(), 1);
+        assertEquals(0, scheduler.getTimeAtIdle());
+    }
+}
@@ -0,0 +1,250 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.DynamicOrthographicCamara.SolidBounds;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
+import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.ScreenUtils;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static cn.harryh.arkpets.utils.DynamicOrthographicCamaraTest.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests {@link GpuBoundsReducer} against the CPU-side {@link DynamicOrthographicCamara#getSolidBounds(Pixmap)}.
+ * <hr>
+ * The GPU tests need an OpenGL context, so they are skipped where no window can be created.
+ * The emulation tests port the reduction shaders to Java texel by texel (including the 8-bit quantization of the FBOs),
+ * so the 16-bit encoding and the sampling-grid parity are verified even without a GPU.
+ * The sizes cover odd and even edges, and the values above 255 which need both bytes of the encoding.
+ */
+public class GpuBoundsReducerTest {
+    private static final int[][] sizes = {{1, 1}, {2, 3}, {65, 33}, {300, 257}, {513, 600}};
+    private static final int seedsPerSize = 6;
+
+    @BeforeAll
+    public static void loadNatives() {
+        GdxNativesLoader.load();
+    }
+
+    @Test
+    public void testEmulatedReductionMatchesCpu() {
+        for (int[] size : sizes)
+            for (int seed = 0; seed < seedsPerSize; seed++)
+                for (boolean dense : new boolean[]{false, true}) {
+                    int[] alpha = snapshot(size[0], size[1], seed, dense);
+                    Pixmap pixmap = new Pixmap(size[0], size[1], Pixmap.Format.RGBA8888);
+                    fill(pixmap, alpha, 0);
+                    assertEquals(DynamicOrthographicCamara.getSolidBounds(pixmap), emulate(alpha, size[0], size[1]),
+                            size[0] + "x" + size[1] + " seed " + seed + (dense ? " dense" : " sparse"));
+                    pixmap.dispose();
+                }
+    }
+
+    @Test
+    public void testEmulatedEmptyAndEdges() {
+        assertEquals(new SolidBounds(300, 257, -1, -1, -1, -1), emulate(new int[300 * 257], 300, 257));
+        // The solid pixels on the last row and column are found only if the parity is followed
+        for (int[] size : sizes) {
+            int w = size[0], h = size[1];
+            int[] alpha = new int[w * h];
+            alpha[(h - 1) * w + (w - 1) / 2 * 2] = 255;
+            alpha[(w - 1)] = 255;
+            Pixmap pixmap = new Pixmap(w, h, Pixmap.Format.RGBA8888);
+            fill(pixmap, alpha, 0);
+            SolidBounds expected = DynamicOrthographicCamara.getSolidBounds(pixmap);
+            assertEquals(h - 1, expected.bottom());
+            assertEquals(w - 1, expected.right());
+            assertEquals(expected, emulate(alpha, w, h), w + "x" + h);
+            pixmap.dispose();
+        }
+    }
+
+    @Test
+    public void testGpuReductionOfUploadedTexture() {
+        runOnGl(() -> {
+            GpuBoundsReducer reducer = new GpuBoundsReducer();
+            for (int[] size : sizes)
+                for (int seed = 0; seed < seedsPerSize; seed++)
+                    for (boolean dense : new boolean[]{false, true}) {
+                        Pixmap pixmap = new Pixmap(size[0], size[1], Pixmap.Format.RGBA8888);
+                        fill(pixmap, snapshot(size[0], size[1], seed, dense), 0);
+                        Texture texture = new Texture(pixmap);
+                        assertEquals(DynamicOrthographicCamara.getSolidBounds(pixmap), reducer.reduce(texture, size[0], size[1]),
+                                size[0] + "x" + size[1] + " seed " + seed + (dense ? " dense" : " sparse"));
+                        texture.dispose();
+                        pixmap.dispose();
+                    }
+            reducer.dispose();
+        });
+    }
+
+    @Test
+    public void testGpuReductionOfFrameBuffer() {
+        // The same path as the canvas fitting, where the CPU side reads the FBO back (flipped along the y-axis)
+        runOnGl(() -> {
+            GpuBoundsReducer reducer = new GpuBoundsReducer();
+            SpriteBatch batch = new SpriteBatch();
+            batch.disableBlending();
+            for (int[] size : sizes)
+                for (int seed = 0; seed < seedsPerSize; seed++) {
+                    Pixmap pixmap = new Pixmap(size[0], size[1], Pixmap.Format.RGBA8888);
+                    fill(pixmap, snapshot(size[0], size[1], seed, (seed & 1) == 1), 0);
+                    Texture texture = new Texture(pixmap);
+                    FrameBuffer fbo = new FrameBuffer(Pixmap.Format.RGBA8888, size[0], size[1], false);
+                    fbo.begin();
+                    ScreenUtils.clear(0, 0, 0, 0);
+                    batch.getProjectionMatrix().setToOrtho2D(0, 0, size[0], size[1]);
+                    batch.begin();
+                    batch.draw(texture, 0, 0);
+                    batch.end();
+                    Pixmap readBack = Pixmap.createFromFrameBuffer(0, 0, size[0], size[1]);
+                    fbo.end();
+                    assertEquals(DynamicOrthographicCamara.getSolidBounds(readBack), reducer.reduce(fbo.getColorBufferTexture(), size[0], size[1]),
+                            size[0] + "x" + size[1] + " seed " + seed);
+                    readBack.dispose();
+                    fbo.dispose();
+                    texture.dispose();
+                    pixmap.dispose();
+                }
+            batch.dispose();
+            reducer.dispose();
+        });
+    }
+
+    private static int[] snapshot(int width, int height, int seed, boolean dense) {
+        SplittableRandom random = new SplittableRandom(seed * 31L + width);
+        return dense ? denseAlpha(width, height, random) : sparseAlpha(width, height, random);
+    }
+
+    /** Runs the task in a hidden window which provides an OpenGL context,
+     * or skips the test if the window can't be created.
+     */
+    private static void runOnGl(Runnable task) {
+        Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
+        config.setInitialVisible(false);
+        config.disableAudio(true);
+        config.setWindowedMode(16, 16);
+        Throwable[] failure = {null};
+        boolean[] started = {false};
+        try {
+            new Lwjgl3Application(new ApplicationAdapter() {
+                @Override
+                public void create() {
+                    started[0] = true;
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        failure[0] = t;
+                    }
+                    Gdx.app.exit();
+                }
+            }, config);
+        } catch (Throwable t) {
+            Assumptions.assumeTrue(started[0], "No OpenGL context is available: " + t);
+            throw t;
+        }
+        if (failure[0] instanceof Error e)
+            throw e;
+        if (failure[0] instanceof RuntimeException e)
+            throw e;
+    }
+
+    /** Runs the initial pass and the reduction passes of both axes on the CPU, as the shaders do.
+     */
+    private static SolidBounds emulate(int[] alpha, int width, int height) {
+        int packedY = emulateAxis(alpha, width, height, GpuBoundsReducer.axisY);
+        int packedX = emulateAxis(alpha, width, height, GpuBoundsReducer.axisX);
+        return new SolidBounds(width, height,
+                GpuBoundsReducer.unpackMin(packedY), GpuBoundsReducer.unpackMax(packedY),
+                GpuBoundsReducer.unpackMin(packedX), GpuBoundsReducer.unpackMax(packedX));
+    }
+
+    private static int emulateAxis(int[] alpha, int width, int height, int axis) {
+        final float none = GpuBoundsReducer.valueNone;
+        final float parityX = (width - 1) & 1;
+        final float parityY = (height - 1) & 1;
+        // Initial pass (BoundsInitFragment.glsl)
+        int w = (width + 1) >> 1;
+        int h = (height + 1) >> 1;
+        byte[] texels = new byte[w * h * 4];
+        for (int y = 0; y < h; y++)
+            for (int x = 0; x < w; x++) {
+                float baseX = x * 2f, baseY = y * 2f;
+                float minV = none, maxV = 0;
+                if (axis == GpuBoundsReducer.axisY) {
+                    if (isSolid(alpha, width, height, baseX, baseY))
+                        minV = baseY;
+                    if (isSolid(alpha, width, height, baseX, baseY + parityY))
+                        maxV = baseY + parityY + 1;
+                } else {
+                    if (isSolid(alpha, width, height, baseX, baseY))
+                        minV = baseX;
+                    if (isSolid(alpha, width, height, baseX + parityX, baseY))
+                        maxV = baseX + parityX + 1;
+                }
+                store(texels, (y * w + x) << 2, minV, maxV);
+            }
+        // Reduction passes (BoundsReduceFragment.glsl)
+        while (w > 1 || h > 1) {
+            int outW = (w + 1) >> 1;
+            int outH = (h + 1) >> 1;
+            byte[] out = new byte[outW * outH * 4];
+            for (int y = 0; y < outH; y++)
+                for (int x = 0; x < outW; x++) {
+                    float minV = none, maxV = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int px = x * 2 + (i & 1), py = y * 2 + (i >> 1);
+                        if (px < w && py < h) {
+                            int j = (py * w + px) << 2;
+                            minV = Math.min(minV, decode(texels[j], texels[j + 1]));
+                            maxV = Math.max(maxV, decode(texels[j + 2], texels[j + 3]));
+                        }
+                    }
+                    store(out, (y * outW + x) << 2, minV, maxV);
+                }
+            texels = out;
+            w = outW;
+            h = outH;
+        }
+        // Read back the single texel (GpuBoundsReducer.readTexel)
+        return (texels[0] & 0xFF) << 24 | (texels[1] & 0xFF) << 16 | (texels[2] & 0xFF) << 8 | (texels[3] & 0xFF);
+    }
+
+    private static boolean isSolid(int[] alpha, int width, int height, float x, float y) {
+        return x < width && y < height && alpha[(int)y * width + (int)x] / 255f >= 254.5f / 255f;
+    }
+
+    private static void store(byte[] texels, int i, float minV, float maxV) {
+        float minHi = (float)Math.floor(minV / 256f);
+        float maxHi = (float)Math.floor(maxV / 256f);
+        texels[i] = quantize(minHi / 255f);
+        texels[i + 1] = quantize((minV - minHi * 256f) / 255f);
+        texels[i + 2] = quantize(maxHi / 255f);
+        texels[i + 3] = quantize((maxV - maxHi * 256f) / 255f);
+    }
+
+    private static float decode(byte hi, byte lo) {
+        float x = (hi & 0xFF) / 255f, y = (lo & 0xFF) / 255f;
+        return (float)Math.floor(x * 255f + 0.5f) * 256f + (float)Math.floor(y * 255f + 0.5f);
+    }
+
+    /** Converts a normalized channel value to the byte stored in an RGBA8888 FBO.
+     */
+    private static byte quantize(float c) {
+        return (byte)Math.round(Math.max(0, Math.min(1, c)) * 255f);
+    }
+}
@@ -0,0 +1,79 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the synchronous fallback of {@link HitTestBuffer}, which is used when there is no GL context supporting PBO.
+ * The GL is replaced by a proxy that counts the reads and fills the pixels with a given alpha.
+ */
+public class HitTestBufferTest {
+    private GL20 originalGl;
+    private int readCount;
+    private byte alpha;
+
+    @BeforeEach
+    public void setUp() {
+        originalGl = Gdx.gl;
+        Gdx.gl = (GL20)Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[]{GL20.class}, (proxy, method, args) -> {
+            if (method.getName().equals("glReadPixels")) {
+                readCount++;
+                ByteBuffer pixels = (ByteBuffer)args[6];
+                for (int i = 3; i < pixels.limit(); i += 4)
+                    pixels.put(i, alpha);
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Gdx.gl = originalGl;
+    }
+
+    @Test
+    public void testFramesWithoutQueryReadNothing() {
+        HitTestBuffer buffer = new HitTestBuffer();
+        assertFalse(buffer.usePBO);
+        for (int i = 0; i < 10; i++)
+            buffer.capture(16, 8);
+        assertEquals(0, readCount);
+    }
+
+    @Test
+    public void testFirstQueryOfFrameReadsOnce() {
+        HitTestBuffer buffer = new HitTestBuffer();
+        alpha = (byte)200;
+        buffer.capture(16, 8);
+        assertEquals(200, buffer.getAlpha(3, 4));
+        assertEquals(200, buffer.getAlpha(15, 7));
+        assertEquals(1, readCount);
+
+        alpha = 0;
+        buffer.capture(16, 8);
+        assertEquals(1, readCount);
+        assertEquals(0, buffer.getAlpha(3, 4));
+        assertEquals(2, readCount);
+    }
+
+    @Test
+    public void testOutOfBoundsQueryReadsNothing() {
+        HitTestBuffer buffer = new HitTestBuffer();
+        buffer.capture(16, 8);
+        assertEquals(0, buffer.getAlpha(-1, 0));
+        assertEquals(0, buffer.getAlpha(16, 0));
+        assertEquals(0, buffer.getAlpha(0, 8));
+        assertEquals(0, readCount);
+    }
+}
@@ -0,0 +1,140 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets.utils;
+
+import cn.harryh.arkpets.utils.Plane.RectArea;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/** Tests the fixed-timestep integration of {@link Plane} by replaying recorded delta sequences.
+ * The step rate and the deltas are powers of two, so the accumulated time is exact in float.
+ */
+public class PlaneTest {
+    private static final float stepRate = 64;
+    private static final float step = 1 / stepRate;
+    /** Recorded frame deltas with jitters and a few dropped frames, in 1/128 s. */
+    private static final int[] recordedDeltas = {2, 2, 3, 1, 2, 2, 4, 2, 1, 3, 2, 2, 8, 2, 2, 1, 1, 2, 3, 2, 2, 16, 2, 2};
+
+    @Test
+    public void testDisabledFixedStepIntegratesRawDelta() {
+        Plane plane = newPlane();
+        Plane reference = newPlane();
+        for (int d : recordedDeltas) {
+            plane.update(d / 128f);
+            reference.updatePosition(d / 128f);
+            assertEquals(reference.getX(), plane.getX());
+            assertEquals(reference.getY(), plane.getY());
+            assertEquals(plane.getX(), plane.getInterpolatedX());
+            assertEquals(plane.getY(), plane.getInterpolatedY());
+        }
+    }
+
+    @Test
+    public void testFixedStepMatchesDirectSteps() {
+        Plane plane = newPlane();
+        plane.setFixedStepRate(stepRate);
+        Plane reference = newPlane();
+        float lastX = reference.getX(), lastY = reference.getY();
+        int time = 0; // In 1/128 s
+        int steps = 0;
+        for (int d : recordedDeltas) {
+            plane.update(d / 128f);
+            time += d;
+            while (steps < time / 2) {
+                lastX = reference.getX();
+                lastY = reference.getY();
+                reference.updatePosition(step);
+                steps++;
+            }
+            assertEquals(reference.getX(), plane.getX());
+            assertEquals(reference.getY(), plane.getY());
+            float alpha = (time % 2) / 2f;
+            assertEquals(lastX + (reference.getX() - lastX) * alpha, plane.getInterpolatedX(), 1e-3f);
+            assertEquals(lastY + (reference.getY() - lastY) * alpha, plane.getInterpolatedY(), 1e-3f);
+        }
+        assertNotEquals(newPlane().getY(), plane.getY(), "The object should have moved");
+    }
+
+    @Test
+    public void testFrameRateIndependence() {
+        Plane at64 = newPlane();
+        Plane at128 = newPlane();
+        Plane at16 = newPlane();
+        at64.setFixedStepRate(stepRate);
+        at128.setFixedStepRate(stepRate);
+        at16.setFixedStepRate(stepRate);
+        for (int i = 0; i < 256; i++) {
+            at128.update(1 / 128f);
+            if (i % 2 == 1)
+                at64.update(1 / 64f);
+            if (i % 8 == 7)
+                at16.update(1 / 16f);
+        }
+        assertEquals(at128.getX(), at64.getX());
+        assertEquals(at128.getY(), at64.getY());
+        assertEquals(at128.getX(), at16.getX());
+        assertEquals(at128.getY(), at16.getY());
+    }
+
+    @Test
+    public void testReplayIsDeterministic() {
+        SplittableRandom random = new SplittableRandom(6);
+        float[] deltas = new float[1000];
+        for (int i = 0; i < deltas.length; i++)
+            deltas[i] = (float)(1 / 60d + random.nextGaussian() * 0.004);
+        Plane a = newPlane();
+        Plane b = newPlane();
+        a.setFixedStepRate(120);
+        b.setFixedStepRate(120);
+        for (float delta : deltas) {
+            a.update(delta);
+            b.update(delta);
+            assertEquals(a.getInterpolatedX(), b.getInterpolatedX());
+            assertEquals(a.getInterpolatedY(), b.getInterpolatedY());
+        }
+    }
+
+    @Test
+    public void testHitchIsCapped() {
+        Plane plane = newPlane();
+        plane.setFixedStepRate(stepRate);
+        Plane reference = newPlane();
+        plane.update(10);
+        for (int i = 0; i < 16; i++) // The accumulator is capped at 0.25 s
+            reference.updatePosition(step);
+        assertEquals(reference.getX(), plane.getX());
+        assertEquals(reference.getY(), plane.getY());
+    }
+
+    @Test
+    public void testChangePositionResetsInterpolation() {
+        Plane plane = newPlane();
+        plane.setFixedStepRate(stepRate);
+        plane.update(3 / 128f);
+        plane.changePosition(0, 500, 600);
+        assertEquals(500, plane.getInterpolatedX());
+        assertEquals(600, plane.getInterpolatedY());
+    }
+
+    /** Creates a plane with an object thrown towards a barrier from the top-left of a 1920x1080 screen.
+     */
+    private static Plane newPlane() {
+        Plane plane = new Plane();
+        plane.world.add(new RectArea(0, 1920, 1080, 0));
+        plane.setBarrier(400, 600, 800, false);
+        plane.setPointCharge(300, 1500, 1);
+        plane.setObjSize(150, 150);
+        plane.setGravity(1000);
+        plane.setResilience(0.5f);
+        plane.setFrict(100, 500);
+        plane.setSpeedLimit(2000, 2000);
+        plane.changePosition(0, 100, 900);
+        plane.changePosition(0.5f, 400, 950);
+        return plane;
+    }
+}
@@ -3,11 +3,12 @@
  */
 package cn.harryh.arkpets;
 
+import cn.harryh.arkpets.concurrent.SharedArchive;
 import cn.harryh.arkpets.utils.ArgPending;
 import cn.harryh.arkpets.platform.WindowSystem;
 import cn.harryh.arkpets.utils.Logger;
-import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
-import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.lwjgl3.*;
 import com.badlogic.gdx.graphics.Color;
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.glfw.GLFWErrorCallback;
@@ -25,6 +26,13 @@ import static cn.harryh.arkpets.Const.*;
 public class EmbeddedLauncher {
     // Please note that on macOS your application needs to be started with the -XstartOnFirstThread JVM argument
 
+    private static int petCount = 1;
+    private static boolean isHost = false;
+    private static int probeCount = 0;
+    private static boolean isCdsTraining = false;
+    private static long randomSeed = 0;
+    private static int seededPets = 0;
+
     public static void main (String[] args) {
         ArgPending.argCache = args;
         // Logger
@@ -34,6 +42,7 @@ public class EmbeddedLauncher {
             Logger.setLevel(appConfig.logging_level);
         } catch (Exception ignored) {
         }
+        randomSeed = appConfig.behavior_random_seed;
         new ArgPending(LogConfig.errorArg, args) {
             protected void process(String command, String addition) {
                 Logger.setLevel(Logger.ERROR);
@@ -54,6 +63,48 @@ public class EmbeddedLauncher {
                 Logger.setLevel(Logger.DEBUG);
             }
         };
+        new ArgPending(LaunchConfig.petsArg, args) {
+            protected void process(String command, String addition) {
+                try {
+                    petCount = Math.max(1, Math.min(LaunchConfig.petsMax, Integer.parseInt(addition)));
+                } catch (NumberFormatException e) {
+                    Logger.warn("System", "Invalid pet count \"" + addition + "\", using 1 instead");
+                }
+            }
+        };
+        new ArgPending(LaunchConfig.hostArg, args) {
+            protected void process(String command, String addition) {
+                isHost = true;
+            }
+        };
+        new ArgPending(LaunchConfig.probeArg, args) {
+            protected void process(String command, String addition) {
+                // The probe of the launch, see the Gradle task "petHostProbe"
+                try {
+                    probeCount = Math.max(1, Math.min(LaunchConfig.petsMax, Integer.parseInt(addition)));
+                } catch (NumberFormatException e) {
+                    Logger.warn("System", "Invalid probe count \"" + addition + "\", using 1 instead");
+                    probeCount = 1;
+                }
+            }
+        };
+        new ArgPending(LaunchConfig.seedArg, args) {
+            protected void process(String command, String addition) {
+                try {
+                    randomSeed = Long.parseLong(addition);
+                } catch (NumberFormatException e) {
+                    Logger.warn("System", "Invalid random seed \"" + addition + "\", using the one in the config instead");
+                }
+            }
+        };
+        new ArgPending(LaunchConfig.cdsTrainingArg, args) {
+            protected void process(String command, String addition) {
+                // The training run of the AppCDS archive, see the Gradle task "cdsArchive"
+                Logger.info("System", "Running as the training run of the class data sharing archive");
+                SharedArchive.writeKey(EmbeddedLauncher.class);
+                isCdsTraining = true;
+            }
+        };
         Logger.info("System", "Entering the app of EmbeddedLauncher");
         Logger.info("System", "ArkPets version is " + appVersion);
         Logger.debug("System", "Default charset is " + Charset.defaultCharset());
@@ -64,18 +115,30 @@ public class EmbeddedLauncher {
             // Configure FPS
             config.setForegroundFPS(fpsDefault);
             config.setIdleFPS(fpsDefault);
-            // Configure window layout
-            config.setDecorated(false);
-            config.setResizable(false);
-            config.setWindowedMode(coreWidthDefault, coreHeightDefault);
-            config.setWindowPosition(0, 0);
-            // Configure window title
-            final String TITLE = coreTitleManager.getIdleTitle();
-            config.setTitle(TITLE);
-            // Configure window display
-            config.setInitialVisible(true);
+            // Configure window layout, title and display
+            final String TITLE = isHost ? LaunchConfig.hostTitle : coreTitleManager.reserveIdleTitle();
+            setWindowConfig(config, TITLE);
             config.setTransparentFramebuffer(true);
-            config.setInitialBackgroundColor(Color.CLEAR);
+            // Configure pet host mode (the host window is invisible)
+            if (isHost) {
+                Logger.info("System", "Running as the resident pet host");
+                config.setWindowedMode(1, 1);
+                config.setInitialVisible(false);
+            }
+            // Configure multi-pet mode
+            if (petCount > 1 && !isHost) {
+                Logger.info("System", "Hosting " + petCount + " pets in multi-window mode");
+                config.setWindowListener(new Lwjgl3WindowAdapter() {
+                    @Override
+                    public void created(Lwjgl3Window window) {
+                        // The other windows should be created on the main loop, after the first one
+                        Gdx.app.postRunnable(() -> {
+                            for (int i = 1; i < petCount; i++)
+                                newPetWindow(null);
+                        });
+                    }
+                });
+            }
             // Handle GLFW error
             GLFW.glfwSetErrorCallback(new GLFWErrorCallback() {
                 @Override
@@ -87,7 +150,8 @@ public class EmbeddedLauncher {
                 }
             });
             // Instantiate the App
-            Lwjgl3Application app = new Lwjgl3Application(new ArkPets(TITLE), config);
+            Lwjgl3Application app = new Lwjgl3Application(isHost ? new PetHost(probeCount) : isCdsTraining ? newTrainingPet(TITLE) :
+                    probeCount > 0 ? newProbedPet(TITLE) : new ArkPets(TITLE, nextPetSeed()), config);
         } catch (Exception e) {
             WindowSystem.free();
             Logger.error("System", "A fatal error occurs in the runtime of Lwjgl3Application, details see below.", e);
@@ -97,4 +161,86 @@ public class EmbeddedLauncher {
         Logger.info("System", "Exited from EmbeddedLauncher successfully");
         System.exit(0);
     }
+
+    /** Creates a new window of ArkPets in the running application,
+     * which shares the GL context (and thus the loaded models) with the existing windows.
+     * Note that this must be called on the main loop, e.g. via {@code Gdx.app.postRunnable()}.
+     * @param onDisposed The callback to run after the window is disposed, nullable.
+     * @return The app of the new window.
+     */
+    public static ArkPets newPetWindow(Runnable onDisposed) {
+        Lwjgl3WindowConfiguration config = new Lwjgl3WindowConfiguration();
+        // The window is created later on the main loop, so its title is reserved until the window is disposed
+        final String TITLE = coreTitleManager.reserveIdleTitle();
+        setWindowConfig(config, TITLE);
+        ArkPets pet = new ArkPets(TITLE, nextPetSeed()) {
+            @Override
+            public void dispose() {
+                super.dispose();
+                if (onDisposed != null)
+                    onDisposed.run();
+            }
+        };
+        ((Lwjgl3Application)Gdx.app).newWindow(pet, config);
+        Logger.info("System", "Created a new window \"" + TITLE + "\"");
+        return pet;
+    }
+
+    /** Creates the app of the training run of the AppCDS archive,
+     * which exits once the pet has been set up and has rendered some frames,
+     * so that the classes used by the model loading and the render loop are all archived.
+     */
+    private static ArkPets newTrainingPet(String title) {
+        return new ArkPets(title, nextPetSeed()) {
+            private int renderedFrames = 0;
+
+            @Override
+            public void render() {
+                super.render();
+                if (cha != null && ++renderedFrames == LaunchConfig.cdsTrainingFrames) {
+                    Logger.info("System", "The training run finished after " + renderedFrames + " frames");
+                    Gdx.app.exit();
+                }
+            }
+        };
+    }
+
+    /** Creates the app of a probed pet, which is launched in its own process by {@link PetProbe},
+     * and prints the ready line once the pet has been set up and has rendered its first frame.
+     */
+    private static ArkPets newProbedPet(String title) {
+        return new ArkPets(title, nextPetSeed()) {
+            private boolean isReady = false;
+
+            @Override
+            public void render() {
+                super.render();
+                if (cha != null && !isReady) {
+                    isReady = true;
+                    PetProbe.printReady();
+                }
+            }
+        };
+    }
+
+    /** Gets the random seed of the next pet in this process, which is derived from the given seed (see "--seed"),
+     * so that the pets in the same process behave differently, while each of them is still reproducible.
+     * @return The seed, or {@code 0} if no seed is given.
+     */
+    private static synchronized long nextPetSeed() {
+        return randomSeed != 0 ? randomSeed + seededPets++ : 0;
+    }
+
+    private static void setWindowConfig(Lwjgl3WindowConfiguration config, String title) {
+        // Configure window layout
+        config.setDecorated(false);
+        config.setResizable(false);
+        config.setWindowedMode(coreWidthDefault, coreHeightDefault);
+        config.setWindowPosition(0, 0);
+        // Configure window title
+        config.setTitle(title);
+        // Configure window display
+        config.setInitialVisible(true);
+        config.setInitialBackgroundColor(Color.CLEAR);
+    }
 }
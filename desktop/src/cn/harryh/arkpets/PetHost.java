@@ -0,0 +1,166 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.concurrent.SocketClient;
+import cn.harryh.arkpets.concurrent.SocketData;
+import cn.harryh.arkpets.concurrent.SocketSession;
+import cn.harryh.arkpets.tray.MemberTrayImpl;
+import cn.harryh.arkpets.utils.Logger;
+import cn.harryh.arkpets.utils.MemoryStatus;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+/** The resident pet host, which creates the pet windows in its own process on request.
+ * <hr>
+ * The host runs in an invisible window of the libGDX app, and connects to the launcher's socket server.
+ * Once it receives a launch request, it creates a new ArkPets window in the same process,
+ * so that the later launches needn't pay the startup cost of a new JVM.
+ * The host exits when it is disconnected from the launcher and no pet window is alive.
+ * Since the pets share the process, the host reports the memory status of the process after each pet is ready,
+ * instead of the pets themselves.
+ * <hr>
+ * In the probe mode, the host doesn't connect to the launcher. It launches the given count of pets one by one,
+ * and logs the latency from each launch to the first frame of the pet, and the RSS of the process after it.
+ * @see EmbeddedLauncher
+ * @see PetProbe
+ * @since ArkPets 3.3
+ */
+public class PetHost extends ApplicationAdapter {
+    private final UUID uuid = UUID.randomUUID();
+    private final SocketClient client = new SocketClient();
+    private final int probeCount;
+    private int petCount = 0;
+    private final List<ArkPets> startingPets = new ArrayList<>();
+    private ArkPets probedPet;
+    private long probeStart;
+    private long probeBaseRss;
+    private long probeFirstLatency;
+    private long probeLaterLatencies;
+    private int probedCount = 0;
+
+    /** Initializes a pet host.
+     * @param probeCount The count of the pets to launch in the probe mode, or {@code 0} to run normally.
+     */
+    public PetHost(int probeCount) {
+        this.probeCount = probeCount;
+    }
+
+    @Override
+    public void create() {
+        Logger.info("PetHost", "Pet host created");
+        if (probeCount > 0) {
+            Logger.info("PetHost", "Probing the launch of " + probeCount + " pet(s)");
+            probeBaseRss = getResidentSetSize();
+            probeStart = System.nanoTime();
+            probedPet = launchPet();
+            return;
+        }
+        // Launch the pet that the host was started for
+        MemberTrayImpl.claimMemoryStatus();
+        startingPets.add(launchPet());
+        // Register to the launcher
+        Runnable onConnected = () -> {
+            client.sendRequest(SocketData.ofOperation(uuid, SocketData.Operation.HOST_LOGIN));
+            reportMemoryStatus();
+        };
+        client.connect(onConnected, new HostSocketSession());
+        if (!client.isConnected())
+            client.connectWithRetry(onConnected, new HostSocketSession());
+    }
+
+    @Override
+    public void render() {
+        if (probeCount > 0) {
+            updateProbe();
+            return;
+        }
+        // The pet has rendered its first frame once its character is set up
+        if (startingPets.removeIf(pet -> pet.cha != null))
+            reportMemoryStatus();
+        if (petCount <= 0 && !client.isConnected()) {
+            Logger.info("PetHost", "No pet is alive and the launcher is disconnected");
+            Gdx.app.exit();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        client.disconnect();
+        Logger.info("PetHost", "Pet host disposed");
+    }
+
+    private ArkPets launchPet() {
+        long start = System.nanoTime();
+        petCount++;
+        ArkPets pet = EmbeddedLauncher.newPetWindow(() -> {
+            petCount--;
+            Logger.info("PetHost", "A pet exited, " + petCount + " pet(s) alive");
+        });
+        Logger.info("PetHost", "Launched a pet in " + (System.nanoTime() - start) / 1_000_000 + "ms, " + petCount + " pet(s) alive");
+        return pet;
+    }
+
+    private void updateProbe() {
+        // The pet has rendered its first frame once its character is set up
+        if (probedPet == null || probedPet.cha == null)
+            return;
+        long latency = (System.nanoTime() - probeStart) / 1_000_000;
+        probedCount++;
+        PetProbe.printReady();
+        if (probedCount == 1)
+            probeFirstLatency = latency;
+        else
+            probeLaterLatencies += latency;
+        Logger.info("PetHost", "Probe: pet " + probedCount + " ready in " + latency + "ms, RSS " + getResidentSetSize() + "KB");
+        if (probedCount < probeCount) {
+            probeStart = System.nanoTime();
+            probedPet = launchPet();
+        } else {
+            probedPet = null;
+            Logger.info("PetHost", "Probe finished: " + probeCount + " pet(s), first launch " + probeFirstLatency + "ms, " +
+                    "later launches " + (probeCount > 1 ? probeLaterLatencies / (probeCount - 1) + "ms" : "n/a") + " on average, " +
+                    "RSS " + probeBaseRss + "KB before and " + getResidentSetSize() + "KB after");
+            Gdx.app.exit();
+        }
+    }
+
+    private void reportMemoryStatus() {
+        MemoryStatus status = MemoryStatus.ofCurrentProcess();
+        String msg = "process-wide, " + petCount + " pet(s), " + status;
+        Logger.info("PetHost", "Memory status: " + msg);
+        client.sendRequest(SocketData.ofMemoryStatus(uuid, msg));
+    }
+
+    private static long getResidentSetSize() {
+        return PetProbe.getResidentSetSize(ProcessHandle.current().pid());
+    }
+
+
+    private class HostSocketSession extends SocketSession {
+        @Override
+        public void receive(SocketData socketData) {
+            // The requests are served one by one on the main loop, where newPetWindow reserves the title of each pet,
+            // so the pets requested before their windows are created won't get the same title
+            if (socketData.operation == SocketData.Operation.LAUNCH_PET)
+                Gdx.app.postRunnable(() -> startingPets.add(launchPet()));
+        }
+
+        @Override
+        protected void onClosed() {
+            Logger.info("PetHost", "(-)" + this + " closed");
+        }
+
+        @Override
+        protected void onBroken() {
+            Logger.info("PetHost", "(x)" + this + " broken");
+            client.disconnect();
+        }
+    }
+}
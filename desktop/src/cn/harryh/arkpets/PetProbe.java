@@ -0,0 +1,193 @@
+/** Copyright (c) 2022-2024, Harry Huang
+ * At GPL-3.0 License
+ */
+package cn.harryh.arkpets;
+
+import cn.harryh.arkpets.Const.LaunchConfig;
+import cn.harryh.arkpets.Const.LogConfig;
+import com.sun.jna.Platform;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/** The probe that compares the launch latency and the RSS of the pets in the resident pet host
+ * with those of the pets launched one process per pet, which is the default mode of the launcher.
+ * <hr>
+ * For each given count of pets, it launches the pets one by one in each mode, and the next pet is launched
+ * once the previous one has rendered its first set-up frame and has printed the ready line.
+ * The latency of a launch is the time from the request (or the process start) to the ready line,
+ * and the total RSS is that of all the processes of the pets when the last pet is ready,
+ * where the pet host reports its own RSS in its last ready line.
+ * The results of both modes are printed as a table at last.
+ * <hr>
+ * Usage: {@code PetProbe [count...]}, which runs in the working directory of the app, see the Gradle task "petHostProbe".
+ * @see PetHost
+ * @since ArkPets 3.3
+ */
+public class PetProbe {
+    /** The line printed by a probed pet once it is ready, followed by the RSS (KB) of its process. */
+    static final String readyMarker = "[PetProbe] Ready, RSS KB: ";
+
+    private static final long readyTimeoutSeconds = 120;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] counts = args.length > 0 ? new int[args.length] : new int[]{1, 5, 10};
+        for (int i = 0; i < args.length; i++)
+            counts[i] = Integer.parseInt(args[i]);
+        List<Result> results = new ArrayList<>();
+        for (int count : counts) {
+            results.add(probeHost(count));
+            results.add(probeProcesses(count));
+        }
+        System.out.println();
+        System.out.printf("%-8s %5s %14s %22s %14s%n", "Mode", "Pets", "First launch", "Later launch (avg)", "Total RSS");
+        for (Result result : results)
+            System.out.printf("%-8s %5d %12dms %20s %12dMB%n", result.mode, result.count, result.firstMillis,
+                    result.count > 1 ? result.laterMillis + "ms" : "n/a", result.totalRssKb / 1024);
+    }
+
+    /** Prints the ready line of the current process.
+     */
+    static void printReady() {
+        System.out.println(readyMarker + getResidentSetSize(ProcessHandle.current().pid()));
+        System.out.flush();
+    }
+
+    /** Gets the resident set size (the working set on Windows) of a process, by the system tools.
+     * @param processId The PID of the process.
+     * @return The size in KB, or {@code -1} if unavailable.
+     */
+    static long getResidentSetSize(long processId) {
+        String pid = String.valueOf(processId);
+        String[] command = Platform.isWindows()
+                ? new String[]{"tasklist", "/FI", "PID eq " + pid, "/FO", "CSV", "/NH"}
+                : new String[]{"ps", "-o", "rss=", "-p", pid};
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), Charset.defaultCharset()).trim();
+            process.waitFor();
+            // The last column of tasklist is the memory usage like "123,456 K"
+            if (Platform.isWindows())
+                output = output.substring(output.lastIndexOf("\",\"") + 3);
+            return Long.parseLong(output.replaceAll("[^0-9]", ""));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static Result probeHost(int count) throws IOException, InterruptedException {
+        System.out.println("Probing " + count + " pet(s) in the pet host");
+        long last = System.nanoTime();
+        Child host = new Child(LaunchConfig.hostArg, LaunchConfig.probeArg, String.valueOf(count));
+        long first = 0;
+        long later = 0;
+        long rss = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                rss = host.awaitReady();
+                long now = System.nanoTime();
+                if (i == 0)
+                    first = now - last;
+                else
+                    later += now - last;
+                last = now;
+            }
+        } finally {
+            // The host exits by itself after the probe
+            if (!host.process.waitFor(readyTimeoutSeconds, TimeUnit.SECONDS))
+                host.process.destroy();
+        }
+        return Result.of("host", count, first, later, rss);
+    }
+
+    private static Result probeProcesses(int count) throws IOException, InterruptedException {
+        System.out.println("Probing " + count + " pet(s) in one process per pet");
+        List<Child> children = new ArrayList<>();
+        long first = 0;
+        long later = 0;
+        long rss = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                long start = System.nanoTime();
+                Child child = new Child(LaunchConfig.probeArg, "1");
+                children.add(child);
+                child.awaitReady();
+                if (i == 0)
+                    first = System.nanoTime() - start;
+                else
+                    later += System.nanoTime() - start;
+            }
+            for (Child child : children)
+                rss += getResidentSetSize(child.process.pid());
+        } finally {
+            for (Child child : children)
+                child.process.destroy();
+            for (Child child : children)
+                child.process.waitFor(readyTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        return Result.of("process", count, first, later, rss);
+    }
+
+
+    private record Result(String mode, int count, long firstMillis, long laterMillis, long totalRssKb) {
+        private static Result of(String mode, int count, long firstNanos, long laterNanos, long totalRssKb) {
+            return new Result(mode, count, firstNanos / 1_000_000, count > 1 ? laterNanos / (count - 1) / 1_000_000 : 0,
+                    totalRssKb);
+        }
+    }
+
+
+    /** The process of {@link EmbeddedLauncher} whose ready lines are collected.
+     */
+    private static class Child {
+        private final Process process;
+        private final BlockingQueue<Long> readyRss = new LinkedBlockingQueue<>();
+
+        private Child(String... args) throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+            if (Platform.isMac())
+                command.add("-XstartOnFirstThread"); // Required to run on macOS
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(EmbeddedLauncher.class.getName());
+            command.addAll(List.of(args));
+            command.add(LogConfig.infoArg);
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = process.inputReader()) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        int index = line.indexOf(readyMarker);
+                        if (index >= 0)
+                            readyRss.add(Long.parseLong(line.substring(index + readyMarker.length()).trim()));
+                    }
+                } catch (IOException | NumberFormatException ignored) {
+                }
+            }, "PetProbe-" + process.pid());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private long awaitReady() throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(readyTimeoutSeconds);
+            Long rss;
+            boolean wasAlive = true;
+            // The lines printed before the exit may still be read, so poll once more after the exit
+            while ((rss = readyRss.poll(1, TimeUnit.SECONDS)) == null && wasAlive && System.nanoTime() < deadline)
+                wasAlive = process.isAlive();
+            if (rss == null)
+                throw new IllegalStateException("Process " + process.pid() + " didn't get ready" +
+                        (process.isAlive() ? " in " + readyTimeoutSeconds + "s" : " (exit code " + process.exitValue() + ")"));
+            return rss;
+        }
+    }
+}
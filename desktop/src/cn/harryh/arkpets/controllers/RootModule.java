@@ -7,6 +7,7 @@ import cn.harryh.arkpets.ArkConfig;
 import cn.harryh.arkpets.ArkHomeFX;
 import cn.harryh.arkpets.EmbeddedLauncher;
 import cn.harryh.arkpets.concurrent.ProcessPool;
+import cn.harryh.arkpets.concurrent.SocketServer;
 import cn.harryh.arkpets.guitasks.CheckAppUpdateTask;
 import cn.harryh.arkpets.guitasks.GuiTask;
 import cn.harryh.arkpets.utils.ArgPending;
@@ -158,10 +159,28 @@ public final class RootModule implements Controller<ArkHomeFX> {
                     default -> "";
                 };
                 args.add(temp);
+                // Launch in the resident pet host if it is available or starting.
+                boolean startsHost = false;
+                if (app.config.launcher_pet_host) {
+                    if (SocketServer.getInstance().requestLaunch()) {
+                        Logger.info("Launcher", "Launching " + app.config.character_asset + " in the pet host");
+                        return true;
+                    }
+                    args.add(LaunchConfig.hostArg);
+                    startsHost = true;
+                }
                 // Start ArkPets core.
                 Logger.info("Launcher", "Launching " + app.config.character_asset);
-                Logger.debug("Launcher", "With args " + args);
-                Future<ProcessPool.ProcessResult> future = ProcessPool.getInstance().submit(EmbeddedLauncher.class, List.of(), args);
+                List<String> jvmArgs = app.config.getJvmArgs();
+                Logger.debug("Launcher", "With args " + args + " and JVM args " + jvmArgs);
+                Future<ProcessPool.ProcessResult> future;
+                try {
+                    future = ProcessPool.getInstance().submit(EmbeddedLauncher.class, jvmArgs, args);
+                    future.get();
+                } finally {
+                    if (startsHost)
+                        SocketServer.getInstance().onHostExited();
+                }
                 // ArkPets core finalized.
                 if (!future.get().isSuccess()) {
                     int exitCode = future.get().exitValue();
@@ -81,6 +81,10 @@ public final class SettingsModule implements Controller<ArkHomeFX> {
     @FXML
     private JFXCheckBox configSolidExit;
     @FXML
+    private JFXCheckBox configPetHost;
+    @FXML
+    private JFXComboBox<NamedItem<Integer>> configJvmProfile;
+    @FXML
     private JFXButton configCanvasSizeHelp;
     @FXML
     private JFXCheckBox configWindowToolwindow;
@@ -325,6 +329,21 @@ public final class SettingsModule implements Controller<ArkHomeFX> {
             app.config.save();
         });
 
+        configPetHost.setSelected(app.config.launcher_pet_host);
+        configPetHost.setOnAction(e -> {
+            app.config.launcher_pet_host = configPetHost.isSelected();
+            app.config.save();
+        });
+
+        new ComboBoxSetup<>(configJvmProfile).setItems(new NamedItem<>("默认", ArkConfig.JvmProfile.DEFAULT.ordinal()),
+                        new NamedItem<>("均衡", ArkConfig.JvmProfile.BALANCED.ordinal()),
+                        new NamedItem<>("低内存", ArkConfig.JvmProfile.LOW_MEMORY.ordinal()))
+                .selectValue(app.config.launcher_jvm_profile, "未知")
+                .setOnNonNullValueUpdated((observable, oldValue, newValue) -> {
+                    app.config.launcher_jvm_profile = newValue.value();
+                    app.config.save();
+                });
+
         configWindowTopmost.setSelected(app.config.window_style_topmost);
         configWindowTopmost.setOnAction(e -> {
             app.config.window_style_topmost = configWindowTopmost.isSelected();